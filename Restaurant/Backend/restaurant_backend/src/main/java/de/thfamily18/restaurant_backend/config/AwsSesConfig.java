@@ -1,4 +1,37 @@
 package de.thfamily18.restaurant_backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.SesClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "app.mail.provider", havingValue = "ses")
 public class AwsSesConfig {
+
+    /**
+     * SES client with the default credentials chain.
+     * app.mail.endpoint can point to a local SES stand-in (e.g. LocalStack); empty means the regional AWS endpoint.
+     */
+    @Bean(destroyMethod = "close")
+    public SesClient sesClient(@Value("${app.mail.region}") String region,
+                               @Value("${app.mail.endpoint:}") String endpoint,
+                               @Value("${app.mail.ses.callTimeoutMillis:10000}") long callTimeoutMillis) {
+        SesClientBuilder builder = SesClient.builder()
+                .region(Region.of(region))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallTimeout(Duration.ofMillis(callTimeoutMillis))
+                        .build());
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
 }
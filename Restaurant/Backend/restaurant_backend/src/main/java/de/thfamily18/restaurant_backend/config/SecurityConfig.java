@@ -38,7 +38,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/categories").permitAll()
 
                         // Guest checkout: create order
-                        .requestMatchers(HttpMethod.GET, "/api/orders/me").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/api/orders/me", "/api/orders/me/scroll").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/orders", "/api/orders/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/orders", "/api/orders/**").permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/api/orders", "/api/orders/**").permitAll()
@@ -1,21 +1,69 @@
 package de.thfamily18.restaurant_backend.config;
 
+import com.stripe.Stripe;
 import com.stripe.StripeClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeResponseGetterOptions;
+import de.thfamily18.restaurant_backend.service.payment.JdkStripeHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.time.Duration;
+
 @Configuration
 public class StripeConfig {
 
+    /**
+     * StripeClient on the pooled JDK HTTP transport.
+     * stripe.apiBase can point to a local stub in tests; per-operation timeouts are set by StripeGateway.
+     */
     @Bean
-    StripeClient stripeClient(@Value("${stripe.secretKey}") String secretKey) {
-        System.out.println("stripe.secretKey(from Spring) = " + secretKey);
+    public StripeClient stripeClient(@Value("${stripe.secretKey}") String secretKey,
+                                     @Value("${stripe.apiBase:" + Stripe.LIVE_API_BASE + "}") String apiBase,
+                                     @Value("${app.stripe.http.connectTimeoutMillis:2000}") int connectTimeoutMillis,
+                                     @Value("${app.stripe.http.readTimeoutMillis:20000}") int readTimeoutMillis,
+                                     @Value("${app.stripe.http.maxNetworkRetries:1}") int maxNetworkRetries) {
         if (secretKey == null || secretKey.isBlank()) {
             throw new IllegalStateException(
                     "STRIPE_SECRET_KEY is missing. Set it as environment variable."
             );
         }
-        return new StripeClient(secretKey);
+        JdkStripeHttpClient http = new JdkStripeHttpClient(
+                Duration.ofMillis(connectTimeoutMillis), Duration.ofMillis(readTimeoutMillis));
+        ClientOptions options = new ClientOptions(secretKey, apiBase, connectTimeoutMillis, readTimeoutMillis, maxNetworkRetries);
+        return new StripeClient(new LiveStripeResponseGetter(options, http));
+    }
+
+    /**
+     * What StripeClient.builder() would build; its builder cannot take a custom HttpClient.
+     */
+    static final class ClientOptions extends StripeResponseGetterOptions {
+        private final String apiKey;
+        private final String apiBase;
+        private final int connectTimeout;
+        private final int readTimeout;
+        private final int maxNetworkRetries;
+
+        ClientOptions(String apiKey, String apiBase, int connectTimeout, int readTimeout, int maxNetworkRetries) {
+            this.apiKey = apiKey;
+            this.apiBase = apiBase;
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.maxNetworkRetries = maxNetworkRetries;
+        }
+
+        @Override public String getApiKey() { return apiKey; }
+        @Override public String getClientId() { return null; }
+        @Override public int getConnectTimeout() { return connectTimeout; }
+        @Override public int getReadTimeout() { return readTimeout; }
+        @Override public int getMaxNetworkRetries() { return maxNetworkRetries; }
+        @Override public Proxy getConnectionProxy() { return null; }
+        @Override public PasswordAuthentication getProxyCredential() { return null; }
+        @Override public String getApiBase() { return apiBase; }
+        @Override public String getFilesBase() { return Stripe.UPLOAD_API_BASE; }
+        @Override public String getConnectBase() { return Stripe.CONNECT_API_BASE; }
     }
 }
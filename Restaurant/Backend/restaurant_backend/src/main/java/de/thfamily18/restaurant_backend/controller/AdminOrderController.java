@@ -3,17 +3,21 @@ package de.thfamily18.restaurant_backend.controller;
 // Admin manage orders
 
 import de.thfamily18.restaurant_backend.dto.OrderResponse;
+import de.thfamily18.restaurant_backend.dto.OrderSliceResponse;
 import de.thfamily18.restaurant_backend.dto.UpdateOrderStatusRequest;
 import de.thfamily18.restaurant_backend.entity.OrderStatus;
 import de.thfamily18.restaurant_backend.service.OrderService;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedBroadcaster;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.UUID;
 
@@ -24,9 +28,12 @@ import java.util.UUID;
 // GET /api/admin/orders?page=0&size=20
 // GET /api/admin/orders?page=0&size=20&sortBy=createdAt&sortDir=asc
 // GET /api/admin/orders?status=NEW&page=0&size=10&sortBy=totalPrice&sortDir=desc
+// GET /api/admin/orders/scroll?status=NEW&size=20&after=<nextCursor>
+// GET /api/admin/orders/stream (text/event-stream, kitchen screens)
 public class AdminOrderController {
 
     private final OrderService service;
+    private final OrderFeedBroadcaster feed;
 
     @GetMapping
     @Operation(
@@ -64,6 +71,40 @@ public class AdminOrderController {
         return service.adminList(status, page, size, sortBy, sortDir, lang);
     }
 
+    @GetMapping("/scroll")
+    @Operation(
+            summary = "Scroll orders for admin",
+            description = "Cursor-based list, newest first. Pass nextCursor from the previous response as 'after'."
+    )
+    public OrderSliceResponse scroll(
+            @Parameter(description = "Filter by order status", example = "NEW")
+            @RequestParam(required = false) OrderStatus status,
+
+            @Parameter(description = "Opaque cursor from the previous page (omit for the first page)")
+            @RequestParam(required = false) String after,
+
+            @Parameter(description = "Page size (capped by app.orders.maxPageSize)", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+
+            @RequestHeader(name = "Accept-Language", defaultValue = "de") String lang
+    ) {
+        return service.adminScroll(status, after, size, lang);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Live order feed (SSE)",
+            description = "Pushes order-created, order-status-changed and payment-updated events. "
+                    + "Reconnecting clients send Last-Event-ID to receive missed events; "
+                    + "a 'resync' event means the gap is too large and the list should be reloaded. "
+                    + "Event ids are shared by all nodes, so a reconnect may land on any node."
+    )
+    public SseEmitter stream(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return feed.subscribe(lastEventId);
+    }
+
     @GetMapping("/{id:[0-9a-fA-F\\-]{36}}")
     @Operation(summary = "Get order by id for admin")
     public OrderResponse getOne(
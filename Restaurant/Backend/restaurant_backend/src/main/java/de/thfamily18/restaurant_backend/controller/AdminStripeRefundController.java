@@ -1,19 +1,27 @@
 package de.thfamily18.restaurant_backend.controller;
 
 import com.stripe.exception.StripeException;
+import de.thfamily18.restaurant_backend.dto.payment.BulkRefundJobResponse;
+import de.thfamily18.restaurant_backend.dto.payment.BulkRefundRequest;
 import de.thfamily18.restaurant_backend.dto.payment.CreateRefundRequest;
 import de.thfamily18.restaurant_backend.dto.payment.RefundResponse;
 import de.thfamily18.restaurant_backend.service.StripeRefundService;
+import de.thfamily18.restaurant_backend.service.payment.BulkRefundService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/admin/payments/stripe")
 @RequiredArgsConstructor
@@ -22,6 +30,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminStripeRefundController {
 
     private final StripeRefundService refundService;
+    private final BulkRefundService bulkRefundService;
 
     /**
      * Create refund for an order.
@@ -46,4 +55,20 @@ public class AdminStripeRefundController {
 
         return ResponseEntity.ok(res);
     }
+
+    /**
+     * Refund many orders at once; answers 202 with a job id right away.
+     * Poll GET /refunds/bulk/{jobId} for per-item progress and results.
+     */
+    @PostMapping("/refunds/bulk")
+    public ResponseEntity<BulkRefundJobResponse> bulkRefund(
+            @Valid @RequestBody BulkRefundRequest req
+    ) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkRefundService.submit(req));
+    }
+
+    @GetMapping("/refunds/bulk/{jobId}")
+    public BulkRefundJobResponse bulkRefundJob(@PathVariable UUID jobId) {
+        return bulkRefundService.get(jobId);
+    }
 }
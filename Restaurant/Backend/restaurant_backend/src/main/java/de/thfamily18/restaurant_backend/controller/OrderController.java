@@ -2,6 +2,7 @@ package de.thfamily18.restaurant_backend.controller;
 
 import de.thfamily18.restaurant_backend.dto.CreateOrderRequest;
 import de.thfamily18.restaurant_backend.dto.OrderResponse;
+import de.thfamily18.restaurant_backend.dto.OrderSliceResponse;
 import de.thfamily18.restaurant_backend.entity.OrderStatus;
 import de.thfamily18.restaurant_backend.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -28,6 +29,7 @@ import java.util.UUID;
 // GET /api/orders/me?page=0&size=10
 //GET /api/orders/me?status=NEW&page=0&size=10
 //GET /api/orders/me?status=DELIVERED&page=1&size=5&sortBy=totalPrice&sortDir=asc
+//GET /api/orders/me/scroll?size=20&after=<nextCursor>
 public class OrderController {
 
     private final OrderService service;
@@ -107,6 +109,36 @@ public class OrderController {
         );
     }
 
+    @GetMapping("/me/scroll")
+    @Operation(
+            summary = "Scroll my orders",
+            description = "Cursor-based list of the current user's orders, newest first. "
+                    + "Pass nextCursor from the previous response as 'after'."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "401", description = "Authentication required")
+    })
+    public ResponseEntity<OrderSliceResponse> scrollMyOrders(
+            @Parameter(description = "Optional filter by order status", example = "NEW")
+            @RequestParam(required = false) OrderStatus status,
+
+            @Parameter(description = "Opaque cursor from the previous page (omit for the first page)")
+            @RequestParam(required = false) String after,
+
+            @Parameter(description = "Page size (capped by app.orders.maxPageSize)", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+
+            @RequestHeader(name = "Accept-Language", defaultValue = "de") String lang,
+
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(
+                service.scrollOrdersForUser(authentication.getName(), status, after, size, lang)
+        );
+    }
+
     @GetMapping("/{id:[0-9a-fA-F\\-]{36}}")
     public ResponseEntity<OrderResponse> getById(
             @PathVariable UUID id,
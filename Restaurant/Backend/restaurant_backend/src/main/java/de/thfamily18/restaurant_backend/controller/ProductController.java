@@ -2,47 +2,95 @@ package de.thfamily18.restaurant_backend.controller;
 
 import de.thfamily18.restaurant_backend.dto.ProductResponse;
 import de.thfamily18.restaurant_backend.service.ProductService;
+import de.thfamily18.restaurant_backend.service.catalog.CatalogSnapshot;
+import de.thfamily18.restaurant_backend.service.catalog.MenuPayload;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/products")
 @RequiredArgsConstructor
 @Tag(name = "Products")
+// Menu responses carry a strong ETag derived from the catalog content.
+// Clients send it back as If-None-Match and get 304 (no body) until the catalog changes.
+// Bodies are pre-serialized (and pre-compressed) per catalog snapshot, so a 200 is just a buffer copy.
 public class ProductController {
 
     private final ProductService service;
 
     @Operation(summary = "Get products (optionally filter by category)")
-    @GetMapping
-    public List<ProductResponse> getProducts(
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = ProductResponse.class))))
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getProducts(
             @RequestHeader(name = "Accept-Language", defaultValue = "de") String lang,
-            @RequestParam(required = false) String category
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestParam(required = false) String category,
+            WebRequest request
     ) {
-        return service.getProducts(lang, category);
+        CatalogSnapshot snapshot = service.menuSnapshot();
+        return write(snapshot.etag(lang), snapshot.payload(lang, category, false), acceptEncoding, request);
     }
 
     @Operation(summary = "Get best seller products (optionally filter by category)")
-    @GetMapping("/best")
-    public List<ProductResponse> getBestSellers(
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = ProductResponse.class))))
+    @GetMapping(value = "/best", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getBestSellers(
             @RequestHeader(name = "Accept-Language", defaultValue = "de") String lang,
-            @RequestParam(required = false) String category
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestParam(required = false) String category,
+            WebRequest request
     ) {
-        return service.getBestSellers(lang, category);
+        CatalogSnapshot snapshot = service.menuSnapshot();
+        return write(snapshot.etag(lang), snapshot.payload(lang, category, true), acceptEncoding, request);
     }
 
-    @GetMapping("/categories")
+    @GetMapping(value = "/categories", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "List product categories")
-    public List<String> getCategories(
-            @RequestHeader(name = "Accept-Language", defaultValue = "de") String lang
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = String.class))))
+    public ResponseEntity<byte[]> getCategories(
+            @RequestHeader(name = "Accept-Language", defaultValue = "de") String lang,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request
     ) {
         // The language header is accepted for API consistency.
         // Categories are currently language-independent.
-        return service.getCategories();
+        CatalogSnapshot snapshot = service.menuSnapshot();
+        return write(snapshot.categoriesEtag(), snapshot.categoriesPayload(), acceptEncoding, request);
+    }
+
+    private ResponseEntity<byte[]> write(String baseEtag, MenuPayload payload, String acceptEncoding, WebRequest request) {
+        MenuPayload.Encoding encoding = payload.negotiate(acceptEncoding);
+        String etag = MenuPayload.etag(baseEtag, encoding);
+        if (request.checkNotModified(etag)) {
+            return null; // 304 already written
+        }
+
+        byte[] body = payload.bytes(encoding);
+        // no-cache = "store, but revalidate every time", which is exactly what the ETag is for.
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length);
+        if (encoding != MenuPayload.Encoding.IDENTITY) {
+            res.header(HttpHeaders.CONTENT_ENCODING, encoding.token());
+        }
+        return res.body(body);
     }
 
 }
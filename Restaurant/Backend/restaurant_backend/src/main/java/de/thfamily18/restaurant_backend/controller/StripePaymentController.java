@@ -8,10 +8,13 @@ import de.thfamily18.restaurant_backend.dto.payment.RefundResponse;
 import de.thfamily18.restaurant_backend.service.StripePaymentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/payments/stripe")
@@ -20,6 +23,9 @@ public class StripePaymentController {
 
     private final StripePaymentService stripePaymentService;
 
+    @Value("${app.payment.statusWait.maxSeconds:25}")
+    private long maxWaitSeconds;
+
     @PostMapping(value = "/intents", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public CreateStripeIntentResponse createIntent(@RequestBody @Valid CreateStripeIntentRequest req) throws StripeException {
         return stripePaymentService.createPaymentIntent(req.orderId());
@@ -30,6 +36,20 @@ public class StripePaymentController {
         return stripePaymentService.getStatus(orderId);
     }
 
+    /**
+     * Long-poll: answers when the payment status differs from 'known' or after timeoutSeconds.
+     * Clients call it again with the returned status until it is final.
+     */
+    @GetMapping("/status/{orderId}/wait")
+    public CompletableFuture<PaymentStatusResponse> waitForStatus(
+            @PathVariable UUID orderId,
+            @RequestParam(defaultValue = "PENDING") String known,
+            @RequestParam(defaultValue = "25") long timeoutSeconds
+    ) {
+        Duration timeout = Duration.ofSeconds(Math.clamp(timeoutSeconds, 1, maxWaitSeconds));
+        return stripePaymentService.awaitStatusChange(orderId, known, timeout);
+    }
+
     @PostMapping("/refunds/{orderId}")
     public RefundResponse refund(
             @PathVariable UUID orderId
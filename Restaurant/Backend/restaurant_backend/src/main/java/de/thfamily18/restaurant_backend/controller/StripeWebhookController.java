@@ -1,6 +1,6 @@
 package de.thfamily18.restaurant_backend.controller;
 
-import de.thfamily18.restaurant_backend.service.StripeWebhookService;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookInbox;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -10,14 +10,15 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class StripeWebhookController {
 
-    private final StripeWebhookService webhookService;
+    private final StripeWebhookInbox webhookInbox;
 
     @PostMapping("/webhook")
     public ResponseEntity<String> handleWebhook(
-            @RequestBody String payload,                       // raw string
+            @RequestBody byte[] payload,                       // raw bytes (signature is over the exact body)
             @RequestHeader("Stripe-Signature") String sigHeader
     ) {
-        webhookService.handle(payload, sigHeader);
+        // Verify + append only; the order update runs asynchronously (StripeWebhookInboxProcessor).
+        webhookInbox.receive(payload, sigHeader);
         return ResponseEntity.ok("ok");
     }
 }
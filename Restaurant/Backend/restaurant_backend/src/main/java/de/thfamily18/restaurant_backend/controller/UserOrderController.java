@@ -1,6 +1,7 @@
 package de.thfamily18.restaurant_backend.controller;
 
 import de.thfamily18.restaurant_backend.dto.OrderResponse;
+import de.thfamily18.restaurant_backend.dto.OrderSliceResponse;
 import de.thfamily18.restaurant_backend.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -24,4 +25,14 @@ public class UserOrderController {
 
         return service.getOrdersForUser(auth.getName(), lang, page, size);
     }
+
+    @GetMapping("/scroll")
+    public OrderSliceResponse scroll(
+            Authentication auth,
+            @RequestHeader(name="Accept-Language", defaultValue="de") String lang,
+            @RequestParam(required=false) String after,
+            @RequestParam(defaultValue="20") int size) {
+
+        return service.scrollOrdersForUser(auth.getName(), null, after, size, lang);
+    }
 }
@@ -0,0 +1,14 @@
+package de.thfamily18.restaurant_backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated order list (newest first).
+ * Pass nextCursor as "after" to get the following page; it is null on the last page.
+ */
+public record OrderSliceResponse(
+        List<OrderResponse> items,
+        int size,
+        boolean hasNext,
+        String nextCursor
+) {}
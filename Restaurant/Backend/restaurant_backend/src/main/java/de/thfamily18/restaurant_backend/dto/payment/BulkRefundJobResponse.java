@@ -0,0 +1,31 @@
+package de.thfamily18.restaurant_backend.dto.payment;
+
+import de.thfamily18.restaurant_backend.entity.BulkRefundItemStatus;
+import de.thfamily18.restaurant_backend.entity.BulkRefundJobStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record BulkRefundJobResponse(
+        UUID jobId,
+        BulkRefundJobStatus status,
+        int total,
+        int succeeded,
+        int failed,
+        int pending,
+        LocalDateTime createdAt,
+        LocalDateTime finishedAt,
+        List<Item> items
+) {
+    public record Item(
+            UUID orderId,
+            BigDecimal amount,
+            BulkRefundItemStatus status,
+            String refundId,
+            RefundStatus refundStatus,
+            String error
+    ) {}
+}
@@ -0,0 +1,24 @@
+package de.thfamily18.restaurant_backend.dto.payment;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public record BulkRefundRequest(
+        @NotEmpty @Size(max = 500) List<@Valid @NotNull Item> items,
+        // optional, applied to every item: customer_request, duplicate, fraud, etc.
+        String reason
+) {
+    public record Item(
+            @NotNull UUID orderId,
+            // null = full refund
+            @DecimalMin(value = "0.01", message = "Refund amount must be > 0")
+            BigDecimal amount
+    ) {}
+}
@@ -0,0 +1,8 @@
+package de.thfamily18.restaurant_backend.entity;
+
+public enum BulkRefundItemStatus {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package de.thfamily18.restaurant_backend.entity;
+
+public enum BulkRefundJobStatus {
+    RUNNING,
+    DONE
+}
@@ -10,7 +10,12 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name="orders")
+@Table(name="orders", indexes = {
+        // keyset pagination (see V8__order_keyset_indexes.sql)
+        @Index(name = "idx_orders_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_orders_user_created_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_orders_status_created_id", columnList = "order_status, created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -60,6 +65,13 @@ public class Order {
     private String stripePaymentIntentId;
 
     private LocalDateTime paidAt;
+
+    // Stripe "created" (epoch seconds) of the newest webhook event applied, per Stripe object;
+    // older events of the same object are ignored.
+    @Column(name = "last_payment_intent_event_created")
+    private Long lastPaymentIntentEventCreated;
+    @Column(name = "last_charge_event_created")
+    private Long lastChargeEventCreated;
     // ===== Stripe Refund =====
     @Column(name = "stripe_refund_id", unique = true)
     private String stripeRefundId;
@@ -69,7 +81,6 @@ public class Order {
     @Column(precision = 12, scale = 2)
     private BigDecimal refundedAmount;
     @Enumerated(EnumType.STRING)
-    @Builder.Default
     private RefundStatus refundStatus;
 
     @PrePersist
@@ -9,6 +9,8 @@ public enum ErrorCode {
     UNAUTHORIZED(HttpStatus.UNAUTHORIZED, "error.unauthorized"),
     FORBIDDEN(HttpStatus.FORBIDDEN, "error.forbidden"),
     DUPLICATE_EMAIL(HttpStatus.CONFLICT, "error.duplicate_email"),
+    PAYMENT_PROVIDER_UNAVAILABLE(HttpStatus.SERVICE_UNAVAILABLE, "error.payment_unavailable"),
+    TOO_MANY_WAITERS(HttpStatus.SERVICE_UNAVAILABLE, "error.too_many_waiters"),
     INTERNAL_ERROR(HttpStatus.INTERNAL_SERVER_ERROR, "error.internal");
 
     private final HttpStatus status;
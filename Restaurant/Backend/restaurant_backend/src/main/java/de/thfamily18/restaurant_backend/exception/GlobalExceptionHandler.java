@@ -4,6 +4,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.MessageSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
@@ -71,6 +72,15 @@ public class GlobalExceptionHandler {
         return build(code, req, locale, null);
     }
 
+    @ExceptionHandler(TooManyWaitersException.class)
+    public ResponseEntity<ApiError> handleTooManyWaiters(TooManyWaitersException ex, HttpServletRequest req, Locale locale) {
+        log.warn("TOO_MANY_WAITERS: {}", ex.getMessage());
+        ResponseEntity<ApiError> res = build(ex.getErrorCode(), req, locale, null);
+        return ResponseEntity.status(res.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(res.getBody());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiError> handleBadRequest(IllegalArgumentException ex,
                                                      HttpServletRequest req, Locale locale) {
@@ -0,0 +1,10 @@
+package de.thfamily18.restaurant_backend.exception;
+
+/**
+ * Stripe is not called because it is failing (circuit open) or saturated (bulkhead full). Mapped to 503.
+ */
+public class PaymentProviderUnavailableException extends BusinessException {
+    public PaymentProviderUnavailableException(String message) {
+        super(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE, message);
+    }
+}
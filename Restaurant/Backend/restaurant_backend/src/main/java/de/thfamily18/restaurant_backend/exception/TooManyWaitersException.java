@@ -0,0 +1,17 @@
+package de.thfamily18.restaurant_backend.exception;
+
+import lombok.Getter;
+
+/**
+ * A long-poll cannot be parked because this node already holds the maximum number of waiters.
+ * Mapped to 503 with Retry-After, so clients back off instead of re-polling at once.
+ */
+@Getter
+public class TooManyWaitersException extends BusinessException {
+    private final long retryAfterSeconds;
+
+    public TooManyWaitersException(String message, long retryAfterSeconds) {
+        super(ErrorCode.TOO_MANY_WAITERS, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
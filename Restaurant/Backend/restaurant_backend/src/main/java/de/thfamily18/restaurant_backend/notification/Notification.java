@@ -7,9 +7,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+// Claim indexes are partial (only claimable states), see V13__notification_claim_partial_indexes.sql.
 @Table(name = "notifications",
         indexes = {
-                @Index(name="idx_notifications_status_next", columnList = "status,next_attempt_at"),
                 @Index(name="idx_notifications_order", columnList = "order_id")
         })
 @Getter @Setter
@@ -48,7 +48,7 @@ public class Notification {
     @Builder.Default
     private int attempts = 0;
 
-    @Column(name = "next_attempt_at")
+    @Column(name = "next_attempt_at", nullable = false)
     @Builder.Default
     private LocalDateTime nextAttemptAt = LocalDateTime.now();
 
@@ -71,6 +71,13 @@ public class Notification {
     @Column(name = "processing_started_at")
     private LocalDateTime processingStartedAt;
 
+    // Lease of the worker sending it (status SENDING); re-claimable by anyone once lease_until has passed.
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
 
     @Column(name = "dead_lettered_at")
     private LocalDateTime deadLetteredAt;
@@ -0,0 +1,9 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link NotificationService#enqueue} so the processor can send right after commit
+ * instead of waiting for its next poll.
+ */
+public record NotificationEnqueuedEvent(UUID notificationId, NotificationType type) {}
@@ -0,0 +1,8 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Queued (PENDING / FAILED) notifications of one lane, for the queue gauges.
+ */
+public record NotificationLaneDepth(NotificationType type, Long depth, LocalDateTime oldestAttemptAt) {}
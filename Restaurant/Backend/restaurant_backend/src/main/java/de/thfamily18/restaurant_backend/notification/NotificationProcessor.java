@@ -1,34 +1,85 @@
 package de.thfamily18.restaurant_backend.notification;
 
+import de.thfamily18.restaurant_backend.notification.mail.EmailMessage;
+import de.thfamily18.restaurant_backend.notification.mail.EmailResult;
 import de.thfamily18.restaurant_backend.notification.mail.EmailSender;
+import de.thfamily18.restaurant_backend.notification.mail.EmailThrottledException;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.net.InetAddress;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Sends queued notifications.
+ *
+ * Runs on its own single-thread scheduler (not the shared @Scheduled pool):
+ * - {@link #wakeUp()} (after an enqueue commits, locally or on another node via LISTEN/NOTIFY) drains the queue at once.
+ * - Otherwise it polls adaptively: pollMinMillis after work, doubling while the queue is empty up to pollMaxMillis,
+ *   but never sleeping past the next scheduled retry.
+ *
+ * The sends of a claimed batch run concurrently on virtual threads, at most
+ * app.notification.dispatch.concurrency.&lt;channel&gt; in flight per channel, each bounded by sendTimeoutMillis.
+ * If the EmailSender has a bulk API ({@link EmailSender#maxBatchSize()} &gt; 1), the emails of a batch go out in
+ * chunks of that size instead, one provider call (one permit, one timeout) per chunk, with per-recipient results.
+ * The batch is then finalized (SENT / FAILED / DEAD) in one transaction. Sends held back by a rate limit
+ * ({@link EmailThrottledException}, throttled results) are not attempts: they go back to PENDING after deferMillis.
+ *
+ * Claims are leases: each row records the claiming worker (claimed_by) and lease_until. A heartbeat renews the
+ * leases of the batch in flight every heartbeatMillis; a lease that ran out (worker dead or stuck) is re-claimable
+ * right away by any worker, and finalization only touches rows this worker still owns. Recovery after a crash
+ * therefore takes at most leaseMillis + heartbeatMillis, and a slow but alive send is never claimed twice.
+ *
+ * Every NotificationType is a lane, claimed separately in order of its weight (see {@link NotificationType}):
+ * a batch is shared out by weight with at least one slot per lane, and slots a lane leaves unused go to the
+ * busiest lanes by priority. The batch size adapts between app.notification.batch.min and max: it doubles while
+ * claims come back full (backlog) and is capped so that a batch takes about targetMillis at the observed send latency.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class NotificationProcessor {
 
-    private static final int BATCH_SIZE = 20;
-    /**
-     * If a notification stays in SENDING longer than this,
-     * we assume the worker crashed and allow re-claim.
-     */
-    private static final int SENDING_TIMEOUT_MINUTES = 5;
+    // Send latency smoothing for the adaptive batch size.
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
     private final NotificationRepository repo;
     private final TransactionTemplate tx;
     private final EmailSender emailSender;
@@ -40,20 +91,277 @@ public class NotificationProcessor {
     @Value("${notification.maxAttempts:10}")
     private int maxAttempts;
 
+    @Value("${app.notification.pollMinMillis:200}")
+    private long pollMinMillis;
+
+    @Value("${app.notification.batch.min:5}")
+    private int minBatchSize;
+
+    @Value("${app.notification.batch.max:100}")
+    private int maxBatchSize;
+
+    @Value("${app.notification.batch.initial:20}")
+    private int initialBatchSize;
+
+    // Aim for batches that finish in about this long (keeps priorities fresh and leases short).
+    @Value("${app.notification.batch.targetMillis:2000}")
+    private long targetBatchMillis;
+
+    // Upper bound for an idle sleep.
+    @Value("${app.notification.pollMaxMillis:30000}")
+    private long pollMaxMillis;
+
+    @Value("${app.notification.dispatch.sendTimeoutMillis:10000}")
+    private long sendTimeoutMillis;
+
+    // Retry delay for sends held back by a rate limit (no attempt counted).
+    @Value("${app.notification.dispatch.deferMillis:1000}")
+    private long deferMillis;
+
+    // Empty: <host>-<pid>-<random>, unique per process.
+    @Value("${app.notification.lease.workerId:}")
+    private String workerId;
+
+    @Value("${app.notification.lease.leaseMillis:60000}")
+    private long leaseMillis;
+
+    // Renews in-flight leases; also looks for expired leases of other workers.
+    @Value("${app.notification.lease.heartbeatMillis:15000}")
+    private long heartbeatMillis;
+
     // Micrometer
     private final MeterRegistry meterRegistry;
 
+    // Per-channel limits: app.notification.dispatch.concurrency.<channel> (default 8).
+    private final Environment env;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> next;
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+    private long idleDelayMillis;
+    private volatile boolean stopped;
+
+    private ScheduledExecutorService heartbeat;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong activeWorkers = new AtomicLong();
+
     private Counter sentCounter;
     private Counter failedCounter;
     private Counter deadCounter;
+    private Counter deferredCounter;
     private Timer sendTimer;
+    private Timer batchTimer;
+    private Counter timeoutCounter;
+    private Counter reclaimedCounter;
+    private Counter leaseLostCounter;
+    private Counter contentionCounter;
+    private Timer claimTimer;
+
+    private ExecutorService sendPool;
+    private final Map<NotificationChannel, Semaphore> channelLimits = new EnumMap<>(NotificationChannel.class);
+    private int maxChannelConcurrency;
+
+    private final Map<NotificationType, Integer> laneWeights = new EnumMap<>(NotificationType.class);
+    private List<NotificationType> lanesByPriority;
+    private final Map<NotificationType, AtomicLong> laneDepth = new EnumMap<>(NotificationType.class);
+    private final Map<NotificationType, AtomicLong> laneOldestSeconds = new EnumMap<>(NotificationType.class);
+
+    private volatile int batchSize;
+    private volatile double avgSendMillis;
 
     @PostConstruct
     void initMetrics() {
         this.sentCounter = meterRegistry.counter("notifications.sent");
         this.failedCounter = meterRegistry.counter("notifications.failed");
         this.deadCounter = meterRegistry.counter("notifications.dead");
+        this.deferredCounter = meterRegistry.counter("notifications.deferred");
         this.sendTimer = meterRegistry.timer("notifications.send.time");
+        // Claim to finalize of one batch.
+        this.batchTimer = meterRegistry.timer("notifications.batch.time");
+        this.timeoutCounter = meterRegistry.counter("notifications.send.timeouts");
+        // Rows taken over from a worker whose lease ran out.
+        this.reclaimedCounter = meterRegistry.counter("notifications.lease.reclaimed");
+        // In-flight rows this worker could not renew (its lease ran out and someone else took over).
+        this.leaseLostCounter = meterRegistry.counter("notifications.lease.lost");
+        // Short claims although due rows were left: they were locked by other workers (approximate).
+        this.contentionCounter = meterRegistry.counter("notifications.claim.contention");
+        this.claimTimer = meterRegistry.timer("notifications.claim.time");
+        Gauge.builder("notifications.lease.active_workers", activeWorkers, AtomicLong::get)
+                .description("Workers holding at least one live notification lease")
+                .register(meterRegistry);
+
+        if (heartbeatMillis * 2 > leaseMillis) {
+            throw new IllegalStateException("app.notification.lease.heartbeatMillis must be at most half of leaseMillis");
+        }
+        if (workerId == null || workerId.isBlank()) {
+            workerId = defaultWorkerId();
+        }
+        log.info("Notification worker id: {}", workerId);
+
+        this.sendPool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("notification-send-", 0).factory());
+        for (NotificationChannel ch : NotificationChannel.values()) {
+            int limit = env.getProperty("app.notification.dispatch.concurrency." + ch.name().toLowerCase(), Integer.class, 8);
+            channelLimits.put(ch, new Semaphore(limit));
+            maxChannelConcurrency = Math.max(maxChannelConcurrency, limit);
+        }
+
+        for (NotificationType type : NotificationType.values()) {
+            int weight = env.getProperty("app.notification.lanes.weight." + type.name().toLowerCase(),
+                    Integer.class, type.defaultWeight());
+            if (weight < 1) throw new IllegalStateException("Lane weight must be >= 1: " + type);
+            laneWeights.put(type, weight);
+
+            AtomicLong depth = new AtomicLong();
+            AtomicLong oldest = new AtomicLong();
+            laneDepth.put(type, depth);
+            laneOldestSeconds.put(type, oldest);
+            Gauge.builder("notifications.queue.depth", depth, AtomicLong::get)
+                    .description("Queued (PENDING / FAILED) notifications of the lane")
+                    .tag("lane", type.name())
+                    .register(meterRegistry);
+            Gauge.builder("notifications.queue.oldest.seconds", oldest, AtomicLong::get)
+                    .description("How long the oldest due notification of the lane has been waiting")
+                    .tag("lane", type.name())
+                    .register(meterRegistry);
+        }
+        lanesByPriority = Arrays.stream(NotificationType.values())
+                .sorted(Comparator.comparing((NotificationType t) -> laneWeights.get(t)).reversed())
+                .toList();
+        if (minBatchSize < 1 || minBatchSize > maxBatchSize) {
+            throw new IllegalStateException("app.notification.batch.min must be between 1 and batch.max");
+        }
+        batchSize = Math.clamp(initialBatchSize, minBatchSize, maxBatchSize);
+
+        this.idleDelayMillis = pollMinMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("notification-processor").daemon().factory());
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("notification-lease").daemon().factory());
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        String id = host + "-" + ProcessHandle.current().pid() + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt(0x10000));
+        return id.length() <= 64 ? id : id.substring(id.length() - 64);
+    }
+
+    String workerId() {
+        return workerId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        wakeUp();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stopped = true;
+        scheduler.shutdownNow();
+        heartbeat.shutdownNow();
+        sendPool.shutdownNow();
+    }
+
+    /**
+     * Renew the leases of the batch in flight, refresh the active-worker gauge and
+     * wake up if another worker's lease ran out.
+     */
+    void heartbeat() {
+        try {
+            LocalDateTime now = now();
+            if (!inFlight.isEmpty()) {
+                List<UUID> ids = List.copyOf(inFlight);
+                Integer renewed = tx.execute(s -> repo.renewLeases(ids, workerId, now.plusNanos(leaseMillis * 1_000_000)));
+                int lost = ids.size() - (renewed == null ? 0 : renewed);
+                if (lost > 0) {
+                    // Finished between copy and renew, or really lost; finalize skips rows we no longer own.
+                    leaseLostCounter.increment(lost);
+                    log.warn("Could not renew {} of {} notification leases. workerId={}", lost, ids.size(), workerId);
+                }
+            }
+            activeWorkers.set(repo.countActiveWorkers(now));
+            refreshLaneGauges(now);
+            if (repo.existsExpiredLease(now)) {
+                wakeUp();
+            }
+        } catch (Exception ex) {
+            log.warn("Notification lease heartbeat failed: {}", ex.toString());
+        }
+    }
+
+    private void refreshLaneGauges(LocalDateTime now) {
+        Map<NotificationType, NotificationLaneDepth> byType = new EnumMap<>(NotificationType.class);
+        for (NotificationLaneDepth d : repo.findLaneDepths(EnumSet.of(NotificationStatus.PENDING, NotificationStatus.FAILED))) {
+            byType.put(d.type(), d);
+        }
+        for (NotificationType type : NotificationType.values()) {
+            NotificationLaneDepth d = byType.get(type);
+            laneDepth.get(type).set(d == null ? 0 : d.depth());
+            laneOldestSeconds.get(type).set(d == null || d.oldestAttemptAt() == null
+                    ? 0 : Math.max(0, Duration.between(d.oldestAttemptAt(), now).toSeconds()));
+        }
+    }
+
+    /**
+     * Drain the queue as soon as possible. Cheap and safe to call from any thread, any number of times:
+     * a wake-up during a run makes that run go again right after it finishes.
+     */
+    public void wakeUp() {
+        wakeRequested.set(true);
+        synchronized (this) {
+            scheduleLocked(0);
+        }
+    }
+
+    private void scheduleLocked(long delayMillis) {
+        if (stopped) return;
+        if (next != null && !next.isDone()) {
+            // Already due sooner, or running right now (it checks wakeRequested when done).
+            if (next.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) return;
+            if (!next.cancel(false)) return;
+        }
+        next = scheduler.schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        wakeRequested.set(false);
+        long delay;
+        try {
+            delay = nextDelay(processDue());
+        } catch (Exception ex) {
+            log.error("Notification poll failed", ex);
+            delay = pollMaxMillis;
+        }
+        synchronized (this) {
+            next = null;
+            scheduleLocked(wakeRequested.get() ? 0 : delay);
+        }
+    }
+
+    /**
+     * Adaptive poll interval: back to the minimum after work, doubling while idle,
+     * capped by the next retry that is due.
+     */
+    long nextDelay(int processed) {
+        if (processed > 0) {
+            idleDelayMillis = pollMinMillis;
+            return pollMinMillis;
+        }
+        long delay = idleDelayMillis;
+        idleDelayMillis = Math.min(pollMaxMillis, idleDelayMillis * 2);
+
+        LocalDateTime nextAttempt = repo.findNextAttemptAt(
+                EnumSet.of(NotificationStatus.PENDING, NotificationStatus.FAILED));
+        if (nextAttempt != null) {
+            delay = Math.min(delay, Math.max(0, Duration.between(now(), nextAttempt).toMillis()));
+        }
+        return Math.max(delay, pollMinMillis);
     }
 
     private LocalDateTime now() {
@@ -61,58 +369,316 @@ public class NotificationProcessor {
     }
 
     /**
-     * Poll due notifications and process them.
+     * Claim and send until no due notifications are left.
      * The email sending is intentionally OUTSIDE transaction.
+     *
+     * @return number of notifications handled (sent or failed)
+     */
+    public int processDue() {
+        int processed = 0;
+        List<SendTask> tasks;
+        int size;
+        do {
+            size = batchSize;
+            Timer.Sample batch = Timer.start(meterRegistry);
+            tasks = claimBatch(size);
+            adaptBatchSize(tasks.size(), size);
+            if (tasks.isEmpty()) break;
+
+            tasks.forEach(t -> inFlight.add(t.notificationId()));
+            try {
+                finalizeBatch(sendAll(tasks));
+            } finally {
+                tasks.forEach(t -> inFlight.remove(t.notificationId()));
+            }
+            batch.stop(batchTimer);
+            processed += tasks.size();
+        } while (tasks.size() >= size);
+        return processed;
+    }
+
+    /**
+     * Full claim (backlog): double. Short claim: shrink to what was there.
+     * Either way at most what the channels send in about targetBatchMillis at the observed latency.
+     */
+    void adaptBatchSize(int claimed, int requested) {
+        int size = claimed >= requested ? requested * 2 : claimed;
+        double latency = avgSendMillis;
+        if (latency > 0) {
+            long byLatency = (long) (maxChannelConcurrency * targetBatchMillis / latency);
+            size = (int) Math.min(size, byLatency);
+        }
+        batchSize = Math.clamp(size, minBatchSize, maxBatchSize);
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Slots per lane for a batch of the given size, never more than size in total. Iterates by priority.
+     * Every lane first gets its guaranteed slot, the rest (size - lanes) is shared by weight, rounded down;
+     * slots lost to rounding go to backlogged lanes in the second claim pass.
+     * A batch smaller than the number of lanes only serves the highest-priority lanes.
      */
-    @Scheduled(fixedDelay = 5000)
-    public void processDue() {
-        List<SendTask> tasks = claimBatch();
-        if (tasks.isEmpty()) return;
+    Map<NotificationType, Integer> laneQuotas(int size) {
+        int totalWeight = laneWeights.values().stream().mapToInt(Integer::intValue).sum();
+        int shared = Math.max(0, size - lanesByPriority.size());
+        Map<NotificationType, Integer> quotas = new LinkedHashMap<>();
+        for (NotificationType type : lanesByPriority) {
+            if (quotas.size() >= size) break;
+            quotas.put(type, 1 + shared * laneWeights.get(type) / totalWeight);
+        }
+        return quotas;
+    }
+
+    private void recordSendLatency(long millis) {
+        // Racy read-modify-write is fine for a smoothing estimate.
+        double prev = avgSendMillis;
+        avgSendMillis = prev == 0 ? millis : prev + LATENCY_EWMA_ALPHA * (millis - prev);
+    }
 
+    /**
+     * Send a claimed batch concurrently and wait for every result (a timeout counts as failure).
+     */
+    private List<SendResult> sendAll(List<SendTask> tasks) {
+        int chunkSize = emailSender.maxBatchSize();
+        List<SendTask> bulk = new ArrayList<>();
+        List<List<SendTask>> units = new ArrayList<>();
+        List<Future<List<SendResult>>> futures = new ArrayList<>();
         for (SendTask t : tasks) {
-            Timer.Sample sample = Timer.start(meterRegistry);
+            if (chunkSize > 1 && t.channel() == NotificationChannel.EMAIL) {
+                bulk.add(t);
+                continue;
+            }
+            units.add(List.of(t));
+            futures.add(sendPool.submit(() -> List.of(sendOne(t))));
+        }
+        for (int from = 0; from < bulk.size(); from += chunkSize) {
+            List<SendTask> chunk = bulk.subList(from, Math.min(from + chunkSize, bulk.size()));
+            units.add(chunk);
+            futures.add(sendPool.submit(() -> sendChunk(chunk)));
+        }
 
+        List<SendResult> results = new ArrayList<>(tasks.size());
+        for (int i = 0; i < futures.size(); i++) {
             try {
-                // 1) Outside transaction: external side effect
-                emailSender.send(t.recipient(), subjectOf(t), bodyOf(t));
+                results.addAll(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Left in SENDING; re-claimed once the lease expires.
+                futures.forEach(f -> f.cancel(true));
+                return results;
+            } catch (ExecutionException e) {
+                for (SendTask t : units.get(i)) {
+                    results.add(new SendResult(t, (Exception) e.getCause()));
+                }
+            }
+        }
+        return results;
+    }
 
-                // 2) Tx #2: mark SENT
-                markSent(t.notificationId());
+    /**
+     * One bulk provider call for a chunk of emails; results are matched back by notification id.
+     */
+    private List<SendResult> sendChunk(List<SendTask> chunk) throws InterruptedException {
+        Semaphore limit = channelLimits.get(NotificationChannel.EMAIL);
+        limit.acquire();
 
-                sentCounter.increment();
-            } catch (Exception ex) {
-                log.error("Send notification failed id={} type={} to={}",
-                        t.notificationId(), t.type(), t.recipient(), ex);
+        List<EmailMessage> messages = new ArrayList<>(chunk.size());
+        for (SendTask t : chunk) {
+            messages.add(new EmailMessage(t.notificationId(), t.recipient(), t.type().name().toLowerCase(),
+                    Map.of(EmailMessage.SUBJECT, subjectOf(t), EmailMessage.BODY, bodyOf(t))));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long started = System.nanoTime();
+        Future<List<EmailResult>> call = sendPool.submit(() -> {
+            try {
+                return emailSender.sendBatch(messages);
+            } finally {
+                limit.release();
+                sample.stop(sendTimer);
+                // Per message, so the adaptive batch size sees the bulk throughput.
+                recordSendLatency((System.nanoTime() - started) / 1_000_000 / chunk.size());
+            }
+        });
+
+        Map<UUID, EmailResult> byId = new HashMap<>();
+        Exception failure = null;
+        try {
+            for (EmailResult r : call.get(sendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                byId.put(r.id(), r);
+            }
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            timeoutCounter.increment(chunk.size());
+            log.warn("Bulk send of {} notifications timed out", chunk.size());
+            failure = new TimeoutException("Send timed out after " + sendTimeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            log.error("Bulk send of {} notifications failed", chunk.size(), e.getCause());
+            failure = e.getCause() instanceof Exception ex ? ex : new RuntimeException(e.getCause());
+        }
+
+        List<SendResult> results = new ArrayList<>(chunk.size());
+        for (SendTask t : chunk) {
+            EmailResult r = byId.get(t.notificationId());
+            if (failure != null) {
+                results.add(new SendResult(t, failure));
+            } else if (r == null) {
+                results.add(new SendResult(t, new IllegalStateException("No result from email provider")));
+            } else if (r.ok()) {
+                results.add(new SendResult(t, null));
+            } else if (r.throttled()) {
+                results.add(SendResult.deferred(t, new EmailThrottledException(r.error())));
+            } else {
+                log.warn("Send notification failed id={} type={} to={}: {}",
+                        t.notificationId(), t.type(), t.recipient(), r.error());
+                results.add(new SendResult(t, new IllegalStateException(r.error())));
+            }
+        }
+        return results;
+    }
+
+    private SendResult sendOne(SendTask t) throws InterruptedException {
+        Semaphore limit = channelLimits.get(t.channel());
+        limit.acquire();
 
-                // Tx #2: mark FAILED or DEAD + backoff
-                markFailed(t.notificationId(), ex);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long started = System.nanoTime();
+        // The permit is held until the provider call returns, even after we stopped waiting for it,
+        // so a hanging provider cannot push more than the limit of calls in flight.
+        Future<?> call = sendPool.submit(() -> {
+            try {
+                // Outside transaction: external side effect
+                emailSender.send(t.recipient(), subjectOf(t), bodyOf(t));
             } finally {
+                limit.release();
                 sample.stop(sendTimer);
+                recordSendLatency((System.nanoTime() - started) / 1_000_000);
             }
+        });
+        try {
+            call.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            return new SendResult(t, null);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            timeoutCounter.increment();
+            log.warn("Send notification timed out id={} type={} to={}", t.notificationId(), t.type(), t.recipient());
+            // At-least-once: a late success is sent again on retry.
+            return new SendResult(t, new TimeoutException("Send timed out after " + sendTimeoutMillis + " ms"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EmailThrottledException throttled) {
+                return SendResult.deferred(t, throttled);
+            }
+            log.error("Send notification failed id={} type={} to={}",
+                    t.notificationId(), t.type(), t.recipient(), cause);
+            return new SendResult(t, cause instanceof Exception ex ? ex : new RuntimeException(cause));
         }
     }
 
     /**
-     * Tx #1: lock a batch and mark them as SENDING (PROCESSING).
+     * Tx #2: record the outcome of the whole batch at once, with one set-based statement per outcome
+     * (SENT / FAILED / DEAD). Attempts and backoff come from the claimed snapshot, no row is re-loaded.
+     * Rows whose lease was lost to another worker are left alone.
      */
-    private List<SendTask> claimBatch() {
+    void finalizeBatch(List<SendResult> results) {
         LocalDateTime now = now();
-        LocalDateTime sendingTimeout = now.minusMinutes(SENDING_TIMEOUT_MINUTES);
+        List<UUID> sent = new ArrayList<>();
+        List<SendResult> failed = new ArrayList<>();
+        List<SendResult> dead = new ArrayList<>();
+        List<UUID> deferred = new ArrayList<>();
+        for (SendResult r : results) {
+            if (r.error() == null) sent.add(r.task().notificationId());
+            else if (r.deferred()) deferred.add(r.task().notificationId());
+            else if (r.task().attempts() + 1 >= maxAttempts) dead.add(r);
+            else failed.add(r);
+        }
 
-        return tx.execute(status -> {
-            List<Notification> locked = repo.lockNextReady(now, sendingTimeout, BATCH_SIZE);
+        tx.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                repo.markSent(sent, workerId, now);
+            }
+            if (!failed.isEmpty()) {
+                repo.markFailed(
+                        failed.stream().map(r -> r.task().notificationId()).toArray(UUID[]::new),
+                        failed.stream().map(SendResult::errorMessage).toArray(String[]::new),
+                        failed.stream().map(r -> NotificationRetryPolicy.backoffSeconds(r.task().attempts() + 1)).toArray(Long[]::new),
+                        workerId,
+                        now);
+            }
+            if (!deferred.isEmpty()) {
+                repo.markDeferred(deferred, "Deferred: send rate limit", workerId,
+                        now.plusNanos(deferMillis * 1_000_000));
+            }
+            if (!dead.isEmpty()) {
+                repo.markDead(
+                        dead.stream().map(r -> r.task().notificationId()).toArray(UUID[]::new),
+                        dead.stream().map(SendResult::errorMessage).toArray(String[]::new),
+                        workerId,
+                        now);
+            }
+        });
+
+        sentCounter.increment(sent.size());
+        failedCounter.increment(failed.size());
+        deadCounter.increment(dead.size());
+        deferredCounter.increment(deferred.size());
+    }
+
+    /**
+     * Tx #1: lock a batch and lease it to this worker (SENDING, claimed_by, lease_until).
+     *
+     * 1. Each lane, by priority, claims its quota (index-driven, one query per lane).
+     * 2. Unused slots go to the lanes that filled their quota, by priority.
+     * 3. Expired leases fill up the rest.
+     */
+    private List<SendTask> claimBatch(int size) {
+        LocalDateTime now = now();
+        LocalDateTime leaseUntil = now.plusNanos(leaseMillis * 1_000_000);
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        List<SendTask> claimed = tx.execute(status -> {
+            List<Notification> locked = new ArrayList<>(size);
+            List<NotificationType> backlogged = new ArrayList<>();
+            for (Map.Entry<NotificationType, Integer> quota : laneQuotas(size).entrySet()) {
+                List<Notification> got = repo.lockDue(quota.getKey().name(), now, quota.getValue());
+                lease(got, now, leaseUntil);
+                locked.addAll(got);
+                if (got.size() >= quota.getValue()) backlogged.add(quota.getKey());
+            }
+
+            if (locked.size() < size && !backlogged.isEmpty()) {
+                // Rows claimed above are SENDING once flushed, so the second pass cannot return them again.
+                repo.flush();
+                for (NotificationType type : backlogged) {
+                    if (locked.size() >= size) break;
+                    List<Notification> got = repo.lockDue(type.name(), now, size - locked.size());
+                    lease(got, now, leaseUntil);
+                    locked.addAll(got);
+                }
+            }
+
+            if (locked.size() < size) {
+                List<Notification> expired = repo.lockExpiredLeases(now, size - locked.size());
+                if (!expired.isEmpty()) {
+                    reclaimedCounter.increment(expired.size());
+                    log.warn("Re-claiming {} notifications with expired leases, e.g. id={} of worker {}",
+                            expired.size(), expired.get(0).getId(), expired.get(0).getClaimedBy());
+                }
+                lease(expired, now, leaseUntil);
+                locked.addAll(expired);
+            }
             if (locked.isEmpty()) return List.of();
 
             List<SendTask> out = new ArrayList<>(locked.size());
             for (Notification n : locked) {
-                n.setStatus(NotificationStatus.SENDING);
-                n.setProcessingStartedAt(now());
-                n.setLastError(null);
-
+                meterRegistry.counter("notifications.claimed", "lane", n.getType().name()).increment();
                 out.add(new SendTask(
                         n.getId(),
                         n.getRecipient(),
                         n.getType(),
+                        n.getChannel(),
                         n.getOrderId(),
                         n.getPayload(),
                         n.getAttempts()
@@ -120,61 +686,22 @@ public class NotificationProcessor {
             }
             return out;
         });
-    }
+        sample.stop(claimTimer);
 
-    /**
-     * Tx #2: mark SENT.
-     * Keep attempts/nextAttemptAt as-is. Clear processingStartedAt.
-     */
-    void markSent(UUID id) {
-        tx.executeWithoutResult(status -> {
-            Notification n = repo.findById(id).orElse(null);
-            if (n == null) return;
-
-            repo.updateAfterSend(
-                    id,
-                    NotificationStatus.SENT,
-                    null,               // lastError
-                    now(),              // sentAt
-                    n.getNextAttemptAt(),// keep as-is
-                    n.getAttempts(),     // keep as-is
-                    null                 // clear processingStartedAt
-            );
-        });
+        if (claimed != null && claimed.size() < size && repo.existsDue(now)) {
+            contentionCounter.increment();
+        }
+        return claimed == null ? List.of() : claimed;
     }
 
-    /**
-     * Tx #2: mark FAILED, increment attempts, schedule retry.
-     * If attempts >= maxAttempts -> DEAD (dead-letter).
-     */
-    void markFailed(UUID id, Exception ex) {
-        tx.executeWithoutResult(status -> {
-            Notification n = repo.findById(id).orElse(null);
-            if (n == null) return;
-
-            int attempts = n.getAttempts() + 1;
-            String err = NotificationRetryPolicy.trim(ex.getMessage(), 500);
-
-            if (attempts >= maxAttempts) {
-                n.setAttempts(attempts);
-                n.setStatus(NotificationStatus.DEAD);
-                n.setLastError(err);
-                n.setProcessingStartedAt(null);
-                n.setNextAttemptAt(null);     // no more retries
-                n.setDeadLetteredAt(now());
-
-                deadCounter.increment();
-                return;
-            }
-
-            n.setAttempts(attempts);
-            n.setStatus(NotificationStatus.FAILED);
-            n.setLastError(err);
-            n.setProcessingStartedAt(null);
-            n.setNextAttemptAt(now().plusSeconds(NotificationRetryPolicy.backoffSeconds(attempts)));
-
-            failedCounter.increment();
-        });
+    private void lease(List<Notification> rows, LocalDateTime now, LocalDateTime leaseUntil) {
+        for (Notification n : rows) {
+            n.setStatus(NotificationStatus.SENDING);
+            n.setProcessingStartedAt(now);
+            n.setClaimedBy(workerId);
+            n.setLeaseUntil(leaseUntil);
+            n.setLastError(null);
+        }
     }
 
     private String subjectOf(SendTask t) {
@@ -197,8 +724,26 @@ public class NotificationProcessor {
             UUID notificationId,
             String recipient,
             NotificationType type,
+            NotificationChannel channel,
             UUID orderId,
             String payload,
             int attempts
     ) {}
+
+    /**
+     * deferred: not sent because of a rate limit; rescheduled without counting an attempt.
+     */
+    record SendResult(SendTask task, Exception error, boolean deferred) {
+        SendResult(SendTask task, Exception error) {
+            this(task, error, false);
+        }
+
+        static SendResult deferred(SendTask task, Exception error) {
+            return new SendResult(task, error, true);
+        }
+
+        String errorMessage() {
+            return NotificationRetryPolicy.trim(error.getMessage(), 500);
+        }
+    }
 }
\ No newline at end of file
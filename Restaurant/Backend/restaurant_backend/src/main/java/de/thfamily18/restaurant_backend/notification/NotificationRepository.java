@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.repository.query.Param;
@@ -11,10 +12,10 @@ import org.springframework.data.repository.query.Param;
 public interface NotificationRepository extends JpaRepository<Notification, UUID> {
 
     /**
-     * Lock a batch of due notifications using Postgres SKIP LOCKED.
+     * Lock due notifications (PENDING / FAILED, next_attempt_at reached) of one lane (type) using Postgres SKIP LOCKED.
      *
-     * Also re-claim notifications stuck in SENDING for too long (worker crashed).
-     * We treat them as "timed-out processing" and allow another worker to claim them.
+     * Served by the partial index idx_notifications_due_type (V15): only claimable rows are indexed and the scan
+     * runs in next_attempt_at order, so it stops after :limit rows however many SENT rows the table holds.
      *
      * NOTE: This is "at-least-once" delivery. Your email sending should be tolerant
      * to duplicates, or you should implement idempotency if needed later.
@@ -22,27 +23,193 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
     @Query(value = """
         select *
         from notifications
-        where
-            (
-                status in ('PENDING','FAILED')
-                and next_attempt_at <= :now
-            )
-            or
-            (
-                status = 'SENDING'
-                and processing_started_at is not null
-                and processing_started_at <= :sendingTimeout
-            )
-        order by created_at asc
+        where status in ('PENDING','FAILED')
+          and type = :type
+          and next_attempt_at <= :now
+        order by next_attempt_at
         limit :limit
         for update skip locked
         """, nativeQuery = true)
-    List<Notification> lockNextReady(
+    List<Notification> lockDue(
+            @Param("type") String type,
             @Param("now") LocalDateTime now,
-            @Param("sendingTimeout") LocalDateTime sendingTimeout,
             @Param("limit") int limit
     );
 
+    /**
+     * Re-claim notifications whose lease ran out (worker crashed or stuck), no matter which worker held them.
+     * Served by the partial index idx_notifications_lease (V14).
+     */
+    @Query(value = """
+        select *
+        from notifications
+        where status = 'SENDING'
+          and lease_until <= :now
+        order by lease_until
+        limit :limit
+        for update skip locked
+        """, nativeQuery = true)
+    List<Notification> lockExpiredLeases(
+            @Param("now") LocalDateTime now,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Heartbeat: extend the leases of rows this worker still owns.
+     *
+     * @return number of leases renewed (less than ids.size() if some were lost or already finalized)
+     */
+    @Modifying
+    @Query(value = """
+        update notifications
+           set lease_until = :leaseUntil
+         where id in (:ids)
+           and claimed_by = :workerId
+           and status = 'SENDING'
+        """, nativeQuery = true)
+    int renewLeases(
+            @Param("ids") Collection<UUID> ids,
+            @Param("workerId") String workerId,
+            @Param("leaseUntil") LocalDateTime leaseUntil
+    );
+
+    @Query(value = """
+        select count(distinct claimed_by)
+        from notifications
+        where status = 'SENDING'
+          and lease_until > :now
+        """, nativeQuery = true)
+    long countActiveWorkers(@Param("now") LocalDateTime now);
+
+    @Query(value = """
+        select exists(select 1 from notifications where status = 'SENDING' and lease_until <= :now)
+        """, nativeQuery = true)
+    boolean existsExpiredLease(@Param("now") LocalDateTime now);
+
+    @Query(value = """
+        select exists(select 1 from notifications where status in ('PENDING','FAILED') and next_attempt_at <= :now)
+        """, nativeQuery = true)
+    boolean existsDue(@Param("now") LocalDateTime now);
+
+    /**
+     * Queue depth and oldest scheduled attempt per lane.
+     */
+    @Query("""
+        select new de.thfamily18.restaurant_backend.notification.NotificationLaneDepth(n.type, count(n), min(n.nextAttemptAt))
+        from Notification n
+        where n.status in :statuses
+        group by n.type
+        """)
+    List<NotificationLaneDepth> findLaneDepths(@Param("statuses") Collection<NotificationStatus> statuses);
+
+    /**
+     * Earliest scheduled attempt among queued notifications (null if none).
+     * Lets an idle processor sleep exactly until the next retry is due.
+     */
+    @Query("select min(n.nextAttemptAt) from Notification n where n.status in :statuses")
+    LocalDateTime findNextAttemptAt(@Param("statuses") Collection<NotificationStatus> statuses);
+
+    /**
+     * Batch finalization, SENT outcomes: one statement for the whole batch.
+     * Only rows this worker still holds the lease of are touched (a re-claimed row belongs to another worker now).
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = """
+        update notifications
+           set status = 'SENT',
+               sent_at = :now,
+               last_error = null,
+               processing_started_at = null,
+               claimed_by = null,
+               lease_until = null
+         where id in (:ids)
+           and claimed_by = :workerId
+           and status = 'SENDING'
+        """, nativeQuery = true)
+    int markSent(
+            @Param("ids") Collection<UUID> ids,
+            @Param("workerId") String workerId,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Batch finalization, FAILED outcomes: per-row error and backoff passed as parallel arrays
+     * (computed from the claimed snapshot), applied with one UPDATE ... FROM unnest.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = """
+        update notifications n
+           set status = 'FAILED',
+               attempts = n.attempts + 1,
+               last_error = v.error,
+               next_attempt_at = cast(:now as timestamp) + v.backoff_seconds * interval '1 second',
+               processing_started_at = null,
+               claimed_by = null,
+               lease_until = null
+          from unnest(cast(:ids as uuid[]), cast(:errors as text[]), cast(:backoffSeconds as bigint[]))
+               as v(id, error, backoff_seconds)
+         where n.id = v.id
+           and n.claimed_by = :workerId
+           and n.status = 'SENDING'
+        """, nativeQuery = true)
+    int markFailed(
+            @Param("ids") UUID[] ids,
+            @Param("errors") String[] errors,
+            @Param("backoffSeconds") Long[] backoffSeconds,
+            @Param("workerId") String workerId,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Batch finalization, deferred outcomes (held back by a send rate limit, never handed to the provider):
+     * back to PENDING without counting an attempt.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = """
+        update notifications
+           set status = 'PENDING',
+               last_error = :error,
+               next_attempt_at = :nextAttemptAt,
+               processing_started_at = null,
+               claimed_by = null,
+               lease_until = null
+         where id in (:ids)
+           and claimed_by = :workerId
+           and status = 'SENDING'
+        """, nativeQuery = true)
+    int markDeferred(
+            @Param("ids") Collection<UUID> ids,
+            @Param("error") String error,
+            @Param("workerId") String workerId,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt
+    );
+
+    /**
+     * Batch finalization, DEAD outcomes (attempts exhausted): no further retries.
+     * next_attempt_at is left as it is (the column is NOT NULL); DEAD rows are never claimed.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = """
+        update notifications n
+           set status = 'DEAD',
+               attempts = n.attempts + 1,
+               last_error = v.error,
+               processing_started_at = null,
+               claimed_by = null,
+               lease_until = null,
+               dead_lettered_at = :now
+          from unnest(cast(:ids as uuid[]), cast(:errors as text[])) as v(id, error)
+         where n.id = v.id
+           and n.claimed_by = :workerId
+           and n.status = 'SENDING'
+        """, nativeQuery = true)
+    int markDead(
+            @Param("ids") UUID[] ids,
+            @Param("errors") String[] errors,
+            @Param("workerId") String workerId,
+            @Param("now") LocalDateTime now
+    );
+
     /**
      * Update notification state after sending attempt.
      *
@@ -1,6 +1,7 @@
 package de.thfamily18.restaurant_backend.notification;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import tools.jackson.databind.ObjectMapper;
 
@@ -14,10 +15,12 @@ public class NotificationService {
 
     private final NotificationRepository repo;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher events;
 
     /**
      * Enqueue a notification job (persist to DB).
      * This method MUST NOT send emails or call external services.
+     * The processor is woken up once the surrounding transaction commits (see NotificationWakeupListener).
      */
     public Notification enqueue(
             NotificationType type,
@@ -37,7 +40,9 @@ public class NotificationService {
                 .payload(toJson(vars))
                 .build();
 
-        return repo.save(n);
+        Notification saved = repo.save(n);
+        events.publishEvent(new NotificationEnqueuedEvent(saved.getId(), saved.getType()));
+        return saved;
     }
 
     public Notification enqueuePaymentSucceeded(UUID orderId, String email, Map<String, Object> vars) {
@@ -1,8 +1,23 @@
 package de.thfamily18.restaurant_backend.notification;
 
+/**
+ * Each type is its own claim lane in NotificationProcessor.
+ * The weight is the lane's share of a batch (override: app.notification.lanes.weight.&lt;type&gt;);
+ * every lane with due rows gets at least one slot per batch, so low weights are slower but never starve.
+ */
 public enum NotificationType {
-    ORDER_CREATED,
-    PAYMENT_SUCCEEDED,
-    REFUND_REQUESTED,
-    REFUND_SUCCEEDED
+    ORDER_CREATED(4),
+    PAYMENT_SUCCEEDED(8),
+    REFUND_REQUESTED(1),
+    REFUND_SUCCEEDED(2);
+
+    private final int defaultWeight;
+
+    NotificationType(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    public int defaultWeight() {
+        return defaultWeight;
+    }
 }
@@ -0,0 +1,149 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wakes the NotificationProcessor when a notification was enqueued, instead of letting it wait for its next poll.
+ *
+ * - Same node: after commit, via {@link NotificationEnqueuedEvent}.
+ * - Other nodes: NOTIFY after commit, on its own pooled connection and thread (never on the enqueuing transaction,
+ *   where a failed NOTIFY would abort it). Enqueues that arrive while a NOTIFY is pending share it.
+ *   Received by a LISTEN loop on one dedicated connection taken from the pool.
+ *
+ * If LISTEN is off or the database is not Postgres, the processor's adaptive polling still picks everything up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationWakeupListener {
+
+    static final String CHANNEL = "notifications_ready";
+
+    private final NotificationProcessor processor;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.notification.listen.enabled:true}")
+    private boolean listenEnabled;
+
+    // How long one getNotifications() call blocks; also bounds how fast shutdown is noticed.
+    @Value("${app.notification.listen.timeoutMillis:10000}")
+    private int timeoutMillis;
+
+    @Value("${app.notification.listen.reconnectMillis:5000}")
+    private long reconnectMillis;
+
+    private volatile boolean running;
+    private Thread listenThread;
+
+    private ExecutorService notifier;
+    private final AtomicBoolean notifyPending = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        notifier = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("notification-notify").factory());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void notifyOtherNodes(NotificationEnqueuedEvent event) {
+        if (!listenEnabled) return;
+        if (notifyPending.compareAndSet(false, true)) {
+            notifier.execute(this::sendNotify);
+        }
+    }
+
+    private void sendNotify() {
+        // Cleared first: an enqueue committed from now on gets its own NOTIFY.
+        notifyPending.set(false);
+        try {
+            jdbc.execute("NOTIFY " + CHANNEL);
+        } catch (Exception ex) {
+            // The enqueue is committed already; other nodes fall back to polling.
+            log.warn("NOTIFY {} failed: {}", CHANNEL, ex.toString());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void wakeLocal(NotificationEnqueuedEvent event) {
+        wakeups("local").increment();
+        processor.wakeUp();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!listenEnabled) return;
+        running = true;
+        listenThread = Thread.ofPlatform().name("notification-listen").daemon().start(this::listenLoop);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        if (notifier != null) notifier.shutdownNow();
+        if (listenThread != null) listenThread.interrupt();
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection conn = dataSource.getConnection()) {
+                if (!conn.isWrapperFor(PGConnection.class)) {
+                    log.info("Database is not Postgres, LISTEN {} disabled (polling only)", CHANNEL);
+                    return;
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                // LISTEN only takes effect once committed.
+                if (!conn.getAutoCommit()) conn.commit();
+                log.info("Listening on {}", CHANNEL);
+
+                // Enqueued while we were not listening: catch up.
+                processor.wakeUp();
+
+                while (running) {
+                    PGNotification[] received = pg.getNotifications(timeoutMillis);
+                    if (received != null && received.length > 0) {
+                        wakeups("notify").increment();
+                        processor.wakeUp();
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) return;
+                log.warn("LISTEN {} connection lost, reconnecting in {} ms: {}", CHANNEL, reconnectMillis, ex.toString());
+                try {
+                    Thread.sleep(reconnectMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Counter wakeups(String source) {
+        return meterRegistry.counter("notifications.wakeups", "source", source);
+    }
+}
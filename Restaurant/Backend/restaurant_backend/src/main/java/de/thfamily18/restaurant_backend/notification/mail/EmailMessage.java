@@ -0,0 +1,22 @@
+package de.thfamily18.restaurant_backend.notification.mail;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One email of a batch. Messages with the same template can go out in one bulk call;
+ * {@code id} (the notification id) is how the per-recipient result finds its way back.
+ */
+public record EmailMessage(UUID id, String to, String template, Map<String, String> templateData) {
+
+    public static final String SUBJECT = "subject";
+    public static final String BODY = "body";
+
+    public String subject() {
+        return templateData.get(SUBJECT);
+    }
+
+    public String body() {
+        return templateData.get(BODY);
+    }
+}
@@ -0,0 +1,26 @@
+package de.thfamily18.restaurant_backend.notification.mail;
+
+import java.util.UUID;
+
+/**
+ * Outcome for one message of a batch: providerMessageId on success, error otherwise.
+ * throttled: not sent because of a send rate limit; retry later without counting it as a failed attempt.
+ */
+public record EmailResult(UUID id, String providerMessageId, String error, boolean throttled) {
+
+    public static EmailResult sent(UUID id, String providerMessageId) {
+        return new EmailResult(id, providerMessageId, null, false);
+    }
+
+    public static EmailResult failed(UUID id, String error) {
+        return new EmailResult(id, null, error, false);
+    }
+
+    public static EmailResult throttled(UUID id, String error) {
+        return new EmailResult(id, null, error, true);
+    }
+
+    public boolean ok() {
+        return error == null;
+    }
+}
@@ -1,5 +1,36 @@
 package de.thfamily18.restaurant_backend.notification.mail;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface EmailSender {
     void send(String to, String subject, String body);
+
+    /**
+     * How many messages one {@link #sendBatch} call can take. 1 (or less) means no bulk API:
+     * callers send one by one.
+     */
+    default int maxBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Sends several messages and returns one result per message (any order). A failing message must not fail the others.
+     * Messages held back by a rate limit are reported as {@link EmailResult#throttled()}.
+     * The default sends them one by one.
+     */
+    default List<EmailResult> sendBatch(List<EmailMessage> messages) {
+        List<EmailResult> results = new ArrayList<>(messages.size());
+        for (EmailMessage m : messages) {
+            try {
+                send(m.to(), m.subject(), m.body());
+                results.add(EmailResult.sent(m.id(), null));
+            } catch (EmailThrottledException ex) {
+                results.add(EmailResult.throttled(m.id(), ex.getMessage()));
+            } catch (RuntimeException ex) {
+                results.add(EmailResult.failed(m.id(), String.valueOf(ex.getMessage())));
+            }
+        }
+        return results;
+    }
 }
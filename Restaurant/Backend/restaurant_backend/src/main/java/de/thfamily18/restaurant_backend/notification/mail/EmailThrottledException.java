@@ -0,0 +1,11 @@
+package de.thfamily18.restaurant_backend.notification.mail;
+
+/**
+ * The message was not handed to the provider because of a send rate limit (ours or the provider's).
+ * Not a delivery failure: callers reschedule it without counting an attempt.
+ */
+public class EmailThrottledException extends RuntimeException {
+    public EmailThrottledException(String message) {
+        super(message);
+    }
+}
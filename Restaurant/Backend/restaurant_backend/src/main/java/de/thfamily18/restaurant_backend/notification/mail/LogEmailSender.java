@@ -1,11 +1,11 @@
 package de.thfamily18.restaurant_backend.notification.mail;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Primary;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Slf4j
 @Component
-@Primary
+@ConditionalOnProperty(name = "app.mail.provider", havingValue = "log", matchIfMissing = true)
 public class LogEmailSender implements EmailSender {
     @Override
     public void send(String to, String subject, String body) {
@@ -1,13 +1,238 @@
 package de.thfamily18.restaurant_backend.notification.mail;
 
-
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.BulkEmailDestination;
+import software.amazon.awssdk.services.ses.model.BulkEmailDestinationStatus;
+import software.amazon.awssdk.services.ses.model.BulkEmailStatus;
+import software.amazon.awssdk.services.ses.model.Destination;
+import software.amazon.awssdk.services.ses.model.SendBulkTemplatedEmailRequest;
+import software.amazon.awssdk.services.ses.model.SendBulkTemplatedEmailResponse;
+import software.amazon.awssdk.services.ses.model.SesException;
+import software.amazon.awssdk.services.ses.model.TemplateDoesNotExistException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Amazon SES (v1 API).
+ *
+ * - {@link #send}: one SendEmail.
+ * - {@link #sendBatch}: messages are grouped by template and go out as SendBulkTemplatedEmail, up to
+ *   {@link #MAX_DESTINATIONS} recipients per call; SES answers with one status per destination, in order,
+ *   which is mapped back to the message id.
+ *
+ * SES counts its send quota per recipient, so every recipient takes one token from a bucket refilled at
+ * this node's share of the account rate, app.mail.ses.maxSendRate / app.mail.ses.nodes per second: the quota is
+ * account-wide, the bucket is not shared between nodes. A call that cannot get its tokens within maxWaitMillis reports its messages
+ * as throttled (as does an SES "Throttling" error), which the caller reschedules without counting an attempt.
+ *
+ * The SES template is templatePrefix + message template. With createTemplates (LocalStack, dev accounts) a missing
+ * template is created as subject {{subject}} / text {{body}}; otherwise templates are managed outside the app.
+ */
+@Slf4j
 @Component
+@ConditionalOnProperty(name = "app.mail.provider", havingValue = "ses")
+@RequiredArgsConstructor
 public class SesEmailSender implements EmailSender {
+
+    // SendBulkTemplatedEmail limit.
+    static final int MAX_DESTINATIONS = 50;
+
+    // SES error code for "Maximum sending rate exceeded".
+    private static final String THROTTLING = "Throttling";
+
+    private final SesClient ses;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.mail.from}")
+    private String from;
+
+    // Account send rate (recipients per second), see SES GetSendQuota.
+    @Value("${app.mail.ses.maxSendRate:14}")
+    private int maxSendRate;
+
+    // Nodes sending email (NotificationProcessor workers); each one uses maxSendRate / nodes.
+    @Value("${app.mail.ses.nodes:1}")
+    private int nodes;
+
+    @Value("${app.mail.ses.maxWaitMillis:5000}")
+    private long maxWaitMillis;
+
+    @Value("${app.mail.ses.templatePrefix:restaurant-}")
+    private String templatePrefix;
+
+    @Value("${app.mail.ses.createTemplates:false}")
+    private boolean createTemplates;
+
+    private Bucket sendRate;
+    // This node's share of maxSendRate, at least 1.
+    private int nodeSendRate;
+    private final Set<String> knownTemplates = ConcurrentHashMap.newKeySet();
+
+    private Timer callTimer;
+    private Counter throttledCounter;
+
+    @PostConstruct
+    void init() {
+        if (maxSendRate < 1) throw new IllegalStateException("app.mail.ses.maxSendRate must be >= 1");
+        if (nodes < 1) throw new IllegalStateException("app.mail.ses.nodes must be >= 1");
+        nodeSendRate = Math.max(1, maxSendRate / nodes);
+        if (maxSendRate / nodes < 1) {
+            log.warn("app.mail.ses.maxSendRate {} is below app.mail.ses.nodes {}, using 1/s per node", maxSendRate, nodes);
+        }
+        sendRate = Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(nodeSendRate)
+                        .refillGreedy(nodeSendRate, Duration.ofSeconds(1))
+                        .build())
+                .build();
+        callTimer = Timer.builder("mail.ses.call.time")
+                .description("Duration of one SES send call (single or bulk)")
+                .register(meterRegistry);
+        throttledCounter = Counter.builder("mail.ses.throttled")
+                .description("Messages failed locally because the send rate bucket stayed empty")
+                .register(meterRegistry);
+    }
+
     @Override
     public void send(String to, String subject, String body) {
-        // TODO: implement Amazon SES
-        throw new UnsupportedOperationException("SES sender not implemented yet");
+        if (!acquire(1)) {
+            throttledCounter.increment();
+            throw new EmailThrottledException("SES send rate exceeded, no token within " + maxWaitMillis + " ms");
+        }
+        callTimer.record(() -> ses.sendEmail(r -> r
+                .source(from)
+                .destination(d -> d.toAddresses(to))
+                .message(m -> m
+                        .subject(c -> c.data(subject).charset("UTF-8"))
+                        .body(b -> b.text(c -> c.data(body).charset("UTF-8"))))));
+    }
+
+    @Override
+    public int maxBatchSize() {
+        // A call never needs more tokens than the bucket holds.
+        return Math.min(MAX_DESTINATIONS, nodeSendRate);
+    }
+
+    @Override
+    public List<EmailResult> sendBatch(List<EmailMessage> messages) {
+        Map<String, List<EmailMessage>> byTemplate = new LinkedHashMap<>();
+        for (EmailMessage m : messages) {
+            byTemplate.computeIfAbsent(m.template(), t -> new ArrayList<>()).add(m);
+        }
+
+        List<EmailResult> results = new ArrayList<>(messages.size());
+        int chunkSize = maxBatchSize();
+        for (Map.Entry<String, List<EmailMessage>> e : byTemplate.entrySet()) {
+            List<EmailMessage> group = e.getValue();
+            for (int from = 0; from < group.size(); from += chunkSize) {
+                results.addAll(sendBulk(e.getKey(), group.subList(from, Math.min(from + chunkSize, group.size()))));
+            }
+        }
+        return results;
+    }
+
+    private List<EmailResult> sendBulk(String template, List<EmailMessage> chunk) {
+        if (!acquire(chunk.size())) {
+            throttledCounter.increment(chunk.size());
+            return chunk.stream()
+                    .map(m -> EmailResult.throttled(m.id(), "SES send rate exceeded, no tokens within " + maxWaitMillis + " ms"))
+                    .toList();
+        }
+        String sesTemplate = templatePrefix + template;
+        try {
+            ensureTemplate(sesTemplate);
+            List<BulkEmailDestination> destinations = new ArrayList<>(chunk.size());
+            for (EmailMessage m : chunk) {
+                destinations.add(BulkEmailDestination.builder()
+                        .destination(Destination.builder().toAddresses(m.to()).build())
+                        .replacementTemplateData(objectMapper.writeValueAsString(m.templateData()))
+                        .build());
+            }
+            SendBulkTemplatedEmailRequest req = SendBulkTemplatedEmailRequest.builder()
+                    .source(from)
+                    .template(sesTemplate)
+                    .defaultTemplateData("{}")
+                    .destinations(destinations)
+                    .build();
+            SendBulkTemplatedEmailResponse res = callTimer.record(() -> ses.sendBulkTemplatedEmail(req));
+            return mapStatuses(chunk, res.status());
+        } catch (SesException ex) {
+            if (!THROTTLING.equals(ex.awsErrorDetails() == null ? null : ex.awsErrorDetails().errorCode())) {
+                log.warn("SES bulk send failed template={} recipients={}: {}", sesTemplate, chunk.size(), ex.toString());
+                return failAll(chunk, String.valueOf(ex.getMessage()));
+            }
+            throttledCounter.increment(chunk.size());
+            log.warn("SES throttled a bulk send of {} recipients: {}", chunk.size(), ex.toString());
+            return chunk.stream().map(m -> EmailResult.throttled(m.id(), String.valueOf(ex.getMessage()))).toList();
+        } catch (RuntimeException ex) {
+            log.warn("SES bulk send failed template={} recipients={}: {}", sesTemplate, chunk.size(), ex.toString());
+            return failAll(chunk, String.valueOf(ex.getMessage()));
+        }
+    }
+
+    /**
+     * SES returns the statuses in destination order.
+     */
+    private static List<EmailResult> mapStatuses(List<EmailMessage> chunk, List<BulkEmailDestinationStatus> statuses) {
+        List<EmailResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            EmailMessage m = chunk.get(i);
+            BulkEmailDestinationStatus s = i < statuses.size() ? statuses.get(i) : null;
+            if (s == null) {
+                results.add(EmailResult.failed(m.id(), "No status returned by SES"));
+            } else if (s.status() == BulkEmailStatus.SUCCESS) {
+                results.add(EmailResult.sent(m.id(), s.messageId()));
+            } else {
+                results.add(EmailResult.failed(m.id(), s.statusAsString() + (s.error() != null ? ": " + s.error() : "")));
+            }
+        }
+        return results;
+    }
+
+    private static List<EmailResult> failAll(List<EmailMessage> chunk, String error) {
+        return chunk.stream().map(m -> EmailResult.failed(m.id(), error)).toList();
+    }
+
+    private boolean acquire(int tokens) {
+        if (maxWaitMillis <= 0) return sendRate.tryConsume(tokens);
+        try {
+            return sendRate.asBlocking().tryConsume(tokens, Duration.ofMillis(maxWaitMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void ensureTemplate(String name) {
+        if (!createTemplates || knownTemplates.contains(name)) return;
+        try {
+            ses.getTemplate(r -> r.templateName(name));
+        } catch (TemplateDoesNotExistException ex) {
+            log.info("Creating SES template {}", name);
+            ses.createTemplate(r -> r.template(t -> t
+                    .templateName(name)
+                    .subjectPart("{{subject}}")
+                    .textPart("{{body}}")));
+        }
+        knownTemplates.add(name);
     }
-}
\ No newline at end of file
+}
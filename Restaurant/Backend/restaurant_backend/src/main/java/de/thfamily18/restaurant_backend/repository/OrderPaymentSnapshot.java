@@ -0,0 +1,19 @@
+package de.thfamily18.restaurant_backend.repository;
+
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Payment columns of an order, read in bulk by StripeReconciler without loading entities.
+ */
+public interface OrderPaymentSnapshot {
+    UUID getId();
+    String getStripePaymentIntentId();
+    PaymentStatus getPaymentStatus();
+    String getStripeRefundId();
+    RefundStatus getRefundStatus();
+    BigDecimal getTotalPrice();
+}
@@ -3,27 +3,178 @@ package de.thfamily18.restaurant_backend.repository;
 import de.thfamily18.restaurant_backend.entity.Order;
 import de.thfamily18.restaurant_backend.entity.OrderStatus;
 import de.thfamily18.restaurant_backend.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface OrderRepository extends JpaRepository<Order, UUID> {
     Optional<Order> findByStripeRefundId(String stripeRefundId);
     Optional<Order> findByStripePaymentIntentId(String stripePaymentIntentId);
+
+    // Row lock for webhook updates: serializes writers of one order without a global lock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.stripePaymentIntentId = :paymentIntentId")
+    Optional<Order> findByStripePaymentIntentIdForUpdate(@Param("paymentIntentId") String paymentIntentId);
+
+    // ===== Writes after a Stripe call =====
+    // Stripe is called outside of any transaction; these single-statement updates store the result
+    // without overwriting what a webhook committed in the meantime.
+
+    @Transactional
+    @Modifying
+    @Query("""
+        update Order o set o.stripePaymentIntentId = :paymentIntentId
+        where o.id = :id and o.stripePaymentIntentId is null
+    """)
+    int attachPaymentIntent(@Param("id") UUID id, @Param("paymentIntentId") String paymentIntentId);
+
+    @Transactional
+    @Modifying
+    @Query("update Order o set o.refundRequestedAt = :at where o.id = :id")
+    int markRefundRequested(@Param("id") UUID id, @Param("at") LocalDateTime at);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        update Order o set o.stripeRefundId = :refundId, o.refundRequestedAt = :at
+        where o.id = :id and o.stripeRefundId is null
+    """)
+    int recordRefund(@Param("id") UUID id, @Param("refundId") String refundId, @Param("at") LocalDateTime at);
+
+    // ===== Payment TTL expiry (PaymentExpirySweeper) =====
+
+    /**
+     * Lock a batch of unpaid Stripe orders created before the cutoff, oldest first.
+     * SKIP LOCKED lets several nodes sweep concurrently and never blocks on a webhook holding the row.
+     */
+    @Query(value = """
+        select o.* from orders o
+        where o.payment_status = 'PENDING'
+          and o.payment_method = 'STRIPE'
+          and o.order_status = 'NEW'
+          and o.created_at < :cutoff
+        order by o.created_at asc
+        limit :limit
+        for update skip locked
+        """, nativeQuery = true)
+    List<Order> lockExpiredPending(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Query(value = """
+        select count(*) from orders o
+        where o.payment_status = 'PENDING'
+          and o.payment_method = 'STRIPE'
+          and o.order_status = 'NEW'
+          and o.created_at < :cutoff
+        """, nativeQuery = true)
+    long countExpiredPending(@Param("cutoff") LocalDateTime cutoff);
+
+    // The customer paid while the order was being expired: give it back to the kitchen.
+    @Transactional
+    @Modifying
+    @Query("""
+        update Order o set o.orderStatus = de.thfamily18.restaurant_backend.entity.OrderStatus.NEW
+        where o.id = :id and o.orderStatus = de.thfamily18.restaurant_backend.entity.OrderStatus.CANCELLED
+    """)
+    int reopenExpired(@Param("id") UUID id);
+
+    // ===== Stripe reconciliation (StripeReconciler) =====
+
+    // One query per page of Stripe objects; orders are matched by intent id or by metadata.orderId.
+    @Query("""
+        select o.id as id, o.stripePaymentIntentId as stripePaymentIntentId, o.paymentStatus as paymentStatus,
+               o.stripeRefundId as stripeRefundId, o.refundStatus as refundStatus, o.totalPrice as totalPrice
+        from Order o
+        where o.stripePaymentIntentId in :paymentIntentIds or o.id in :orderIds
+    """)
+    List<OrderPaymentSnapshot> findPaymentSnapshots(@Param("paymentIntentIds") Collection<String> paymentIntentIds,
+                                                    @Param("orderIds") Collection<UUID> orderIds);
     Page<Order> findAllByOrderStatus(OrderStatus status, Pageable pageable);
     Page<Order> findAllByUser_Id(UUID userId, Pageable pageable);
     Page<Order> findAllByUser(User user, Pageable pageable);
     Page<Order> findAllByUserEmail(String email, Pageable pageable);
     Page<Order> findAllByUserEmailAndOrderStatus(String email, OrderStatus status, Pageable pageable);
-//    @EntityGraph(attributePaths = {"items", "items.product"})
-//    Page<Order> findAllByUser_Id(UUID userId, Pageable pageable);
-//
-//    @EntityGraph(attributePaths = {"items", "items.product"})
-//    Page<Order> findAllByOrderStatus(OrderStatus status, Pageable pageable);
-//
-//    @Override
-//    @EntityGraph(attributePaths = {"items", "items.product"})
-//    Page<Order> findAll(Pageable pageable);
+
+    /**
+     * Second step of the paged read path: load items + products for one page of orders in a single query.
+     *
+     * Fetch-joining a collection directly in the paged query would make Hibernate paginate in memory,
+     * so list endpoints page over orders first (page query + count) and then call this with the page's ids.
+     */
+    @Query("""
+        select distinct o
+        from Order o
+        left join fetch o.items i
+        left join fetch i.product
+        where o.id in :ids
+    """)
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("""
+        select o
+        from Order o
+        left join fetch o.items i
+        left join fetch i.product
+        where o.id = :id
+    """)
+    Optional<Order> findWithItemsById(@Param("id") UUID id);
+
+    // ===== Keyset pagination (createdAt desc, id desc) =====
+    // Each query is a range scan on a matching (…, created_at, id) index, no offset and no count(*):
+    // the cursor is a row-value comparison, which Postgres uses as the start of a backward index scan.
+    // (The equivalent "a < x or (a = x and b < y)" is only a filter and reads every newer row first.)
+    // Items/products are loaded afterwards with findAllWithItemsByIdIn.
+
+    @Query("""
+        select o from Order o
+        where (o.createdAt, o.id) < (:createdAt, :id)
+        order by o.createdAt desc, o.id desc
+    """)
+    List<Order> findNextPage(@Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id, Limit limit);
+
+    @Query("""
+        select o from Order o
+        where o.orderStatus = :status
+          and (o.createdAt, o.id) < (:createdAt, :id)
+        order by o.createdAt desc, o.id desc
+    """)
+    List<Order> findNextPageByStatus(@Param("status") OrderStatus status,
+                                     @Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id,
+                                     Limit limit);
+
+    @Query("""
+        select o from Order o
+        where o.user.id = :userId
+          and (o.createdAt, o.id) < (:createdAt, :id)
+        order by o.createdAt desc, o.id desc
+    """)
+    List<Order> findNextPageByUser(@Param("userId") UUID userId,
+                                   @Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id,
+                                   Limit limit);
+
+    @Query("""
+        select o from Order o
+        where o.user.id = :userId and o.orderStatus = :status
+          and (o.createdAt, o.id) < (:createdAt, :id)
+        order by o.createdAt desc, o.id desc
+    """)
+    List<Order> findNextPageByUserAndStatus(@Param("userId") UUID userId, @Param("status") OrderStatus status,
+                                            @Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id,
+                                            Limit limit);
 }
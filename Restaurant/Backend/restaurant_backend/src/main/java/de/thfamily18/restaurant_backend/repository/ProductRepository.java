@@ -2,6 +2,7 @@ package de.thfamily18.restaurant_backend.repository;
 
 import de.thfamily18.restaurant_backend.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -29,4 +30,12 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
           )
     """)
     boolean existsDuplicate(String category, String nameDe, String nameEn, UUID excludeId);
+
+    // catalog_version (V18): bumped by every product write, polled by CatalogSnapshotCache on each node.
+    @Modifying
+    @Query(value = "update catalog_version set version = version + 1 where id = 1", nativeQuery = true)
+    int bumpCatalogVersion();
+
+    @Query(value = "select version from catalog_version where id = 1", nativeQuery = true)
+    long findCatalogVersion();
 }
@@ -0,0 +1,43 @@
+package de.thfamily18.restaurant_backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in an order list sorted by (createdAt desc, id desc).
+ *
+ * Clients only see the opaque, URL-safe token produced by {@link #encode()};
+ * the format may change without breaking them.
+ */
+public record OrderCursor(LocalDateTime createdAt, UUID id) {
+
+    /**
+     * Position before the newest order: every real (createdAt, id) sorts after it.
+     * Lets the first page use the same index range scan as the following ones.
+     */
+    public static final OrderCursor START =
+            new OrderCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), new UUID(0, 0));
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token value of the "after" request parameter, null/blank for the first page
+     */
+    public static OrderCursor decode(String token) {
+        if (token == null || token.isBlank()) return START;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) throw new IllegalArgumentException("Invalid cursor");
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -4,14 +4,19 @@ import de.thfamily18.restaurant_backend.dto.CreateOrderRequest;
 import de.thfamily18.restaurant_backend.dto.CreateOrderItemRequest;
 import de.thfamily18.restaurant_backend.dto.OrderItemResponse;
 import de.thfamily18.restaurant_backend.dto.OrderResponse;
+import de.thfamily18.restaurant_backend.dto.OrderSliceResponse;
 import de.thfamily18.restaurant_backend.entity.*;
 import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
 import de.thfamily18.restaurant_backend.repository.OrderRepository;
 import de.thfamily18.restaurant_backend.repository.ProductRepository;
 import de.thfamily18.restaurant_backend.repository.UserRepository;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -22,8 +27,12 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -33,23 +42,31 @@ public class OrderService {
     private final OrderRepository orderRepo;
     private final ProductRepository productRepo;
     private final UserRepository userRepo;
+    private final ApplicationEventPublisher events;
+
+    // Upper bound for every list endpoint (offset and cursor based)
+    @Value("${app.orders.maxPageSize:100}")
+    private int maxPageSize;
 
     // ===== Public / User =====
     @Transactional
     public OrderResponse createGuestOrder(CreateOrderRequest req, String langHeader) {
         String lang = normalizeLang(langHeader);
-        Order order = buildOrder(null, req);
-        return toResponse(orderRepo.save(order), lang);
+        Order order = orderRepo.save(buildOrder(null, req));
+        events.publishEvent(OrderFeedEvent.of(OrderFeedEvent.Type.ORDER_CREATED, order));
+        return toResponse(order, lang);
     }
 
+    @Transactional
     public OrderResponse createUserOrder(String email, CreateOrderRequest req, String langHeader) {
         String lang = normalizeLang(langHeader);
 
         User u = userRepo.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        Order order = buildOrder(u, req);
-        return toResponse(orderRepo.save(order), lang);
+        Order order = orderRepo.save(buildOrder(u, req));
+        events.publishEvent(OrderFeedEvent.of(OrderFeedEvent.Type.ORDER_CREATED, order));
+        return toResponse(order, lang);
     }
 
     @Transactional(readOnly = true)
@@ -61,15 +78,15 @@ public class OrderService {
 
         Page<Order> orders = orderRepo.findAllByUser_Id(
                 u.getId(),
-                PageRequest.of(page, size, Sort.by("createdAt").descending())
+                PageRequest.of(page, pageSize(size), Sort.by("createdAt").descending())
         );
 
-        return orders.map(o -> toResponse(o, lang));
+        return toResponsePage(orders, lang);
     }
 
     @Transactional(readOnly = true)
     public OrderResponse getById(UUID id, String langHeader) {
-        Order order = orderRepo.findById(id)
+        Order order = orderRepo.findWithItemsById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + id));
 
         String lang = normalizeLang(langHeader);
@@ -97,13 +114,34 @@ public class OrderService {
             default -> "createdAt";
         };
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, safeSortBy));
+        Pageable pageable = PageRequest.of(page, pageSize(size), Sort.by(direction, safeSortBy));
 
         Page<Order> orders = (status == null)
                 ? orderRepo.findAllByUserEmail(email, pageable)
                 : orderRepo.findAllByUserEmailAndOrderStatus(email, status, pageable);
         log.info("Found {} orders for user {} (status={})", orders.getTotalElements(), email, status);
-        return orders.map(order -> toResponse(order, lang));
+        return toResponsePage(orders, lang);
+    }
+
+    /**
+     * Cursor-based variant of getMyOrders / getOrdersForUser: newest first, no offset and no count query.
+     */
+    @Transactional(readOnly = true)
+    public OrderSliceResponse scrollOrdersForUser(String email, OrderStatus status, String after, int size,
+                                                  String langHeader) {
+        String lang = normalizeLang(langHeader);
+        OrderCursor cursor = OrderCursor.decode(after);
+        int limit = pageSize(size);
+
+        User u = userRepo.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        List<Order> rows = (status == null)
+                ? orderRepo.findNextPageByUser(u.getId(), cursor.createdAt(), cursor.id(), Limit.of(limit + 1))
+                : orderRepo.findNextPageByUserAndStatus(u.getId(), status, cursor.createdAt(), cursor.id(),
+                        Limit.of(limit + 1));
+
+        return toSlice(rows, limit, lang);
     }
 
     // ===== Admin =====
@@ -128,13 +166,29 @@ public class OrderService {
             default -> "createdAt";
         };
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, safeSortBy));
+        Pageable pageable = PageRequest.of(page, pageSize(size), Sort.by(direction, safeSortBy));
 
         Page<Order> orders = (status == null)
                 ? orderRepo.findAll(pageable)
                 : orderRepo.findAllByOrderStatus(status, pageable);
 
-        return orders.map(o -> toResponse(o, lang));
+        return toResponsePage(orders, lang);
+    }
+
+    /**
+     * Cursor-based variant of adminList: newest first, no offset and no count query.
+     */
+    @Transactional(readOnly = true)
+    public OrderSliceResponse adminScroll(OrderStatus status, String after, int size, String langHeader) {
+        String lang = normalizeLang(langHeader);
+        OrderCursor cursor = OrderCursor.decode(after);
+        int limit = pageSize(size);
+
+        List<Order> rows = (status == null)
+                ? orderRepo.findNextPage(cursor.createdAt(), cursor.id(), Limit.of(limit + 1))
+                : orderRepo.findNextPageByStatus(status, cursor.createdAt(), cursor.id(), Limit.of(limit + 1));
+
+        return toSlice(rows, limit, lang);
     }
 
     @Transactional
@@ -149,7 +203,9 @@ public class OrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
         o.setOrderStatus(status);
-        return toResponse(orderRepo.save(o), lang);
+        Order saved = orderRepo.save(o);
+        events.publishEvent(OrderFeedEvent.of(OrderFeedEvent.Type.ORDER_STATUS_CHANGED, saved));
+        return toResponse(saved, lang);
     }
 
     // ===== Core builder =====
@@ -173,11 +229,28 @@ public class OrderService {
         // IMPORTANT: ensure order-items relation is set correctly
         o.getItems().clear();
 
+        // Aggregate duplicate lines (same product twice -> one line with summed quantity), keep basket order
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
         for (CreateOrderItemRequest itemReq : req.items()) {
-            Product p = productRepo.findById(itemReq.productId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + itemReq.productId()));
+            quantities.merge(itemReq.productId(), itemReq.quantity(), Integer::sum);
+        }
+
+        // One IN query for the whole basket instead of one findById per line.
+        // Prices are read from the DB (not the menu snapshot) so a just-changed price is never missed.
+        Map<UUID, Product> products = productRepo.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<UUID> missing = quantities.keySet().stream()
+                .filter(id -> !products.containsKey(id))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Products not found: " + missing);
+        }
 
-            int qty = itemReq.quantity();
+        for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+            Product p = products.get(entry.getKey());
+
+            int qty = entry.getValue();
             BigDecimal unitPrice = p.getPrice();
             BigDecimal line = unitPrice.multiply(BigDecimal.valueOf(qty));
             total = total.add(line);
@@ -199,6 +272,47 @@ public class OrderService {
 
     // ===== Mapping =====
 
+    /**
+     * Map a page of orders with a constant number of queries:
+     * the page query (+ count) already ran, this adds exactly one fetch-join query for items and products.
+     * Without it, toResponse would lazy-load items per order and the product per item (1 + N + M).
+     */
+    private Page<OrderResponse> toResponsePage(Page<Order> orders, String lang) {
+        Map<UUID, Order> loaded = loadWithItems(orders.getContent());
+        return orders.map(o -> toResponse(loaded.getOrDefault(o.getId(), o), lang));
+    }
+
+    /**
+     * The query fetched one row more than requested; its presence tells whether a next page exists.
+     */
+    private OrderSliceResponse toSlice(List<Order> rows, int limit, String lang) {
+        boolean hasNext = rows.size() > limit;
+        List<Order> page = hasNext ? rows.subList(0, limit) : rows;
+
+        Map<UUID, Order> loaded = loadWithItems(page);
+        List<OrderResponse> items = page.stream()
+                .map(o -> toResponse(loaded.getOrDefault(o.getId(), o), lang))
+                .toList();
+
+        String next = null;
+        if (hasNext) {
+            Order last = page.getLast();
+            next = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new OrderSliceResponse(items, items.size(), hasNext, next);
+    }
+
+    private Map<UUID, Order> loadWithItems(List<Order> orders) {
+        if (orders.isEmpty()) return Map.of();
+        List<UUID> ids = orders.stream().map(Order::getId).toList();
+        return orderRepo.findAllWithItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+    }
+
+    private int pageSize(int requested) {
+        return Math.clamp(requested, 1, maxPageSize);
+    }
+
     private OrderResponse toResponse(Order o, String lang) {
         boolean de = lang != null && lang.toLowerCase().startsWith("de");
 
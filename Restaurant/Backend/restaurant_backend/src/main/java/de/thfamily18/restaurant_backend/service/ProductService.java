@@ -6,9 +6,13 @@ import de.thfamily18.restaurant_backend.entity.Product;
 import de.thfamily18.restaurant_backend.exception.DuplicateResourceException;
 import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
 import de.thfamily18.restaurant_backend.repository.ProductRepository;
+import de.thfamily18.restaurant_backend.service.catalog.CatalogSnapshot;
+import de.thfamily18.restaurant_backend.service.catalog.CatalogSnapshotCache;
+import de.thfamily18.restaurant_backend.service.catalog.ProductCatalogChangedEvent;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.Nullable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,7 +25,11 @@ import java.util.UUID;
 public class ProductService {
 
     private final ProductRepository repo;
+    private final CatalogSnapshotCache catalog;
+    private final ApplicationEventPublisher events;
 
+    // Admin reads go to the database: they must see the admin's own writes right away,
+    // the public menu is served from the snapshot (menuSnapshot), which is rebuilt asynchronously.
     @Transactional(readOnly = true)
     public List<ProductResponse> getProducts(String lang, String category) {
         List<Product> products = (category == null || category.isBlank())
@@ -44,6 +52,14 @@ public class ProductService {
                 .toList();
     }
 
+    /**
+     * Current catalog snapshot. Callers that need both the ETag and the body must read them
+     * from the same snapshot, otherwise a concurrent rebuild could pair a new tag with old content.
+     */
+    public CatalogSnapshot menuSnapshot() {
+        return catalog.get();
+    }
+
 
     @Transactional
     public ProductResponse create(ProductUpsertRequest req) {
@@ -61,6 +77,7 @@ public class ProductService {
         p.setNameEn(nameEn);
 
         Product saved = repo.save(p);
+        events.publishEvent(new ProductCatalogChangedEvent("create"));
         return toResponse(saved, "de"); // admin response default de
     }
 
@@ -82,6 +99,7 @@ public class ProductService {
         p.setNameEn(nameEn);
 
         Product saved = repo.save(p);
+        events.publishEvent(new ProductCatalogChangedEvent("update"));
         return toResponse(saved, "de"); // admin response default de
     }
 
@@ -89,6 +107,7 @@ public class ProductService {
     public void delete(UUID id) {
         if (!repo.existsById(id)) throw new ResourceNotFoundException("Product not found");
         repo.deleteById(id);
+        events.publishEvent(new ProductCatalogChangedEvent("delete"));
     }
 
     @Transactional
@@ -125,14 +144,15 @@ public class ProductService {
                 })
                 .toList();
 
-        return repo.saveAll(products).stream()
+        List<ProductResponse> saved = repo.saveAll(products).stream()
                 .map(p -> toResponse(p, "de"))
                 .toList();
+        events.publishEvent(new ProductCatalogChangedEvent("bulkCreate"));
+        return saved;
     }
 
-    @Transactional(readOnly = true)
     public List<String> getCategories() {
-        return repo.findDistinctCategories();
+        return catalog.get().categories();
     }
 
     // ===== helpers =====
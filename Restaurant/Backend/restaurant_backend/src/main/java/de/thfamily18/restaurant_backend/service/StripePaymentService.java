@@ -13,7 +13,10 @@ import de.thfamily18.restaurant_backend.entity.Order;
 import de.thfamily18.restaurant_backend.entity.PaymentStatus;
 import de.thfamily18.restaurant_backend.entity.RefundStatus;
 import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
+import de.thfamily18.restaurant_backend.exception.TooManyWaitersException;
 import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.payment.PaymentIntentSecretCache;
+import de.thfamily18.restaurant_backend.service.payment.PaymentStatusWaiters;
 import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +29,8 @@ import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -33,15 +38,25 @@ import java.util.UUID;
 public class StripePaymentService {
     private final StripeGateway stripeGateway;
     private final OrderRepository orderRepo;
+    private final PaymentStatusWaiters statusWaiters;
+    private final PaymentIntentSecretCache secretCache;
     @Value("${stripe.secretKey:}")
     private String stripeSecretKey;
     // MVP policy: Payment is only allowed within 30 minutes of order creation.
     @Value("${app.payment.ttlMinutes:30}")
     private long ttlMinutes;
 
-    @Transactional
+    /**
+     * Not transactional on purpose: no DB connection is held while Stripe is called.
+     * The PaymentIntent id is stored afterwards with a single conditional update.
+     * Answers from {@link PaymentIntentSecretCache} when the intent was created (or pre-created) before.
+     */
     public CreateStripeIntentResponse createPaymentIntent(UUID orderId) throws StripeException {
-        log.info("ttlMinutes {}", ttlMinutes);
+        CreateStripeIntentResponse cached = secretCache.get(orderId);
+        if (cached != null) {
+            return cached;
+        }
+
         Order order = orderRepo.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
@@ -71,7 +86,11 @@ public class StripePaymentService {
         if (order.getStripePaymentIntentId() != null && !order.getStripePaymentIntentId().isBlank()) {
             PaymentIntent existing = stripeGateway.retrievePaymentIntent(order.getStripePaymentIntentId());
             // If Stripe has succeeded but the database hasn't updated (webhook arrived late), still return clientSecret for frontend handling.
-            return new CreateStripeIntentResponse(existing.getId(), existing.getClientSecret());
+            CreateStripeIntentResponse res = new CreateStripeIntentResponse(existing.getId(), existing.getClientSecret());
+            if (!"succeeded".equals(existing.getStatus()) && !"canceled".equals(existing.getStatus())) {
+                secretCache.put(order.getId(), res, order.getCreatedAt().plus(ttl));
+            }
+            return res;
         }
 
         // 6. Amount in cents
@@ -106,10 +125,12 @@ public class StripePaymentService {
         PaymentIntent pi = stripeGateway.createPaymentIntent(params, requestOptions(idempotencyKey));
 
         // Save the PI ID for trace/idempotency.
-        order.setStripePaymentIntentId(pi.getId());
-        orderRepo.save(order);
+        // Concurrent requests share the idempotency key and get the same PI, so first writer wins.
+        orderRepo.attachPaymentIntent(order.getId(), pi.getId());
         // NOTE: DO NOT set PAID here — a new webhook will do it!
-        return new CreateStripeIntentResponse(pi.getId(), pi.getClientSecret());
+        CreateStripeIntentResponse res = new CreateStripeIntentResponse(pi.getId(), pi.getClientSecret());
+        secretCache.put(order.getId(), res, order.getCreatedAt().plus(ttl));
+        return res;
     }
 
     @Transactional(readOnly = true)
@@ -125,6 +146,41 @@ public class StripePaymentService {
         );
     }
 
+    /**
+     * Long-poll variant of getStatus.
+     *
+     * Completes immediately if the status already differs from knownStatus (what the client last saw),
+     * otherwise as soon as the webhook commits a payment update, or with the unchanged status after the timeout.
+     * Costs one DB lookup per call instead of one per client poll.
+     *
+     * @throws TooManyWaitersException (503 + Retry-After) if nothing changed and no waiter can be parked on this node
+     */
+    public CompletableFuture<PaymentStatusResponse> awaitStatusChange(UUID orderId, String knownStatus, Duration timeout) {
+        // Register before reading, so an update committed in between is not missed.
+        CompletableFuture<PaymentStatusResponse> waiter = statusWaiters.register(orderId);
+
+        PaymentStatusResponse current;
+        try {
+            current = getStatus(orderId);
+        } catch (RuntimeException ex) {
+            if (waiter != null) statusWaiters.release(orderId, waiter);
+            throw ex;
+        }
+
+        if (!current.paymentStatus().equalsIgnoreCase(knownStatus)) {
+            if (waiter != null) statusWaiters.release(orderId, waiter);
+            return CompletableFuture.completedFuture(current);
+        }
+        if (waiter == null) {
+            // An immediate "no change" would make the client re-poll at once, right when this node is overloaded.
+            throw statusWaiters.rejected(orderId);
+        }
+
+        return waiter
+                .completeOnTimeout(current, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((res, ex) -> statusWaiters.release(orderId, waiter));
+    }
+
     private long toCents(BigDecimal eur) {
         // robust rounding (e.g. 7.8 -> 780, 7.805 -> 781)
         return eur.movePointRight(2)
@@ -146,7 +202,7 @@ public class StripePaymentService {
         return b.build();
     }
 
-    @Transactional
+    // Not transactional: the Stripe call runs without a DB connection (see createPaymentIntent).
     public RefundResponse refund(UUID orderId) throws StripeException {
         Order order = orderRepo.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderId));
@@ -178,7 +234,7 @@ public class StripePaymentService {
         // Optional: store refund id early
         //order.setStripeRefundId(refund.getId());
 
-        orderRepo.save(order);
+        orderRepo.markRefundRequested(order.getId(), order.getRefundRequestedAt());
 
         log.info("Refund requested: orderId={}, refundId={}, status={}",
                 orderId, refund.getId(), refund.getStatus());
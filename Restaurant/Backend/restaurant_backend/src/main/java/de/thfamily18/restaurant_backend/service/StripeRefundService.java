@@ -7,19 +7,21 @@ import com.stripe.param.RefundCreateParams;
 import de.thfamily18.restaurant_backend.dto.payment.RefundResponse;
 import de.thfamily18.restaurant_backend.entity.Order;
 import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
 import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
 import de.thfamily18.restaurant_backend.repository.OrderRepository;
 import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class StripeRefundService {
@@ -30,7 +32,11 @@ public class StripeRefundService {
     @Value("${stripe.secretKey:}")
     private String stripeSecretKey;
 
-    @Transactional
+    /**
+     * Not transactional: validation reads a snapshot of the order, Stripe is called without holding
+     * a DB connection, and the refund id is stored with one conditional update afterwards.
+     * The Stripe idempotency key makes a concurrent duplicate request return the same refund.
+     */
     public RefundResponse refundOrder(UUID orderId, BigDecimal amountEurOrNull, String reason) throws StripeException {
         Order order = orderRepo.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
@@ -40,25 +46,13 @@ public class StripeRefundService {
             // If already REFUNDED -> idempotent response
             if (order.getPaymentStatus() == PaymentStatus.REFUNDED) {
                 // idempotent: already refunded
-                return new RefundResponse(
-                        order.getId(),
-                        order.getStripePaymentIntentId(),
-                        order.getStripeRefundId(),
-                        "already_refunded succeeded",                 // best guess; real status should come from Stripe
-                        order.getPaymentStatus().name()
-                );
+                return new RefundResponse(order.getStripeRefundId(), RefundStatus.fromStripe("already_refunded succeeded"), order.getId(), order.getStripePaymentIntentId(), order.getPaymentStatus(), order.getRefundRequestedAt());
             }
 
                 // If refund already requested and you store stripeRefundId -> return that instead of failing (optional)
                 if (order.getStripeRefundId() != null && !order.getStripeRefundId().isBlank()) {
                     Refund existing = safeRetrieveRefund(order.getStripeRefundId());
-                    return new RefundResponse(
-                            order.getId(),
-                            order.getStripePaymentIntentId(),
-                            order.getStripeRefundId(),
-                            existing != null ? existing.getStatus() : "unknown",
-                            order.getPaymentStatus().name()
-                    );
+                    return new RefundResponse(order.getStripeRefundId(), RefundStatus.fromStripe(existing != null ? existing.getStatus() : "unknown"), order.getId(), order.getStripePaymentIntentId(), order.getPaymentStatus(), order.getRefundRequestedAt());
             }
             throw new IllegalStateException("Order is not refundable in state: " + order.getPaymentStatus());
         }
@@ -71,13 +65,7 @@ public class StripeRefundService {
         // 3) If already has refund id (idempotent) return
         if (order.getStripeRefundId() != null && !order.getStripeRefundId().isBlank()) {
             Refund existing = safeRetrieveRefund(order.getStripeRefundId());
-            return new RefundResponse(
-                    order.getId(),
-                    order.getStripePaymentIntentId(),
-                    order.getStripeRefundId(),
-                    existing != null ? existing.getStatus() : "already_created",
-                    order.getPaymentStatus().name()
-            );
+            return new RefundResponse(order.getStripeRefundId(), RefundStatus.fromStripe(existing != null ? existing.getStatus() : "already_created"), order.getId(), order.getStripePaymentIntentId(), order.getPaymentStatus(), order.getRefundRequestedAt());
 
         }
 
@@ -115,6 +103,10 @@ public class StripeRefundService {
         // For MVP you can set immediately, but production: prefer webhook charge.refunded / refund.updated
         order.setStripeRefundId(refund.getId());
         order.setRefundRequestedAt(LocalDateTime.now());
+        if (orderRepo.recordRefund(order.getId(), refund.getId(), order.getRefundRequestedAt()) == 0) {
+            log.info("Refund id already recorded by a concurrent request. orderId={}, refundId={}",
+                    order.getId(), refund.getId());
+        }
         // Optional: store requested amount (if you added field)
 //        if (amountEurOrNull != null) {
 //            order.setRefundedAmount(amountEurOrNull);
@@ -125,15 +117,7 @@ public class StripeRefundService {
         // order.setPaymentStatus(PaymentStatus.REFUNDED);
         // order.setRefundedAt(LocalDateTime.now());
 
-        orderRepo.save(order);
-
-        return new RefundResponse(
-                order.getId(),
-                order.getStripePaymentIntentId(),
-                refund.getId(),
-                refund.getStatus(),
-                order.getPaymentStatus().name() // still PAID until webhook
-        );
+        return new RefundResponse(refund.getId(), RefundStatus.fromStripe(refund.getStatus()), order.getId(), order.getStripePaymentIntentId(), order.getPaymentStatus(), order.getRefundRequestedAt());
     }
 
     private Refund safeRetrieveRefund(String refundId) {
@@ -1,23 +1,24 @@
 package de.thfamily18.restaurant_backend.service;
 
-import com.stripe.model.Event;
-import com.stripe.net.Webhook;
 import de.thfamily18.restaurant_backend.entity.Order;
 import de.thfamily18.restaurant_backend.entity.PaymentStatus;
 import de.thfamily18.restaurant_backend.entity.RefundStatus;
 import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
 import de.thfamily18.restaurant_backend.notification.NotificationService;
 import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayload;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayloadParser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import tools.jackson.databind.JsonNode;
-import tools.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -31,61 +32,81 @@ public class StripeWebhookService {
             "payment_intent.succeeded",
             "payment_intent.payment_failed",
             "payment_intent.canceled",
-            "charge.refunded", // refund confirmed
-            "charge.refund.updated" // add
+            // refund confirmed; charge.refund.updated has no handler, so it is not queued in the inbox
+            "charge.refunded"
     );
 
     private final OrderRepository orderRepo;
     private final NotificationService notificationService;
-    private final ObjectMapper objectMapper;
-
-    @Value("${stripe.webhookSecret}")
-    private String webhookSecret;
+    private final StripeWebhookPayloadParser payloadParser;
+    private final ApplicationEventPublisher events;
 
+    /**
+     * Verify and process synchronously (kept for tools/tests; the HTTP endpoint goes through the webhook inbox).
+     */
     @Transactional
     public void handle(String payload, String sigHeader) {
-        // Fail-fast if missing secret (signature verification must be enabled in production).
-        if (webhookSecret == null || webhookSecret.isBlank()) {
-            throw new IllegalStateException("Missing stripe.webhookSecret (STRIPE_WEBHOOK_SECRET)");
-        }
-
-        final Event event;
-        try {
-            event = Webhook.constructEvent(payload, sigHeader, webhookSecret);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid Stripe signature", e);
-        }
-
-        String type = event.getType();
-        if (!SUPPORTED_EVENTS.contains(type)) {
+        StripeWebhookPayload event = verify(payload.getBytes(StandardCharsets.UTF_8), sigHeader);
+        if (!supports(event.type())) {
             // Ignore unrelated events.
             return;
         }
+        process(event);
+    }
 
-        final JsonNode obj;
+    /**
+     * Check the Stripe-Signature header over the raw body and extract the fields we need.
+     *
+     * @throws IllegalArgumentException if the signature is invalid
+     */
+    public StripeWebhookPayload verify(byte[] payload, String sigHeader) {
+        return payloadParser.verifyAndParse(payload, sigHeader);
+    }
+
+    public boolean supports(String type) {
+        return type != null && SUPPORTED_EVENTS.contains(type);
+    }
+
+    /**
+     * Apply a stored (already verified) raw event to the order.
+     * Called by the webhook inbox worker inside the transaction that marks the inbox row as done.
+     */
+    @Transactional
+    public void process(String payload) {
+        final StripeWebhookPayload event;
         try {
-            obj = objectMapper.readTree(payload).path("data").path("object");
-        } catch (Exception e) {
-            log.warn("Cannot parse webhook payload. eventId={}, type={}", event.getId(), type, e);
-            // Return 200 OK to prevent Stripe retry storms; controller should always respond OK.
+            event = payloadParser.parse(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot parse webhook payload.", e);
+            // Not retryable: the payload will not become parseable.
             return;
         }
+        process(event);
+    }
 
-        log.info("Stripe webhook received. type={}, eventId={}", type, event.getId());
+    /**
+     * The order row is locked for the rest of the transaction, so concurrent events (and other writers)
+     * of the same order are applied one after another. An event created before the last applied event of the same
+     * Stripe object (PaymentIntent, or charge for refunds) is stale; the two objects are not ordered against each other.
+     */
+    @Transactional
+    public void process(StripeWebhookPayload event) {
+        String type = event.type();
+        log.info("Stripe webhook received. type={}, eventId={}", type, event.eventId());
 
         if (type.startsWith("payment_intent.")) {
-            handlePaymentIntentEvent(type, event.getId(), obj);
+            handlePaymentIntentEvent(type, event.eventId(), event);
             return;
         }
 
         if ("charge.refunded".equals(type)) {
-            handleChargeRefunded(event.getId(), obj);
+            handleChargeRefunded(event.eventId(), event);
         }
     }
 
-    private void handlePaymentIntentEvent(String type, String eventId, JsonNode obj) {
-        final String piId = obj.path("id").asText(null);
-        final String orderIdStr = obj.path("metadata").path("orderId").asText(null);
+    private void handlePaymentIntentEvent(String type, String eventId, StripeWebhookPayload obj) {
+        final String piId = obj.objectId();
+        final String orderIdStr = obj.orderId();
 
         log.info("PI event. type={}, eventId={}, piId={}, orderId={}", type, eventId, piId, orderIdStr);
 
@@ -102,9 +123,15 @@ public class StripeWebhookService {
             return;
         }
 
-        Order order = orderRepo.findById(orderId)
+        Order order = orderRepo.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderId));
 
+        if (isStale(order.getLastPaymentIntentEventCreated(), obj)) {
+            log.info("Stale PI event ignored. orderId={}, type={}, eventId={}, created={}, lastApplied={}",
+                    orderId, type, eventId, obj.created(), order.getLastPaymentIntentEventCreated());
+            return;
+        }
+
         // Idempotency / state rules
         if (order.getPaymentStatus() == PaymentStatus.REFUNDED) {
             log.info("Order already REFUNDED, ignoring PI event. orderId={}, type={}, piId={}", orderId, type, piId);
@@ -146,15 +173,17 @@ public class StripeWebhookService {
             order.setStripePaymentIntentId(piId);
         }
 
+        order.setLastPaymentIntentEventCreated(watermark(order.getLastPaymentIntentEventCreated(), obj));
         orderRepo.save(order);
+        events.publishEvent(OrderFeedEvent.of(OrderFeedEvent.Type.PAYMENT_UPDATED, order));
 
         log.info("Order updated from PI event. orderId={}, paymentStatus={}, piId={}",
                 orderId, order.getPaymentStatus(), piId);
     }
 
-    private void handleChargeRefunded(String eventId, JsonNode obj) {
-        final String paymentIntentId = obj.path("payment_intent").asText(null);
-        final String chargeId = obj.path("id").asText(null);
+    private void handleChargeRefunded(String eventId, StripeWebhookPayload obj) {
+        final String paymentIntentId = obj.paymentIntentId();
+        final String chargeId = obj.objectId();
 
         log.info("Charge refunded. eventId={}, chargeId={}, paymentIntentId={}", eventId, chargeId, paymentIntentId);
 
@@ -163,41 +192,50 @@ public class StripeWebhookService {
             return;
         }
 
-        Order order = orderRepo.findByStripePaymentIntentId(paymentIntentId).orElse(null);
+        Order order = orderRepo.findByStripePaymentIntentIdForUpdate(paymentIntentId).orElse(null);
 
         if (order == null) {
             log.warn("Order not found. paymentIntentId={}, eventId={}", paymentIntentId, eventId);
             return;
         }
 
-        JsonNode refunds = obj.path("refunds").path("data");
+        if (isStale(order.getLastChargeEventCreated(), obj)) {
+            // A newer charge event already carried the complete refund list.
+            log.info("Stale charge event ignored. orderId={}, eventId={}, created={}, lastApplied={}",
+                    order.getId(), eventId, obj.created(), order.getLastChargeEventCreated());
+            return;
+        }
+
+        List<StripeWebhookPayload.Refund> refunds = obj.refunds();
 
-        if (!refunds.isArray() || refunds.isEmpty()) {
+        if (refunds.isEmpty()) {
             log.warn("No refunds found in payload. eventId={}", eventId);
             return;
         }
 
         // ===== 1. Tìm refund mới nhất =====
-        JsonNode latest = refunds.get(0);
-        for (JsonNode r : refunds) {
-            if (r.path("created").asLong(0) > latest.path("created").asLong(0)) {
+        StripeWebhookPayload.Refund latest = refunds.getFirst();
+        for (StripeWebhookPayload.Refund r : refunds) {
+            if (r.created() > latest.created()) {
                 latest = r;
             }
         }
 
-        String refundId = latest.path("id").asText(null);
-        String refundStatus = latest.path("status").asText(null);
+        String refundId = latest.id();
+        String refundStatus = latest.status();
 
         // ===== 2. Idempotency basic =====
-        if (refundId != null && refundId.equals(order.getStripeRefundId())) {
+        // Same refund in the same state; the refund id alone is not enough, it is recorded when the refund is requested.
+        if (refundId != null && refundId.equals(order.getStripeRefundId())
+                && order.getRefundStatus() == RefundStatus.fromStripe(refundStatus)) {
             log.info("Duplicate refund ignored. orderId={}, refundId={}", order.getId(), refundId);
             return;
         }
 
         // ===== 3. Tổng refunded amount =====
         long totalRefundedCents = 0;
-        for (JsonNode r : refunds) {
-            totalRefundedCents += r.path("amount").asLong(0);
+        for (StripeWebhookPayload.Refund r : refunds) {
+            totalRefundedCents += r.amount();
         }
 
         BigDecimal refundedAmount = BigDecimal.valueOf(totalRefundedCents, 2);
@@ -228,12 +266,25 @@ public class StripeWebhookService {
             }
         }
 
+        order.setLastChargeEventCreated(watermark(order.getLastChargeEventCreated(), obj));
         orderRepo.save(order);
+        events.publishEvent(OrderFeedEvent.of(OrderFeedEvent.Type.PAYMENT_UPDATED, order));
 
         log.info("Refund processed. orderId={}, refundId={}, status={}",
                 order.getId(), refundId, refundStatus);
     }
 
+    /**
+     * Stripe "created" has second resolution, so events of the same second are not considered stale.
+     */
+    private static boolean isStale(Long last, StripeWebhookPayload event) {
+        return last != null && event.created() > 0 && event.created() < last;
+    }
+
+    private static Long watermark(Long last, StripeWebhookPayload event) {
+        return (last == null || event.created() > last) ? Long.valueOf(event.created()) : last;
+    }
+
     private void enqueuePaymentSucceeded(Order order) {
         // If user is guest, decide where email comes from:
         // - If you store customer email in Order => use it
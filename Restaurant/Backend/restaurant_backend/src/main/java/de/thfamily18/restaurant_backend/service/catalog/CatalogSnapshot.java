@@ -0,0 +1,193 @@
+package de.thfamily18.restaurant_backend.service.catalog;
+
+import de.thfamily18.restaurant_backend.dto.ProductResponse;
+import de.thfamily18.restaurant_backend.entity.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable, versioned view of the whole product catalog.
+ *
+ * All variants served by the public menu endpoints (language x category x best seller)
+ * are precomputed once when the snapshot is built, both as DTO lists and as ready-to-write
+ * JSON bodies ({@link MenuPayload}), so reads are plain map lookups.
+ */
+public record CatalogSnapshot(
+        long version,
+        Instant builtAt,
+        String contentHash,
+        Map<String, LanguageView> views,
+        List<String> categories,
+        Map<String, MenuPayload> payloads,
+        MenuPayload categoriesPayload,
+        MenuPayload emptyPayload
+) {
+
+    public static final List<String> LANGUAGES = List.of("de", "en");
+
+    /**
+     * Precomputed responses for one language.
+     * Category keys are lower-cased, matching the case-insensitive repository lookups.
+     */
+    public record LanguageView(
+            List<ProductResponse> all,
+            List<ProductResponse> bestSellers,
+            Map<String, List<ProductResponse>> byCategory,
+            Map<String, List<ProductResponse>> bestSellersByCategory
+    ) {}
+
+    /**
+     * @param serializer JSON serializer used for the pre-serialized bodies (the application's ObjectMapper)
+     */
+    public static CatalogSnapshot build(long version, Instant builtAt, List<Product> products, List<String> categories,
+                                        Function<Object, byte[]> serializer) {
+        Map<String, LanguageView> views = new LinkedHashMap<>();
+        Map<String, MenuPayload> payloads = new HashMap<>();
+        for (String lang : LANGUAGES) {
+            LanguageView view = buildView(products, lang);
+            views.put(lang, view);
+
+            payloads.put(payloadKey(lang, false, null), MenuPayload.of(serializer.apply(view.all())));
+            payloads.put(payloadKey(lang, true, null), MenuPayload.of(serializer.apply(view.bestSellers())));
+            view.byCategory().forEach((cat, list) ->
+                    payloads.put(payloadKey(lang, false, cat), MenuPayload.of(serializer.apply(list))));
+            view.bestSellersByCategory().forEach((cat, list) ->
+                    payloads.put(payloadKey(lang, true, cat), MenuPayload.of(serializer.apply(list))));
+        }
+        return new CatalogSnapshot(version, builtAt, contentHash(products, categories),
+                Map.copyOf(views), List.copyOf(categories),
+                Map.copyOf(payloads),
+                MenuPayload.of(serializer.apply(categories)),
+                MenuPayload.of(serializer.apply(List.of())));
+    }
+
+    /**
+     * Strong ETag for the product lists of one language.
+     * Derived from the content hash (not the local version counter), so every node returns the same tag.
+     */
+    public String etag(String lang) {
+        return "\"" + contentHash + "-" + langKey(lang) + "\"";
+    }
+
+    public String categoriesEtag() {
+        return "\"" + contentHash + "-categories\"";
+    }
+
+    public List<ProductResponse> products(String lang, String category) {
+        LanguageView view = views.get(langKey(lang));
+        if (category == null || category.isBlank()) return view.all();
+        return view.byCategory().getOrDefault(categoryKey(category), List.of());
+    }
+
+    public List<ProductResponse> bestSellers(String lang, String category) {
+        LanguageView view = views.get(langKey(lang));
+        if (category == null || category.isBlank()) return view.bestSellers();
+        return view.bestSellersByCategory().getOrDefault(categoryKey(category), List.of());
+    }
+
+    /**
+     * Pre-serialized body for one (language, category, bestSeller) variant.
+     * Unknown categories share the empty-list body, like the list lookups above.
+     */
+    public MenuPayload payload(String lang, String category, boolean bestSeller) {
+        String cat = (category == null || category.isBlank()) ? null : categoryKey(category);
+        return payloads.getOrDefault(payloadKey(langKey(lang), bestSeller, cat), emptyPayload);
+    }
+
+    /**
+     * Same rule as ProductService#toResponse: anything starting with "de" is German, the rest English.
+     */
+    public static String langKey(String lang) {
+        return lang != null && lang.toLowerCase().startsWith("de") ? "de" : "en";
+    }
+
+    public static String categoryKey(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ===== helpers =====
+
+    private static String payloadKey(String lang, boolean bestSeller, String categoryKey) {
+        return lang + (bestSeller ? "|best|" : "|all|") + (categoryKey == null ? "*" : categoryKey);
+    }
+
+    private static LanguageView buildView(List<Product> products, String lang) {
+        List<ProductResponse> all = new ArrayList<>(products.size());
+        List<ProductResponse> best = new ArrayList<>();
+        Map<String, List<ProductResponse>> byCategory = new LinkedHashMap<>();
+        Map<String, List<ProductResponse>> bestByCategory = new LinkedHashMap<>();
+
+        for (Product p : products) {
+            ProductResponse r = toResponse(p, lang);
+            String key = categoryKey(p.getCategory());
+
+            all.add(r);
+            byCategory.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+            if (p.isBestSeller()) {
+                best.add(r);
+                bestByCategory.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+            }
+        }
+
+        return new LanguageView(List.copyOf(all), List.copyOf(best), freeze(byCategory), freeze(bestByCategory));
+    }
+
+    /**
+     * SHA-256 over every field that ends up in a response, in served order.
+     * Deterministic only because the caller loads products in a fixed order (CatalogSnapshotCache.CATALOG_ORDER).
+     */
+    private static String contentHash(List<Product> products, List<String> categories) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        StringBuilder sb = new StringBuilder(128);
+        for (Product p : products) {
+            sb.setLength(0);
+            sb.append(p.getId()).append('|')
+                    .append(p.getNameDe()).append('|')
+                    .append(p.getNameEn()).append('|')
+                    .append(p.getDescriptionDe()).append('|')
+                    .append(p.getDescriptionEn()).append('|')
+                    .append(p.getPrice() == null ? null : p.getPrice().toPlainString()).append('|')
+                    .append(p.getCategory()).append('|')
+                    .append(p.isBestSeller()).append('\n');
+            md.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        for (String c : categories) {
+            md.update(("#" + c + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(md.digest(), 0, 16);
+    }
+
+    private static Map<String, List<ProductResponse>> freeze(Map<String, List<ProductResponse>> m) {
+        Map<String, List<ProductResponse>> out = new LinkedHashMap<>();
+        m.forEach((k, v) -> out.put(k, List.copyOf(v)));
+        return Map.copyOf(out);
+    }
+
+    private static ProductResponse toResponse(Product p, String lang) {
+        boolean de = "de".equals(lang);
+        return ProductResponse.builder()
+                .id(p.getId())
+                .name(de ? p.getNameDe() : p.getNameEn())
+                .description(de ? p.getDescriptionDe() : p.getDescriptionEn())
+                .price(p.getPrice())
+                .category(p.getCategory())
+                .bestSeller(p.isBestSeller())
+                .build();
+    }
+}
@@ -0,0 +1,219 @@
+package de.thfamily18.restaurant_backend.service.catalog;
+
+import de.thfamily18.restaurant_backend.entity.Product;
+import de.thfamily18.restaurant_backend.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CatalogSnapshot} and rebuilds it with stale-while-revalidate semantics.
+ *
+ * - Reads never block on the database once the first snapshot exists; a stale snapshot is
+ *   served while a single background rebuild runs.
+ * - A snapshot becomes stale when a product write commits on this node (rebuilt right after commit),
+ *   or when catalog_version moved past the version it was built from: every product write bumps it in its
+ *   own transaction, and each node polls it every app.catalog.versionPollMillis (writes made by other nodes).
+ *   app.catalog.maxAgeSeconds is only a safety net.
+ * - The new snapshot is swapped in atomically, so readers see either the old or the new catalog.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogSnapshotCache {
+
+    private final ProductRepository repo;
+    private final PlatformTransactionManager txManager;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    // Served order, and the order the content hash is computed in: must be the same on every node and rebuild.
+    static final Sort CATALOG_ORDER = Sort.by("createdAt", "id");
+
+    @Value("${app.catalog.maxAgeSeconds:300}")
+    private long maxAgeSeconds;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    private final AtomicLong versionSeq = new AtomicLong();
+    // Incremented on every committed product write; compared with the change the snapshot was built from.
+    private final AtomicLong changeSeq = new AtomicLong();
+    private volatile long builtFromChange = -1;
+    // catalog_version the current snapshot was built from, and the highest one seen by the poll.
+    private volatile long builtFromVersion = -1;
+    private final AtomicLong latestVersion = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final Object loadLock = new Object();
+
+    private final ExecutorService refresher =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("catalog-refresh-", 0).factory());
+
+    private TransactionTemplate readTx;
+    private Counter rebuildCounter;
+    private Counter rebuildFailedCounter;
+
+    @PostConstruct
+    void init() {
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
+
+        this.rebuildCounter = meterRegistry.counter("catalog.snapshot.rebuilds");
+        this.rebuildFailedCounter = meterRegistry.counter("catalog.snapshot.rebuild.failures");
+        Gauge.builder("catalog.snapshot.version", current, r -> r.get() == null ? 0 : r.get().version())
+                .description("Version of the in-memory product catalog snapshot")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Current snapshot. Only the very first call (before warm-up finished) loads synchronously.
+     */
+    public CatalogSnapshot get() {
+        CatalogSnapshot s = current.get();
+        if (s == null) {
+            return loadBlocking();
+        }
+        if (isStale(s)) {
+            refreshAsync();
+        }
+        return s;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            loadBlocking();
+        } catch (Exception ex) {
+            // Do not fail startup: the first read will retry.
+            log.warn("Catalog snapshot warm-up failed", ex);
+        }
+    }
+
+    /**
+     * Bumps catalog_version inside the writing transaction, so other nodes see the change exactly when it commits.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void bumpVersion(ProductCatalogChangedEvent event) {
+        repo.bumpCatalogVersion();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        changeSeq.incrementAndGet();
+        log.debug("Catalog changed ({}), scheduling snapshot rebuild", event.reason());
+        refreshAsync();
+    }
+
+    /**
+     * Picks up product writes committed on other nodes.
+     */
+    @Scheduled(fixedDelayString = "${app.catalog.versionPollMillis:1000}")
+    public void pollVersion() {
+        long version;
+        try {
+            version = repo.findCatalogVersion();
+        } catch (Exception ex) {
+            log.debug("Polling catalog_version failed: {}", ex.toString());
+            return;
+        }
+        latestVersion.accumulateAndGet(version, Math::max);
+        if (current.get() != null && builtFromVersion < version) {
+            log.debug("Catalog version {} committed elsewhere, scheduling snapshot rebuild", version);
+            refreshAsync();
+        }
+    }
+
+    // ===== internals =====
+
+    private boolean isStale(CatalogSnapshot s) {
+        if (builtFromChange < changeSeq.get() || builtFromVersion < latestVersion.get()) return true;
+        return Duration.between(s.builtAt(), Instant.now(clock)).getSeconds() >= maxAgeSeconds;
+    }
+
+    private CatalogSnapshot loadBlocking() {
+        synchronized (loadLock) {
+            CatalogSnapshot s = current.get();
+            if (s != null) return s;
+            return rebuild();
+        }
+    }
+
+    private void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) return;
+        try {
+            refresher.execute(() -> {
+                try {
+                    // Loop so that writes committed during a rebuild are not lost.
+                    do {
+                        rebuild();
+                    } while (builtFromChange < changeSeq.get() || builtFromVersion < latestVersion.get());
+                } catch (Exception ex) {
+                    rebuildFailedCounter.increment();
+                    log.warn("Catalog snapshot rebuild failed, keep serving version {}", versionOf(current.get()), ex);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Executor rejected (shutdown): keep serving the current snapshot.
+            refreshing.set(false);
+        }
+    }
+
+    private CatalogSnapshot rebuild() {
+        long seenChange = changeSeq.get();
+        long[] seenVersion = new long[1];
+
+        CatalogSnapshot next = readTx.execute(status -> {
+            // Read first: a write committing during the load only causes one extra rebuild.
+            seenVersion[0] = repo.findCatalogVersion();
+            List<Product> products = repo.findAll(CATALOG_ORDER);
+            List<String> categories = repo.findDistinctCategories();
+            return CatalogSnapshot.build(versionSeq.incrementAndGet(), Instant.now(clock), products, categories,
+                    objectMapper::writeValueAsBytes);
+        });
+
+        current.set(next);
+        builtFromChange = seenChange;
+        builtFromVersion = seenVersion[0];
+        latestVersion.accumulateAndGet(seenVersion[0], Math::max);
+        rebuildCounter.increment();
+
+        log.info("Catalog snapshot rebuilt. version={}, products={}",
+                next.version(), next.views().get("de").all().size());
+        return next;
+    }
+
+    private static long versionOf(CatalogSnapshot s) {
+        return s == null ? 0 : s.version();
+    }
+}
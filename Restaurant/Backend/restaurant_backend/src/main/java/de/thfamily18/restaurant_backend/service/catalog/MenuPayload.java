@@ -0,0 +1,135 @@
+package de.thfamily18.restaurant_backend.service.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One menu response body, serialized to JSON once and pre-compressed.
+ *
+ * Instances belong to a {@link CatalogSnapshot} and are only rebuilt when the catalog changes,
+ * so serving a menu request is a plain buffer copy. Arrays must never be mutated.
+ */
+public final class MenuPayload {
+
+    // Below this size compression is not worth the CPU on the client.
+    private static final int MIN_COMPRESS_BYTES = 256;
+
+    public enum Encoding {
+        IDENTITY(null), GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        public String token() { return token; }
+    }
+
+    private final byte[] json;
+    private final byte[] gzip;     // null if not smaller than json
+    private final byte[] deflate;  // null if not smaller than json
+
+    private MenuPayload(byte[] json, byte[] gzip, byte[] deflate) {
+        this.json = json;
+        this.gzip = gzip;
+        this.deflate = deflate;
+    }
+
+    public static MenuPayload of(byte[] json) {
+        if (json.length < MIN_COMPRESS_BYTES) {
+            return new MenuPayload(json, null, null);
+        }
+        return new MenuPayload(json, smallerOrNull(json, gzip(json)), smallerOrNull(json, deflate(json)));
+    }
+
+    /**
+     * Best encoding we hold for the given Accept-Encoding header (gzip preferred over deflate).
+     */
+    public Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return Encoding.IDENTITY;
+
+        // null: not mentioned, "*" decides; false: explicitly refused (q=0), "*" does not override it.
+        Boolean gzipOk = null;
+        Boolean deflateOk = null;
+        boolean anyOk = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            boolean ok = !isZeroQuality(tokens);
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzipOk = ok;
+                case "deflate" -> deflateOk = ok;
+                case "*" -> anyOk = ok;
+                default -> { }
+            }
+        }
+        if ((gzipOk != null ? gzipOk : anyOk) && gzip != null) return Encoding.GZIP;
+        if ((deflateOk != null ? deflateOk : anyOk) && deflate != null) return Encoding.DEFLATE;
+        return Encoding.IDENTITY;
+    }
+
+    public byte[] bytes(Encoding encoding) {
+        return switch (encoding) {
+            case GZIP -> gzip;
+            case DEFLATE -> deflate;
+            case IDENTITY -> json;
+        };
+    }
+
+    /**
+     * Strong ETags are per representation, so compressed bodies get their own tag.
+     */
+    public static String etag(String baseEtag, Encoding encoding) {
+        if (encoding == Encoding.IDENTITY) return baseEtag;
+        return baseEtag.substring(0, baseEtag.length() - 1) + "-" + encoding.token() + "\"";
+    }
+
+    // ===== helpers =====
+
+    private static boolean isZeroQuality(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String param = tokens[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) <= 0;
+                } catch (NumberFormatException ignored) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[] smallerOrNull(byte[] json, byte[] compressed) {
+        return compressed.length < json.length ? compressed : null;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(bos) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("gzip failed", e);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] json) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(json.length / 4 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (OutputStream out = new DeflaterOutputStream(bos, deflater)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("deflate failed", e);
+        } finally {
+            deflater.end();
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,7 @@
+package de.thfamily18.restaurant_backend.service.catalog;
+
+/**
+ * Published by ProductService whenever products are created, updated or deleted.
+ * Listeners react only after the surrounding transaction has committed.
+ */
+public record ProductCatalogChangedEvent(String reason) {}
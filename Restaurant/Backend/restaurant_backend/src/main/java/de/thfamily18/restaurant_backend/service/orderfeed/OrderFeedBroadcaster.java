@@ -0,0 +1,262 @@
+package de.thfamily18.restaurant_backend.service.orderfeed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of {@link OrderFeedEvent}s to connected kitchen screens over SSE.
+ *
+ * - Every committed order change gets a monotonically increasing id and is kept in a bounded replay buffer.
+ * - Each subscriber has its own bounded queue drained by a virtual thread, so a slow screen never
+ *   blocks the committing transaction or other screens. A subscriber whose queue overflows is
+ *   disconnected and catches up via Last-Event-ID on reconnect.
+ * - If the requested Last-Event-ID is no longer in the buffer (or unknown after a restart),
+ *   the client gets a "resync" event and should reload the list once via REST.
+ *
+ * Events reach this node through {@link OrderFeedRelay}, from whichever node committed the change, with ids
+ * shared by all nodes; a screen may reconnect to any node. Without the relay (LISTEN disabled, not Postgres)
+ * ids are assigned here and the feed only sees changes committed on this node.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderFeedBroadcaster {
+
+    static final String RESYNC_EVENT = "resync";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.orderFeed.replaySize:500}")
+    private int replaySize;
+
+    @Value("${app.orderFeed.clientQueueSize:256}")
+    private int clientQueueSize;
+
+    @Value("${app.orderFeed.heartbeatSeconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${app.orderFeed.emitterTimeoutMinutes:30}")
+    private long emitterTimeoutMinutes;
+
+    private final AtomicLong idSeq = new AtomicLong();
+    // guarded by itself; also serializes publish vs. subscribe so a new screen gets a consistent cut
+    private final ArrayDeque<Entry> replay = new ArrayDeque<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private Counter publishedCounter;
+    private Counter droppedCounter;
+
+    // event == null: resync marker
+    record Entry(long id, OrderFeedEvent event) {}
+
+    @PostConstruct
+    void init() {
+        this.publishedCounter = meterRegistry.counter("orders.feed.events");
+        this.droppedCounter = meterRegistry.counter("orders.feed.subscribers.dropped");
+        Gauge.builder("orders.feed.subscribers", subscribers, Set::size)
+                .description("Connected order feed (SSE) clients")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(s -> s.close(true));
+    }
+
+    /**
+     * Register a new screen.
+     *
+     * @param lastEventId value of the Last-Event-ID header sent by a reconnecting EventSource, may be null
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = newEmitter(Duration.ofMinutes(emitterTimeoutMinutes).toMillis());
+        Subscriber sub = new Subscriber(emitter, new ArrayBlockingQueue<>(clientQueueSize));
+
+        Long after = parseEventId(lastEventId);
+        List<Entry> backlog;
+        boolean resync;
+        synchronized (replay) {
+            long oldest = replay.isEmpty() ? idSeq.get() + 1 : replay.peekFirst().id();
+            // Gap: events between after and oldest were evicted, or the id comes from before a restart.
+            resync = after != null && (after < oldest - 1 || after > idSeq.get());
+            backlog = (after == null || resync) ? List.of() : entriesAfter(after);
+            subscribers.add(sub);
+        }
+
+        emitter.onCompletion(() -> sub.close(false));
+        emitter.onTimeout(() -> sub.close(false));
+        emitter.onError(ex -> sub.close(false));
+
+        sub.thread = Thread.ofVirtual().name("order-feed-subscriber").start(() -> run(sub, backlog, resync));
+        return emitter;
+    }
+
+    /**
+     * Publish with an id assigned by this node (no relay).
+     */
+    public void publish(OrderFeedEvent event) {
+        synchronized (replay) {
+            append(new Entry(idSeq.incrementAndGet(), event));
+        }
+        publishedCounter.increment();
+    }
+
+    /**
+     * Publish with an id shared by all nodes; the relay delivers them in increasing order.
+     */
+    public void publish(long id, OrderFeedEvent event) {
+        synchronized (replay) {
+            idSeq.set(id);
+            append(new Entry(id, event));
+        }
+        publishedCounter.increment();
+    }
+
+    /**
+     * Events may have been missed (relay reconnected, or a change could not be relayed):
+     * drop the replay buffer and tell every connected screen to reload.
+     */
+    public void resync() {
+        synchronized (replay) {
+            replay.clear();
+            Entry marker = new Entry(idSeq.get(), null);
+            for (Subscriber sub : subscribers) {
+                offer(sub, marker);
+            }
+        }
+    }
+
+    /**
+     * Extension point for tests.
+     */
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // ===== internals =====
+
+    // caller holds the replay lock
+    private void append(Entry entry) {
+        replay.addLast(entry);
+        while (replay.size() > replaySize) {
+            replay.pollFirst();
+        }
+        for (Subscriber sub : subscribers) {
+            offer(sub, entry);
+        }
+    }
+
+    private void offer(Subscriber sub, Entry entry) {
+        if (!sub.queue.offer(entry)) {
+            droppedCounter.increment();
+            log.warn("Order feed client too slow, disconnecting. lastId={}", entry.id());
+            sub.close(true);
+        }
+    }
+
+    private void run(Subscriber sub, List<Entry> backlog, boolean resync) {
+        try {
+            if (resync) {
+                sendResync(sub, idSeq.get());
+            }
+            for (Entry e : backlog) {
+                send(sub, e);
+            }
+            while (!sub.closed) {
+                Entry e = sub.queue.poll(heartbeatSeconds, TimeUnit.SECONDS);
+                if (sub.closed) break;
+                if (e == null) {
+                    // Keeps proxies from closing idle connections and detects dead clients.
+                    sub.emitter.send(SseEmitter.event().comment("ping"));
+                } else if (e.event() == null) {
+                    sendResync(sub, e.id());
+                } else {
+                    send(sub, e);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            // Client went away (IOException) or emitter already completed (IllegalStateException).
+            log.debug("Order feed client disconnected: {}", ex.toString());
+        } finally {
+            sub.close(true);
+        }
+    }
+
+    private static void send(Subscriber sub, Entry e) throws Exception {
+        sub.emitter.send(SseEmitter.event()
+                .id(String.valueOf(e.id()))
+                .name(e.event().eventName())
+                .data(e.event()));
+    }
+
+    private static void sendResync(Subscriber sub, long id) throws Exception {
+        sub.emitter.send(SseEmitter.event().name(RESYNC_EVENT).id(String.valueOf(id)).data(""));
+    }
+
+    private List<Entry> entriesAfter(long after) {
+        List<Entry> out = new ArrayList<>();
+        for (Entry e : replay) {
+            if (e.id() > after) out.add(e);
+        }
+        return out;
+    }
+
+    private static Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) return null;
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<Entry> queue;
+        volatile Thread thread;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, BlockingQueue<Entry> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        void close(boolean completeEmitter) {
+            if (closed) return;
+            closed = true;
+            subscribers.remove(this);
+            if (completeEmitter) {
+                try {
+                    emitter.complete();
+                } catch (Exception ignored) {
+                    // already completed
+                }
+            }
+            Thread t = thread;
+            if (t != null && t != Thread.currentThread()) {
+                t.interrupt();
+            }
+        }
+    }
+}
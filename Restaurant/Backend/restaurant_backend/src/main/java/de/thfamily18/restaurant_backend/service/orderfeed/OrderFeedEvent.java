@@ -0,0 +1,40 @@
+package de.thfamily18.restaurant_backend.service.orderfeed;
+
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.entity.OrderStatus;
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Order change pushed to the live kitchen feed.
+ * Published by OrderService / StripeWebhookService; delivered only after the transaction has committed.
+ */
+public record OrderFeedEvent(
+        Type type,
+        UUID orderId,
+        OrderStatus orderStatus,
+        PaymentStatus paymentStatus,
+        PaymentMethod paymentMethod,
+        String stripePaymentIntentId,
+        BigDecimal totalPrice,
+        LocalDateTime createdAt
+) {
+
+    public enum Type { ORDER_CREATED, ORDER_STATUS_CHANGED, PAYMENT_UPDATED }
+
+    public static OrderFeedEvent of(Type type, Order o) {
+        return new OrderFeedEvent(type, o.getId(), o.getOrderStatus(), o.getPaymentStatus(),
+                o.getPaymentMethod(), o.getStripePaymentIntentId(), o.getTotalPrice(), o.getCreatedAt());
+    }
+
+    /**
+     * SSE event name, e.g. "order-created".
+     */
+    public String eventName() {
+        return type.name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,171 @@
+package de.thfamily18.restaurant_backend.service.orderfeed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Carries committed {@link OrderFeedEvent}s to the {@link OrderFeedBroadcaster} of every node,
+ * so a kitchen screen sees changes committed on any node (orders, webhooks applied by another node's inbox worker).
+ *
+ * - Sending: after commit, on its own thread and connection. Under a transaction-level advisory lock the event
+ *   takes the next value of order_feed_event_seq and is sent with pg_notify; Postgres delivers notifications
+ *   in commit order, so every node receives the events in id order.
+ * - Receiving: a LISTEN loop on one dedicated connection publishes each event with its shared id,
+ *   including the events this node sent.
+ * - Whenever events may have been missed (LISTEN (re)connected, a send failed), connected screens are told
+ *   to resync.
+ *
+ * If LISTEN is off or the database is not Postgres, events are published locally with node-local ids.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderFeedRelay {
+
+    static final String CHANNEL = "order_feed";
+    // pg_advisory_xact_lock key serializing id assignment and NOTIFY across nodes
+    static final long LOCK_KEY = 0x6f72646572L;
+
+    private final OrderFeedBroadcaster broadcaster;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.orderFeed.listen.enabled:true}")
+    private boolean listenEnabled;
+
+    @Value("${app.orderFeed.listen.timeoutMillis:10000}")
+    private int timeoutMillis;
+
+    @Value("${app.orderFeed.listen.reconnectMillis:5000}")
+    private long reconnectMillis;
+
+    private volatile boolean running;
+    // true while the LISTEN connection is up; until then events are published locally
+    private volatile boolean listening;
+    private Thread listenThread;
+
+    private ExecutorService notifier;
+    private Counter relayFailedCounter;
+
+    record Relayed(long id, OrderFeedEvent event) {}
+
+    @PostConstruct
+    void init() {
+        notifier = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("order-feed-notify").factory());
+        relayFailedCounter = meterRegistry.counter("orders.feed.relay.failed");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderEvent(OrderFeedEvent event) {
+        if (!listening) {
+            broadcaster.publish(event);
+            return;
+        }
+        notifier.execute(() -> send(event));
+    }
+
+    private void send(OrderFeedEvent event) {
+        try {
+            tx.executeWithoutResult(status -> {
+                jdbc.queryForList("select pg_advisory_xact_lock(?)", LOCK_KEY);
+                Long id = jdbc.queryForObject("select nextval('order_feed_event_seq')", Long.class);
+                String payload = objectMapper.writeValueAsString(new Relayed(id, event));
+                jdbc.queryForList("select pg_notify(?, ?)", CHANNEL, payload);
+            });
+        } catch (Exception ex) {
+            // The change is committed; screens reload it via REST.
+            relayFailedCounter.increment();
+            log.warn("Relaying order feed event failed, screens resync. orderId={}: {}", event.orderId(), ex.toString());
+            broadcaster.resync();
+        }
+    }
+
+    void receive(String payload) {
+        try {
+            Relayed relayed = objectMapper.readValue(payload, Relayed.class);
+            broadcaster.publish(relayed.id(), relayed.event());
+        } catch (Exception ex) {
+            log.warn("Unreadable order feed notification, screens resync: {}", ex.toString());
+            broadcaster.resync();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!listenEnabled) return;
+        running = true;
+        listenThread = Thread.ofPlatform().name("order-feed-listen").daemon().start(this::listenLoop);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        listening = false;
+        if (notifier != null) notifier.shutdownNow();
+        if (listenThread != null) listenThread.interrupt();
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection conn = dataSource.getConnection()) {
+                if (!conn.isWrapperFor(PGConnection.class)) {
+                    log.info("Database is not Postgres, LISTEN {} disabled (order feed is local to each node)", CHANNEL);
+                    return;
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                // LISTEN only takes effect once committed.
+                if (!conn.getAutoCommit()) conn.commit();
+                log.info("Listening on {}", CHANNEL);
+
+                // Published locally, or not received, while we were not listening.
+                listening = true;
+                broadcaster.resync();
+
+                while (running) {
+                    PGNotification[] received = pg.getNotifications(timeoutMillis);
+                    if (received == null) continue;
+                    for (PGNotification n : received) {
+                        receive(n.getParameter());
+                    }
+                }
+            } catch (SQLException ex) {
+                listening = false;
+                if (!running) return;
+                log.warn("LISTEN {} connection lost, reconnecting in {} ms: {}", CHANNEL, reconnectMillis, ex.toString());
+                try {
+                    Thread.sleep(reconnectMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import de.thfamily18.restaurant_backend.dto.payment.BulkRefundJobResponse;
+import de.thfamily18.restaurant_backend.dto.payment.BulkRefundRequest;
+import de.thfamily18.restaurant_backend.dto.payment.RefundResponse;
+import de.thfamily18.restaurant_backend.entity.BulkRefundItemStatus;
+import de.thfamily18.restaurant_backend.entity.BulkRefundJobStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
+import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
+import de.thfamily18.restaurant_backend.service.StripeRefundService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refunds many orders at once (e.g. a cancelled catering event).
+ *
+ * Each item runs {@link StripeRefundService#refundOrder} (same validation and idempotency keys as a single
+ * refund, no DB connection held during the Stripe call) on a pool of app.payment.bulkRefund.concurrency
+ * virtual threads shared by all jobs. Submitting returns a job id right away; progress and per-item results
+ * are kept in memory on this node for app.payment.bulkRefund.retentionMinutes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkRefundService {
+
+    private final StripeRefundService refundService;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.bulkRefund.concurrency:8}")
+    private int concurrency;
+
+    @Value("${app.payment.bulkRefund.retentionMinutes:60}")
+    private long retentionMinutes;
+
+    private ExecutorService pool;
+    private final ConcurrentHashMap<UUID, Job> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        pool = Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("bulk-refund-", 0).factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @throws IllegalArgumentException if an order appears twice
+     */
+    public BulkRefundJobResponse submit(BulkRefundRequest req) {
+        Set<UUID> seen = new HashSet<>();
+        for (BulkRefundRequest.Item i : req.items()) {
+            if (!seen.add(i.orderId())) {
+                throw new IllegalArgumentException("Duplicate orderId in bulk refund: " + i.orderId());
+            }
+        }
+
+        Job job = new Job(UUID.randomUUID(), now(), req.items().stream().map(ItemState::new).toList());
+        jobs.put(job.id, job);
+        log.info("Bulk refund started. jobId={}, items={}", job.id, job.items.size());
+
+        for (ItemState item : job.items) {
+            pool.execute(() -> run(job, item, req.reason()));
+        }
+        return job.toResponse();
+    }
+
+    public BulkRefundJobResponse get(UUID jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) throw new ResourceNotFoundException("Bulk refund job not found: " + jobId);
+        return job.toResponse();
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.bulkRefund.purgeMillis:300000}")
+    public void purgeFinished() {
+        LocalDateTime cutoff = now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+
+    private void run(Job job, ItemState item, String reason) {
+        item.status = BulkRefundItemStatus.RUNNING;
+        try {
+            RefundResponse res = refundService.refundOrder(item.orderId, item.amount, reason);
+            item.refundId = res.refundId();
+            item.refundStatus = res.refundStatus();
+            item.status = BulkRefundItemStatus.SUCCEEDED;
+            meterRegistry.counter("payments.refund.bulk.items", "outcome", "succeeded").increment();
+        } catch (Exception ex) {
+            item.error = ex.getMessage();
+            item.status = BulkRefundItemStatus.FAILED;
+            meterRegistry.counter("payments.refund.bulk.items", "outcome", "failed").increment();
+            log.warn("Bulk refund item failed. jobId={}, orderId={}, error={}", job.id, item.orderId, ex.toString());
+        }
+        if (job.remaining.decrementAndGet() == 0) {
+            job.finishedAt = now();
+            log.info("Bulk refund finished. jobId={}, items={}", job.id, job.items.size());
+        }
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    private static final class ItemState {
+        final UUID orderId;
+        final BigDecimal amount;
+        volatile BulkRefundItemStatus status = BulkRefundItemStatus.PENDING;
+        volatile String refundId;
+        volatile RefundStatus refundStatus;
+        volatile String error;
+
+        ItemState(BulkRefundRequest.Item req) {
+            this.orderId = req.orderId();
+            this.amount = req.amount();
+        }
+
+        BulkRefundJobResponse.Item toResponse() {
+            return new BulkRefundJobResponse.Item(orderId, amount, status, refundId, refundStatus, error);
+        }
+    }
+
+    private static final class Job {
+        final UUID id;
+        final LocalDateTime createdAt;
+        final List<ItemState> items;
+        final AtomicInteger remaining;
+        volatile LocalDateTime finishedAt;
+
+        Job(UUID id, LocalDateTime createdAt, List<ItemState> items) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.items = items;
+            this.remaining = new AtomicInteger(items.size());
+        }
+
+        BulkRefundJobResponse toResponse() {
+            List<BulkRefundJobResponse.Item> out = items.stream().map(ItemState::toResponse).toList();
+            int succeeded = (int) out.stream().filter(i -> i.status() == BulkRefundItemStatus.SUCCEEDED).count();
+            int failed = (int) out.stream().filter(i -> i.status() == BulkRefundItemStatus.FAILED).count();
+            BulkRefundJobStatus status = finishedAt == null ? BulkRefundJobStatus.RUNNING : BulkRefundJobStatus.DONE;
+            return new BulkRefundJobResponse(id, status,
+                    out.size(), succeeded, failed, out.size() - succeeded - failed, createdAt, finishedAt, out);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Stripe transport on top of java.net.http.HttpClient.
+ *
+ * Unlike the default HttpURLConnection transport, one client instance keeps a shared pool of
+ * keep-alive connections (HTTP/2 with ALPN against api.stripe.com), and the per-request read timeout
+ * from RequestOptions is enforced as a hard deadline for the whole response.
+ */
+public class JdkStripeHttpClient extends HttpClient {
+
+    // Managed by java.net.http itself; setting them is rejected.
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final java.net.http.HttpClient client;
+    private final Duration defaultTimeout;
+
+    public JdkStripeHttpClient(Duration connectTimeout, Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+        this.client = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        HttpRequest httpRequest = toHttpRequest(request);
+        try {
+            HttpResponse<String> res = client.send(httpRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            return new StripeResponse(res.statusCode(), HttpHeaders.of(res.headers().map()), res.body());
+        } catch (HttpTimeoutException e) {
+            throw new ApiConnectionException("Stripe request timed out: " + request.method() + " " + request.url().getPath(), e);
+        } catch (IOException e) {
+            throw new ApiConnectionException("IOException during Stripe request: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Interrupted during Stripe request", e);
+        }
+    }
+
+    private HttpRequest toHttpRequest(StripeRequest request) throws ApiConnectionException {
+        Integer readTimeout = request.options() == null ? null : request.options().getReadTimeout();
+        HttpContent content = request.content();
+
+        HttpRequest.Builder b;
+        try {
+            b = HttpRequest.newBuilder(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Invalid Stripe URL: " + request.url(), e);
+        }
+        b.timeout(readTimeout == null || readTimeout <= 0 ? defaultTimeout : Duration.ofMillis(readTimeout));
+        if ("http".equals(request.url().getProtocol())) {
+            // Local stubs: skip the h2c upgrade dance.
+            b.version(java.net.http.HttpClient.Version.HTTP_1_1);
+        }
+
+        HttpHeaders headers = request.headers().withAdditionalHeaders(Map.of(
+                "User-Agent", List.of(buildUserAgentString()),
+                "X-Stripe-Client-User-Agent", List.of(buildXStripeClientUserAgentString())
+        ));
+        headers.map().forEach((name, values) -> {
+            if (RESTRICTED_HEADERS.contains(name.toLowerCase())) return;
+            values.forEach(v -> b.header(name, v));
+        });
+
+        if (content == null) {
+            b.method(request.method().name(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            if (headers.firstValue("Content-Type").isEmpty()) {
+                b.header("Content-Type", content.contentType());
+            }
+            b.method(request.method().name(), HttpRequest.BodyPublishers.ofByteArray(content.byteArrayContent()));
+        }
+        return b.build();
+    }
+}
@@ -0,0 +1,165 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCancelParams;
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.entity.OrderStatus;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expires STRIPE orders that are still unpaid after app.payment.ttlMinutes (plus a grace period).
+ *
+ * - Tx per batch: lock expired PENDING orders with SKIP LOCKED (safe on several nodes), set them
+ *   CANCELED / CANCELLED and publish the payment update.
+ * - After commit, the dangling PaymentIntent is canceled through StripeGateway (no transaction held).
+ *   If Stripe reports it succeeded in the meantime, the order goes back to NEW and the succeeded
+ *   webhook marks it PAID.
+ *
+ * The grace period keeps the sweep clear of createPaymentIntent, which refuses orders older than the TTL.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentExpirySweeper {
+
+    private final OrderRepository orderRepo;
+    private final StripeGateway stripeGateway;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.ttlMinutes:30}")
+    private long ttlMinutes;
+
+    @Value("${app.payment.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.payment.expiry.graceMinutes:5}")
+    private long graceMinutes;
+
+    @Value("${app.payment.expiry.batchSize:100}")
+    private int batchSize;
+
+    // Bounds one run; the rest is picked up by the next run.
+    @Value("${app.payment.expiry.maxBatchesPerRun:20}")
+    private int maxBatchesPerRun;
+
+    private record Expired(UUID orderId, String paymentIntentId) {}
+
+    private final AtomicLong backlog = new AtomicLong();
+
+    private Counter expiredCounter;
+
+    @PostConstruct
+    void init() {
+        expiredCounter = meterRegistry.counter("orders.payment.expired");
+        Gauge.builder("orders.payment.expiry.backlog", backlog, AtomicLong::get)
+                .description("Unpaid Stripe orders past their payment TTL, not expired yet")
+                .register(meterRegistry);
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now(clock).minusMinutes(ttlMinutes + graceMinutes);
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.expiry.sweepMillis:60000}")
+    public void sweep() {
+        if (!enabled) return;
+
+        LocalDateTime cutoff = cutoff();
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<Expired> batch = expireBatch(cutoff);
+            batch.forEach(this::cancelPaymentIntent);
+            total += batch.size();
+            if (batch.size() < batchSize) break;
+        }
+        if (total > 0) {
+            log.info("Expired {} unpaid orders (created before {})", total, cutoff);
+        }
+        refreshBacklog();
+    }
+
+    private void refreshBacklog() {
+        backlog.set(orderRepo.countExpiredPending(cutoff()));
+    }
+
+    private List<Expired> expireBatch(LocalDateTime cutoff) {
+        List<Expired> out = tx.execute(status -> {
+            List<Order> locked = orderRepo.lockExpiredPending(cutoff, batchSize);
+            List<Expired> expired = new ArrayList<>(locked.size());
+            for (Order o : locked) {
+                o.setPaymentStatus(PaymentStatus.CANCELED);
+                o.setOrderStatus(OrderStatus.CANCELLED);
+                events.publishEvent(OrderFeedEvent.of(OrderFeedEvent.Type.PAYMENT_UPDATED, o));
+                expired.add(new Expired(o.getId(), o.getStripePaymentIntentId()));
+            }
+            return expired;
+        });
+        if (out == null) return List.of();
+        expiredCounter.increment(out.size());
+        return out;
+    }
+
+    private void cancelPaymentIntent(Expired e) {
+        if (e.paymentIntentId() == null || e.paymentIntentId().isBlank()) return;
+
+        String outcome;
+        try {
+            stripeGateway.cancelPaymentIntent(e.paymentIntentId(),
+                    PaymentIntentCancelParams.builder()
+                            .setCancellationReason(PaymentIntentCancelParams.CancellationReason.ABANDONED)
+                            .build(),
+                    RequestOptions.builder().setIdempotencyKey("expire:" + e.orderId()).build());
+            outcome = "canceled";
+        } catch (InvalidRequestException ex) {
+            // Not cancelable any more: find out why.
+            outcome = resolveNotCancelable(e);
+        } catch (Exception ex) {
+            outcome = "failed";
+            log.warn("Canceling PaymentIntent of expired order failed. orderId={}, piId={}, error={}",
+                    e.orderId(), e.paymentIntentId(), ex.toString());
+        }
+        meterRegistry.counter("orders.payment.expiry.pi_cancel", "outcome", outcome).increment();
+    }
+
+    private String resolveNotCancelable(Expired e) {
+        try {
+            PaymentIntent pi = stripeGateway.retrievePaymentIntent(e.paymentIntentId());
+            if ("succeeded".equals(pi.getStatus()) || "processing".equals(pi.getStatus())) {
+                orderRepo.reopenExpired(e.orderId());
+                log.warn("Expired order was paid meanwhile, reopened. orderId={}, piId={}, piStatus={}",
+                        e.orderId(), e.paymentIntentId(), pi.getStatus());
+                return "already_paid";
+            }
+            return "canceled".equals(pi.getStatus()) ? "already_canceled" : "failed";
+        } catch (Exception ex) {
+            log.warn("Checking PaymentIntent of expired order failed. orderId={}, piId={}, error={}",
+                    e.orderId(), e.paymentIntentId(), ex.toString());
+            return "failed";
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.service.StripePaymentService;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Creates the PaymentIntent of a STRIPE order right after the order is committed (app.payment.precreate.enabled),
+ * so the client's POST /api/payments/stripe/intents is usually answered from {@link PaymentIntentSecretCache}.
+ *
+ * Best effort: when too many pre-creations are in flight or Stripe fails, the order is skipped and the
+ * intents endpoint creates the intent on demand. Both paths use the same idempotency key (order:{id}),
+ * so a race between them still yields one PaymentIntent.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentIntentPrecreator {
+
+    private final StripePaymentService stripePaymentService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.precreate.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.payment.precreate.maxInFlight:16}")
+    private int maxInFlight;
+
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("pi-precreate-", 0).factory());
+    private Semaphore inFlight;
+
+    @PostConstruct
+    void init() {
+        inFlight = new Semaphore(maxInFlight);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderEvent(OrderFeedEvent event) {
+        if (!enabled
+                || event.type() != OrderFeedEvent.Type.ORDER_CREATED
+                || event.paymentMethod() != PaymentMethod.STRIPE
+                || event.paymentStatus() != PaymentStatus.PENDING) {
+            return;
+        }
+        if (!inFlight.tryAcquire()) {
+            record("skipped");
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    stripePaymentService.createPaymentIntent(event.orderId());
+                    record("created");
+                } catch (Exception ex) {
+                    record("failed");
+                    log.warn("PaymentIntent pre-creation failed, client will create it. orderId={}, error={}",
+                            event.orderId(), ex.toString());
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.release();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void record(String outcome) {
+        meterRegistry.counter("payments.intent.precreate", "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,94 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import de.thfamily18.restaurant_backend.dto.payment.CreateStripeIntentResponse;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PaymentIntent client secrets per order, so POST /api/payments/stripe/intents can answer without Stripe.
+ *
+ * An entry lives until the order's payment TTL (createdAt + app.payment.ttlMinutes) and is dropped as soon
+ * as a payment update for the order is committed. Local to this node: another node that saw the
+ * payment update may still hand out the secret of a finished PaymentIntent, which Stripe.js handles
+ * (same as returning an existing intent from the database).
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentIntentSecretCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.intentCache.maxEntries:50000}")
+    private int maxEntries;
+
+    private record Entry(CreateStripeIntentResponse intent, LocalDateTime expiresAt) {}
+
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = meterRegistry.counter("payments.intent.cache.lookups", "result", "hit");
+        misses = meterRegistry.counter("payments.intent.cache.lookups", "result", "miss");
+        Gauge.builder("payments.intent.cache.entries", entries, ConcurrentHashMap::size)
+                .description("Cached PaymentIntent client secrets")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the cached intent, or null if none or expired
+     */
+    public CreateStripeIntentResponse get(UUID orderId) {
+        Entry e = entries.get(orderId);
+        if (e == null || !e.expiresAt().isAfter(LocalDateTime.now())) {
+            if (e != null) entries.remove(orderId, e);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.intent();
+    }
+
+    public void put(UUID orderId, CreateStripeIntentResponse intent, LocalDateTime expiresAt) {
+        if (intent.clientSecret() == null || !expiresAt.isAfter(LocalDateTime.now())) return;
+        // Full: keep serving what is cached, new orders fall back to Stripe.
+        if (entries.size() >= maxEntries && !entries.containsKey(orderId)) return;
+        entries.put(orderId, new Entry(intent, expiresAt));
+    }
+
+    public void evict(UUID orderId) {
+        entries.remove(orderId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderEvent(OrderFeedEvent event) {
+        if (event.type() == OrderFeedEvent.Type.PAYMENT_UPDATED) {
+            entries.remove(event.orderId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.intentCache.purgeMillis:60000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        entries.values().removeIf(e -> !e.expiresAt().isAfter(now));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
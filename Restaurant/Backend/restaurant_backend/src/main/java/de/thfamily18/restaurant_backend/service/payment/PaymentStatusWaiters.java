@@ -0,0 +1,117 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import de.thfamily18.restaurant_backend.dto.payment.PaymentStatusResponse;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import de.thfamily18.restaurant_backend.exception.TooManyWaitersException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory registry of requests waiting for a payment status change of an order (long-poll).
+ *
+ * Waiters are completed as soon as a payment update committed by the Stripe webhook is published,
+ * without another database read. The registry is local to this node: if the webhook lands on a
+ * different node, the waiter simply times out and the client asks again.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentStatusWaiters {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.payment.statusWait.maxWaiters:10000}")
+    private int maxWaiters;
+
+    // Sent as Retry-After when full; spreads the retries of rejected clients.
+    @Value("${app.payment.statusWait.retryAfterSeconds:5}")
+    private long retryAfterSeconds;
+
+    private final ConcurrentHashMap<UUID, Set<CompletableFuture<PaymentStatusResponse>>> waiters =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("payments.status.waiters", count, AtomicInteger::get)
+                .description("Requests parked waiting for a payment status change")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("payments.status.waiters.rejected")
+                .description("Long-polls answered with 503 because maxWaiters was reached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return a future completed with the new status, or null if too many requests are already waiting
+     *         (see {@link #rejected(UUID)})
+     */
+    public CompletableFuture<PaymentStatusResponse> register(UUID orderId) {
+        if (count.incrementAndGet() > maxWaiters) {
+            count.decrementAndGet();
+            return null;
+        }
+        CompletableFuture<PaymentStatusResponse> f = new CompletableFuture<>();
+        // compute() is atomic with the remove() in complete(), so a registration is never lost.
+        waiters.compute(orderId, (id, set) -> {
+            Set<CompletableFuture<PaymentStatusResponse>> s = (set == null) ? ConcurrentHashMap.newKeySet() : set;
+            s.add(f);
+            return s;
+        });
+        return f;
+    }
+
+    /**
+     * Drop a waiter that timed out or was answered otherwise. No-op if it was already completed.
+     */
+    public void release(UUID orderId, CompletableFuture<PaymentStatusResponse> f) {
+        waiters.computeIfPresent(orderId, (id, set) -> {
+            if (set.remove(f)) count.decrementAndGet();
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderEvent(OrderFeedEvent event) {
+        if (event.type() != OrderFeedEvent.Type.PAYMENT_UPDATED) return;
+
+        Set<CompletableFuture<PaymentStatusResponse>> set = waiters.remove(event.orderId());
+        if (set == null) return;
+
+        PaymentStatusResponse status = new PaymentStatusResponse(
+                event.orderId(),
+                event.stripePaymentIntentId(),
+                event.paymentStatus().name(),
+                event.orderStatus().name()
+        );
+        for (CompletableFuture<PaymentStatusResponse> f : set) {
+            count.decrementAndGet();
+            f.complete(status);
+        }
+    }
+
+    /**
+     * For a request that could not be registered and has nothing new to answer: tell the client when to come back.
+     */
+    public TooManyWaitersException rejected(UUID orderId) {
+        rejectedCounter.increment();
+        return new TooManyWaitersException(
+                "Too many status waiters (" + maxWaiters + "), rejected orderId=" + orderId, retryAfterSeconds);
+    }
+
+    public int size() {
+        return count.get();
+    }
+}
@@ -0,0 +1,77 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Consecutive-failure circuit breaker for calls to Stripe.
+ *
+ * - CLOSED: calls pass; failureThreshold failures in a row open the circuit.
+ * - OPEN: calls fail fast until openDuration has passed.
+ * - HALF_OPEN: a single probe call is let through; success closes, failure re-opens.
+ *
+ * Only outages count as failures (network errors, timeouts, 5xx, 429); declined cards or invalid
+ * requests mean Stripe is healthy.
+ */
+public class StripeCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean probeInFlight;
+
+    public StripeCircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * @return false if the call must fail fast. A true result must be followed by exactly one
+     *         of onSuccess, onFailure or onAbandoned.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (Instant.now(clock).isBefore(openedAt.plus(openDuration))) return false;
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) return false;
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = Instant.now(clock);
+        }
+    }
+
+    /**
+     * Permit was acquired but the call was never made (e.g. rejected by the bulkhead).
+     */
+    public synchronized void onAbandoned() {
+        probeInFlight = false;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -1,49 +1,224 @@
 package de.thfamily18.restaurant_backend.service.payment;
 
 import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
+import com.stripe.model.StripeCollection;
 import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCancelParams;
 import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentListParams;
 import com.stripe.param.RefundCreateParams;
+import com.stripe.param.RefundListParams;
+import de.thfamily18.restaurant_backend.exception.PaymentProviderUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.net.http.HttpTimeoutException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single entry point for Stripe API calls.
+ *
+ * Every call goes through, in this order:
+ * - circuit breaker: fail fast with {@link PaymentProviderUnavailableException} while Stripe is down,
+ * - bulkhead: at most app.stripe.bulkhead.maxConcurrent calls in flight (virtual threads would
+ *   otherwise pile up without bound), waiting at most maxWaitMillis for a slot,
+ * - per-operation read timeout (RequestOptions), unless the caller set one.
+ *
+ * Timer stripe.api.calls{operation, outcome} records every call, including rejected ones.
+ * Callers must not hold a database transaction while calling the gateway.
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class StripeGateway {
 
     private final StripeClient stripe;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.stripe.bulkhead.maxConcurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${app.stripe.bulkhead.maxWaitMillis:250}")
+    private long maxWaitMillis;
+
+    @Value("${app.stripe.circuit.failureThreshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.stripe.circuit.openSeconds:30}")
+    private long openSeconds;
+
+    @Value("${app.stripe.timeouts.retrieveMillis:5000}")
+    private int retrieveTimeoutMillis;
+
+    @Value("${app.stripe.timeouts.createPaymentIntentMillis:10000}")
+    private int createPaymentIntentTimeoutMillis;
+
+    @Value("${app.stripe.timeouts.createRefundMillis:15000}")
+    private int createRefundTimeoutMillis;
+
+    private Semaphore bulkhead;
+    private StripeCircuitBreaker breaker;
+
+    @PostConstruct
+    void init() {
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.breaker = new StripeCircuitBreaker(failureThreshold, Duration.ofSeconds(openSeconds), clock);
+
+        Gauge.builder("stripe.api.inflight", bulkhead, b -> maxConcurrent - b.availablePermits())
+                .description("Stripe API calls currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("stripe.api.circuit.open", breaker, b -> b.state() == StripeCircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while the Stripe circuit breaker is open or half-open")
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface StripeCall<T> {
+        T execute(RequestOptions options) throws StripeException;
+    }
 
     // ===== PaymentIntent =====
 
     public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
-        return stripe.paymentIntents().retrieve(paymentIntentId);
+        return call("retrievePaymentIntent", retrieveTimeoutMillis, null,
+                o -> stripe.paymentIntents().retrieve(paymentIntentId, o));
     }
 
     public PaymentIntent createPaymentIntent(PaymentIntentCreateParams params, RequestOptions requestOptions) throws StripeException {
-        if (requestOptions == null) {
-            return stripe.paymentIntents().create(params);
-        }
-        return stripe.paymentIntents().create(params, requestOptions);
+        return call("createPaymentIntent", createPaymentIntentTimeoutMillis, requestOptions,
+                o -> stripe.paymentIntents().create(params, o));
     }
 
     // Convenience overload (optional)
     public PaymentIntent createPaymentIntent(PaymentIntentCreateParams params) throws StripeException {
-        return stripe.paymentIntents().create(params);
+        return createPaymentIntent(params, null);
+    }
+
+    public PaymentIntent cancelPaymentIntent(String paymentIntentId, PaymentIntentCancelParams params,
+                                             RequestOptions requestOptions) throws StripeException {
+        return call("cancelPaymentIntent", createPaymentIntentTimeoutMillis, requestOptions,
+                o -> stripe.paymentIntents().cancel(paymentIntentId, params, o));
     }
 
     // ===== Refund =====
 
     public Refund createRefund(RefundCreateParams params, RequestOptions requestOptions) throws StripeException {
-        if (requestOptions == null) {
-            return stripe.refunds().create(params);
-        }
-        return stripe.refunds().create(params, requestOptions);
+        return call("createRefund", createRefundTimeoutMillis, requestOptions,
+                o -> stripe.refunds().create(params, o));
     }
 
     public Refund retrieveRefund(String refundId) throws StripeException {
-        return stripe.refunds().retrieve(refundId);
+        return call("retrieveRefund", retrieveTimeoutMillis, null,
+                o -> stripe.refunds().retrieve(refundId, o));
+    }
+
+    // ===== Lists (one page per call; used by StripeReconciler) =====
+
+    public StripeCollection<PaymentIntent> listPaymentIntents(PaymentIntentListParams params) throws StripeException {
+        return call("listPaymentIntents", retrieveTimeoutMillis, null,
+                o -> stripe.paymentIntents().list(params, o));
+    }
+
+    public StripeCollection<Refund> listRefunds(RefundListParams params) throws StripeException {
+        return call("listRefunds", retrieveTimeoutMillis, null,
+                o -> stripe.refunds().list(params, o));
+    }
+
+    public StripeCircuitBreaker.State circuitState() {
+        return breaker.state();
+    }
+
+    // ===== internals =====
+
+    private <T> T call(String operation, int timeoutMillis, RequestOptions requestOptions, StripeCall<T> call)
+            throws StripeException {
+        if (!breaker.tryAcquire()) {
+            record(operation, "circuit_open", 0);
+            throw new PaymentProviderUnavailableException("Stripe circuit open, not calling " + operation);
+        }
+
+        boolean permit;
+        try {
+            permit = bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permit = false;
+        }
+        if (!permit) {
+            breaker.onAbandoned();
+            record(operation, "bulkhead_full", 0);
+            throw new PaymentProviderUnavailableException("Too many concurrent Stripe calls, rejected " + operation);
+        }
+
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            T result = call.execute(withTimeout(requestOptions, timeoutMillis));
+            breaker.onSuccess();
+            return result;
+        } catch (StripeException e) {
+            outcome = outcome(e);
+            if (isOutage(e)) {
+                breaker.onFailure();
+                log.warn("Stripe call failed. operation={}, outcome={}, circuit={}", operation, outcome, breaker.state());
+            } else {
+                breaker.onSuccess();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            breaker.onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+            record(operation, outcome, System.nanoTime() - start);
+        }
+    }
+
+    private static RequestOptions withTimeout(RequestOptions requestOptions, int timeoutMillis) {
+        RequestOptions.RequestOptionsBuilder b =
+                requestOptions == null ? RequestOptions.builder() : requestOptions.toBuilderFullCopy();
+        if (b.getReadTimeout() == null) {
+            b.setReadTimeout(timeoutMillis);
+        }
+        return b.build();
+    }
+
+    private void record(String operation, String outcome, long nanos) {
+        Timer.builder("stripe.api.calls")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isOutage(StripeException e) {
+        if (e instanceof ApiConnectionException || e instanceof RateLimitException) return true;
+        return e instanceof ApiException && (e.getStatusCode() == null || e.getStatusCode() >= 500);
+    }
+
+    private static String outcome(StripeException e) {
+        if (e instanceof ApiConnectionException) {
+            return e.getCause() instanceof HttpTimeoutException ? "timeout" : "io_error";
+        }
+        if (e instanceof RateLimitException) return "rate_limited";
+        if (isOutage(e)) return "server_error";
+        return "client_error";
     }
 }
@@ -0,0 +1,353 @@
+package de.thfamily18.restaurant_backend.service.payment;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.model.StripeCollection;
+import com.stripe.param.PaymentIntentListParams;
+import com.stripe.param.RefundListParams;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
+import de.thfamily18.restaurant_backend.repository.OrderPaymentSnapshot;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.StripeWebhookService;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayload;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catches payments and refunds whose webhook was lost or rejected.
+ *
+ * Pages through the PaymentIntents and Refunds created in the lookback window (newest first), compares each
+ * page against orders with one query and repairs divergences through {@link StripeWebhookService}, i.e. the
+ * same transitions a webhook would apply. Objects younger than minAgeMinutes are left to the webhook.
+ *
+ * Stripe calls share a token bucket (app.stripe.reconcile.requestsPerSecond) and repairs run on a small pool
+ * (app.stripe.reconcile.concurrency), so a run never competes with live checkout for the StripeGateway bulkhead.
+ * Repairs are idempotent; a run on several nodes only costs extra Stripe reads.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StripeReconciler {
+
+    private final StripeGateway stripeGateway;
+    private final OrderRepository orderRepo;
+    private final StripeWebhookService webhookService;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.stripe.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.stripe.reconcile.lookbackHours:24}")
+    private long lookbackHours;
+
+    @Value("${app.stripe.reconcile.minAgeMinutes:10}")
+    private long minAgeMinutes;
+
+    @Value("${app.stripe.reconcile.pageSize:100}")
+    private int pageSize;
+
+    @Value("${app.stripe.reconcile.maxPages:50}")
+    private int maxPages;
+
+    @Value("${app.stripe.reconcile.requestsPerSecond:5}")
+    private int requestsPerSecond;
+
+    @Value("${app.stripe.reconcile.concurrency:4}")
+    private int concurrency;
+
+    public record Result(int checked, int divergent, int repaired, int failed) {}
+
+    private Bucket budget;
+    private ExecutorService pool;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        budget = Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(requestsPerSecond)
+                        .refillGreedy(requestsPerSecond, Duration.ofSeconds(1))
+                        .build())
+                .build();
+        pool = Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("stripe-reconcile-", 0).factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(cron = "${app.stripe.reconcile.cron:0 */15 * * * *}")
+    public void scheduledRun() {
+        if (enabled) reconcile();
+    }
+
+    /**
+     * One pass over the window; skipped (returns null) while another pass is running on this node.
+     */
+    public Result reconcile() {
+        if (!running.compareAndSet(false, true)) return null;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Tally tally = new Tally();
+        try {
+            long until = clock.instant().minus(Duration.ofMinutes(minAgeMinutes)).getEpochSecond();
+            long since = clock.instant().minus(Duration.ofHours(lookbackHours)).getEpochSecond();
+
+            reconcilePaymentIntents(since, until, tally);
+            reconcileRefunds(since, until, tally);
+        } catch (StripeException | RuntimeException ex) {
+            log.warn("Stripe reconciliation aborted: {}", ex.toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sample.stop(meterRegistry.timer("stripe.reconcile.run"));
+            running.set(false);
+        }
+
+        Result result = tally.result();
+        if (result.divergent() > 0) {
+            log.warn("Stripe reconciliation: checked={}, divergent={}, repaired={}, failed={}",
+                    result.checked(), result.divergent(), result.repaired(), result.failed());
+        } else {
+            log.info("Stripe reconciliation: checked={}, no divergences", result.checked());
+        }
+        return result;
+    }
+
+    // ===== PaymentIntents =====
+
+    private void reconcilePaymentIntents(long since, long until, Tally tally) throws StripeException, InterruptedException {
+        String cursor = null;
+        for (int page = 0; page < maxPages; page++) {
+            PaymentIntentListParams.Builder b = PaymentIntentListParams.builder()
+                    .setLimit((long) pageSize)
+                    .setCreated(PaymentIntentListParams.Created.builder().setGte(since).setLte(until).build());
+            if (cursor != null) b.setStartingAfter(cursor);
+
+            acquire();
+            StripeCollection<PaymentIntent> coll = stripeGateway.listPaymentIntents(b.build());
+            List<PaymentIntent> data = coll.getData();
+            if (data == null || data.isEmpty()) return;
+
+            count("payment_intent", data.size());
+            tally.checked.addAndGet(data.size());
+            repair(comparePaymentIntents(data), tally);
+
+            cursor = data.getLast().getId();
+            if (!Boolean.TRUE.equals(coll.getHasMore())) return;
+        }
+    }
+
+    List<Callable<Void>> comparePaymentIntents(List<PaymentIntent> page) {
+        Set<String> piIds = new HashSet<>();
+        Set<UUID> orderIds = new HashSet<>();
+        for (PaymentIntent pi : page) {
+            piIds.add(pi.getId());
+            UUID orderId = orderIdOf(pi);
+            if (orderId != null) orderIds.add(orderId);
+        }
+
+        Map<String, OrderPaymentSnapshot> byIntent = new HashMap<>();
+        Map<UUID, OrderPaymentSnapshot> byOrder = new HashMap<>();
+        for (OrderPaymentSnapshot s : orderRepo.findPaymentSnapshots(piIds, orderIds)) {
+            if (s.getStripePaymentIntentId() != null) byIntent.put(s.getStripePaymentIntentId(), s);
+            byOrder.put(s.getId(), s);
+        }
+
+        List<Callable<Void>> repairs = new ArrayList<>();
+        for (PaymentIntent pi : page) {
+            OrderPaymentSnapshot order = byIntent.get(pi.getId());
+            if (order == null) {
+                UUID orderId = orderIdOf(pi);
+                order = orderId == null ? null : byOrder.get(orderId);
+            }
+            if (order == null) continue; // not created by us, or the order is gone
+
+            String type = paymentIntentDivergence(pi.getStatus(), order.getPaymentStatus());
+            if (type == null) continue;
+
+            divergence(type);
+            log.warn("Order diverges from Stripe. orderId={}, paymentStatus={}, piId={}, piStatus={}",
+                    order.getId(), order.getPaymentStatus(), pi.getId(), pi.getStatus());
+            StripeWebhookPayload event = new StripeWebhookPayload(
+                    "reconcile:" + pi.getId() + ":" + pi.getStatus(), type, 0L,
+                    pi.getId(), order.getId().toString(), null, List.of());
+            repairs.add(() -> {
+                webhookService.process(event);
+                return null;
+            });
+        }
+        return repairs;
+    }
+
+    /**
+     * @return the event type that brings the order in line with the PaymentIntent, or null if it is
+     */
+    static String paymentIntentDivergence(String piStatus, PaymentStatus orderStatus) {
+        if ("succeeded".equals(piStatus)
+                && (orderStatus == PaymentStatus.PENDING || orderStatus == PaymentStatus.FAILED
+                || orderStatus == PaymentStatus.CANCELED)) {
+            return "payment_intent.succeeded";
+        }
+        if ("canceled".equals(piStatus) && orderStatus == PaymentStatus.PENDING) {
+            return "payment_intent.canceled";
+        }
+        return null;
+    }
+
+    // ===== Refunds =====
+
+    private void reconcileRefunds(long since, long until, Tally tally) throws StripeException, InterruptedException {
+        String cursor = null;
+        for (int page = 0; page < maxPages; page++) {
+            RefundListParams.Builder b = RefundListParams.builder()
+                    .setLimit((long) pageSize)
+                    .setCreated(RefundListParams.Created.builder().setGte(since).setLte(until).build());
+            if (cursor != null) b.setStartingAfter(cursor);
+
+            acquire();
+            StripeCollection<Refund> coll = stripeGateway.listRefunds(b.build());
+            List<Refund> data = coll.getData();
+            if (data == null || data.isEmpty()) return;
+
+            count("refund", data.size());
+            tally.checked.addAndGet(data.size());
+            repair(compareRefunds(data), tally);
+
+            cursor = data.getLast().getId();
+            if (!Boolean.TRUE.equals(coll.getHasMore())) return;
+        }
+    }
+
+    List<Callable<Void>> compareRefunds(List<Refund> page) {
+        // Newest refund per PaymentIntent; the list is newest first.
+        Map<String, Refund> latestByIntent = new LinkedHashMap<>();
+        for (Refund r : page) {
+            if (r.getPaymentIntent() != null) latestByIntent.putIfAbsent(r.getPaymentIntent(), r);
+        }
+        if (latestByIntent.isEmpty()) return List.of();
+
+        List<Callable<Void>> repairs = new ArrayList<>();
+        for (OrderPaymentSnapshot order : orderRepo.findPaymentSnapshots(latestByIntent.keySet(), Set.of())) {
+            Refund latest = latestByIntent.get(order.getStripePaymentIntentId());
+            if (latest == null) continue;
+            if (latest.getId().equals(order.getStripeRefundId())
+                    && RefundStatus.fromStripe(latest.getStatus()) == order.getRefundStatus()) {
+                continue;
+            }
+
+            divergence("charge.refunded");
+            log.warn("Order refund diverges from Stripe. orderId={}, refundId={}/{}, refundStatus={}/{}",
+                    order.getId(), order.getStripeRefundId(), latest.getId(), order.getRefundStatus(), latest.getStatus());
+            repairs.add(() -> {
+                webhookService.process(chargeRefunded(latest));
+                return null;
+            });
+        }
+        return repairs;
+    }
+
+    /**
+     * charge.refunded carries all refunds of the charge; fetch them, the page may hold only some.
+     */
+    private StripeWebhookPayload chargeRefunded(Refund latest) throws StripeException, InterruptedException {
+        acquire();
+        List<Refund> all = stripeGateway.listRefunds(RefundListParams.builder()
+                .setPaymentIntent(latest.getPaymentIntent())
+                .setLimit(100L)
+                .build()).getData();
+
+        List<StripeWebhookPayload.Refund> refunds = all.stream()
+                .sorted(Comparator.comparing(Refund::getCreated).reversed())
+                .map(r -> new StripeWebhookPayload.Refund(r.getId(), r.getStatus(), r.getAmount(), r.getCreated()))
+                .toList();
+        return new StripeWebhookPayload("reconcile:" + latest.getId() + ":" + latest.getStatus(), "charge.refunded", 0L,
+                latest.getCharge(), null, latest.getPaymentIntent(), refunds);
+    }
+
+    // ===== internals =====
+
+    private void repair(List<Callable<Void>> repairs, Tally tally) throws InterruptedException {
+        if (repairs.isEmpty()) return;
+        tally.divergent.addAndGet(repairs.size());
+
+        List<Callable<Void>> tracked = new ArrayList<>(repairs.size());
+        for (Callable<Void> r : repairs) {
+            tracked.add(() -> {
+                try {
+                    r.call();
+                    tally.repaired.incrementAndGet();
+                    meterRegistry.counter("stripe.reconcile.repairs", "outcome", "repaired").increment();
+                } catch (Exception ex) {
+                    tally.failed.incrementAndGet();
+                    meterRegistry.counter("stripe.reconcile.repairs", "outcome", "failed").increment();
+                    log.warn("Stripe reconciliation repair failed: {}", ex.toString());
+                }
+                return null;
+            });
+        }
+        pool.invokeAll(tracked);
+    }
+
+    private void acquire() throws InterruptedException {
+        budget.asBlocking().consume(1);
+    }
+
+    private void count(String object, int n) {
+        meterRegistry.counter("stripe.reconcile.checked", "object", object).increment(n);
+    }
+
+    private void divergence(String type) {
+        meterRegistry.counter("stripe.reconcile.divergences", "type", type).increment();
+    }
+
+    private static UUID orderIdOf(PaymentIntent pi) {
+        String v = pi.getMetadata() == null ? null : pi.getMetadata().get("orderId");
+        if (v == null || v.isBlank()) return null;
+        try {
+            return UUID.fromString(v);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class Tally {
+        final AtomicInteger checked = new AtomicInteger();
+        final AtomicInteger divergent = new AtomicInteger();
+        final AtomicInteger repaired = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Result result() {
+            return new Result(checked.get(), divergent.get(), repaired.get(), failed.get());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over Stripe event ids.
+ *
+ * mightContain == false means "definitely never added"; true may be a false positive.
+ * Entries cannot be removed, so the owner rebuilds a fresh filter after the TTL purge.
+ */
+final class EventIdBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong added = new AtomicLong();
+
+    /**
+     * @param expectedEntries number of ids the filter is sized for
+     * @param falsePositiveRate target false-positive rate at expectedEntries (e.g. 0.01)
+     */
+    EventIdBloomFilter(long expectedEntries, double falsePositiveRate) {
+        if (expectedEntries <= 0) throw new IllegalArgumentException("expectedEntries must be > 0");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        }
+        long m = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+    }
+
+    void put(String id) {
+        long h1 = hash(id);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur = bits.get(word);
+            while ((cur & mask) == 0 && !bits.weakCompareAndSetVolatile(word, cur, cur | mask)) {
+                cur = bits.get(word);
+            }
+        }
+        added.incrementAndGet();
+    }
+
+    boolean mightContain(String id) {
+        long h1 = hash(id);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    long approximateEntries() {
+        return added.get();
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    // FNV-1a over the chars, finished with a murmur3 mix for better bit spread.
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,155 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Remembers which Stripe events have been applied (stripe_processed_event, TTL-purged),
+ * with an in-memory Bloom filter in front of the table.
+ *
+ * - Filter says "never seen" (the common case for a first delivery): no dedup query at all.
+ * - Filter says "maybe seen": one primary-key lookup decides (hit or false positive).
+ * - The table is the source of truth: markProcessed inserts with on-conflict-do-nothing inside
+ *   the processing transaction, so events missed by the filter (other nodes, restarts) are still
+ *   applied at most once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StripeEventDedup {
+
+    private final StripeProcessedEventRepository repo;
+    private final TransactionTemplate tx;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.webhook.dedup.ttlDays:7}")
+    private long ttlDays;
+
+    @Value("${app.webhook.dedup.expectedEvents:100000}")
+    private long expectedEvents;
+
+    @Value("${app.webhook.dedup.falsePositiveRate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile EventIdBloomFilter filter;
+    // Filter being rebuilt; new ids go into both so none are lost during the swap.
+    private volatile EventIdBloomFilter building;
+    private final Object rebuildLock = new Object();
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter falsePositiveCounter;
+
+    @PostConstruct
+    void init() {
+        this.filter = newFilter();
+
+        this.hitCounter = lookupCounter("hit");
+        this.missCounter = lookupCounter("miss");
+        this.falsePositiveCounter = lookupCounter("false_positive");
+        Gauge.builder("stripe.webhook.dedup.filter.entries", this, d -> d.filter.approximateEntries())
+                .description("Event ids added to the in-memory dedup filter since its last rebuild")
+                .register(meterRegistry);
+    }
+
+    private Counter lookupCounter(String result) {
+        return Counter.builder("stripe.webhook.dedup.lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private EventIdBloomFilter newFilter() {
+        return new EventIdBloomFilter(expectedEvents, falsePositiveRate);
+    }
+
+    /**
+     * True if the event has already been applied. Only queries the database when the filter
+     * cannot rule the id out.
+     */
+    public boolean isProcessed(String eventId) {
+        if (!filter.mightContain(eventId)) {
+            missCounter.increment();
+            return false;
+        }
+        if (repo.existsById(eventId)) {
+            hitCounter.increment();
+            return true;
+        }
+        falsePositiveCounter.increment();
+        return false;
+    }
+
+    /**
+     * Record the event as applied. Must run in the transaction that applies it, so a rollback
+     * also forgets the id (the filter then only yields a false positive).
+     *
+     * @return false if the event had already been recorded (duplicate)
+     */
+    public boolean markProcessed(String eventId, String eventType) {
+        int inserted = repo.insertIfAbsent(eventId, eventType, LocalDateTime.now(clock));
+        remember(eventId);
+        if (inserted == 0) {
+            hitCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void remember(String eventId) {
+        filter.put(eventId);
+        EventIdBloomFilter b = building;
+        if (b != null) b.put(eventId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuildFilter();
+        } catch (Exception ex) {
+            // Empty filter is still correct, just more inserts conflict at the database.
+            log.warn("Stripe dedup filter warm-up failed", ex);
+        }
+    }
+
+    /**
+     * Drop ids older than the TTL and rebuild the filter, which cannot forget single entries.
+     */
+    @Scheduled(cron = "${app.webhook.dedup.purgeCron:0 47 * * * *}")
+    public void purgeExpired() {
+        Integer deleted = tx.execute(s -> repo.purgeBefore(LocalDateTime.now(clock).minusDays(ttlDays)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} processed Stripe event ids", deleted);
+        }
+        rebuildFilter();
+    }
+
+    void rebuildFilter() {
+        synchronized (rebuildLock) {
+            EventIdBloomFilter next = newFilter();
+            building = next;
+            try {
+                List<String> ids = repo.findEventIdsProcessedSince(LocalDateTime.now(clock).minusDays(ttlDays));
+                ids.forEach(next::put);
+                filter = next;
+                log.info("Stripe dedup filter rebuilt. entries={}, hashes={}", ids.size(), next.hashCount());
+            } finally {
+                building = null;
+            }
+        }
+    }
+}
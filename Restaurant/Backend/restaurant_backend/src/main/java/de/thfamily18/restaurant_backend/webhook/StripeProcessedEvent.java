@@ -0,0 +1,29 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stripe event id that has already been applied. Kept for a limited time (TTL purge).
+ */
+@Entity
+@Table(name = "stripe_processed_event",
+        indexes = @Index(name = "idx_stripe_processed_event_processed_at", columnList = "processed_at"))
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StripeProcessedEvent {
+
+    @Id
+    @Column(name = "event_id", nullable = false)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
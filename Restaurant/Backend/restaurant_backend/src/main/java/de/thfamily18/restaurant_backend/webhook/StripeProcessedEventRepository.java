@@ -0,0 +1,41 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StripeProcessedEventRepository extends JpaRepository<StripeProcessedEvent, String> {
+
+    /**
+     * Record an event as applied. Returns 0 if it was already recorded.
+     */
+    @Modifying
+    @Query(value = """
+        insert into stripe_processed_event (event_id, event_type, processed_at)
+        values (:eventId, :eventType, :now)
+        on conflict (event_id) do nothing
+        """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("eventId") String eventId,
+            @Param("eventType") String eventType,
+            @Param("now") LocalDateTime now
+    );
+
+    @Query("""
+        select e.eventId
+        from StripeProcessedEvent e
+        where e.processedAt >= :since
+    """)
+    List<String> findEventIdsProcessedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query(value = """
+        delete from stripe_processed_event
+        where processed_at < :before
+        """, nativeQuery = true)
+    int purgeBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,69 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Raw Stripe webhook event stored by the inbox before it is processed.
+ * The Stripe event id is unique, so redeliveries of the same event are stored only once.
+ */
+@Entity
+@Table(name = "stripe_webhook_inbox",
+        indexes = {
+                @Index(name = "idx_webhook_inbox_status_next", columnList = "status,next_attempt_at"),
+                @Index(name = "idx_webhook_inbox_key_created", columnList = "ordering_key,stripe_created,received_at")
+        })
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StripeWebhookEvent {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "event_id", nullable = false, unique = true)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    // PaymentIntent id: events with the same key are processed one after another, in Stripe creation order.
+    @Column(name = "ordering_key")
+    private String orderingKey;
+
+    // Stripe "created" (epoch seconds, 0 if missing).
+    @Column(name = "stripe_created", nullable = false)
+    private long stripeCreated;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private WebhookEventStatus status = WebhookEventStatus.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processing_started_at")
+    private LocalDateTime processingStartedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
@@ -0,0 +1,101 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, UUID> {
+
+    /**
+     * Append a verified event. Returns 0 if the Stripe event id is already in the inbox (redelivery).
+     */
+    @Modifying
+    @Query(value = """
+        insert into stripe_webhook_inbox
+            (id, event_id, event_type, ordering_key, stripe_created, payload, status, attempts, next_attempt_at, received_at)
+        values
+            (gen_random_uuid(), :eventId, :eventType, :orderingKey, :stripeCreated, :payload, 'PENDING', 0, :now, :now)
+        on conflict (event_id) do nothing
+        """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("eventId") String eventId,
+            @Param("eventType") String eventType,
+            @Param("orderingKey") String orderingKey,
+            @Param("stripeCreated") long stripeCreated,
+            @Param("payload") String payload,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Lock a batch of due events using Postgres SKIP LOCKED.
+     *
+     * Only the oldest unfinished event of each ordering key is eligible, so events of one order are
+     * never processed concurrently, while different orders run in parallel. "Oldest" is Stripe's
+     * created timestamp (arrival order breaks ties): a retried delivery of an earlier event goes first.
+     * An earlier event arriving after a later one was applied is dropped as stale by StripeWebhookService.
+     * Events stuck in PROCESSING (worker crashed) are re-claimed after the processing timeout.
+     */
+    @Query(value = """
+        select e.*
+        from stripe_webhook_inbox e
+        where
+            (
+                (e.status in ('PENDING','FAILED') and e.next_attempt_at <= :now)
+                or
+                (e.status = 'PROCESSING' and e.processing_started_at <= :processingTimeout)
+            )
+            and not exists (
+                select 1
+                from stripe_webhook_inbox p
+                where p.ordering_key = e.ordering_key
+                  and p.status in ('PENDING','FAILED','PROCESSING')
+                  and (p.stripe_created, p.received_at, p.id) < (e.stripe_created, e.received_at, e.id)
+            )
+        order by e.received_at asc
+        limit :limit
+        for update of e skip locked
+        """, nativeQuery = true)
+    List<StripeWebhookEvent> lockNextReady(
+            @Param("now") LocalDateTime now,
+            @Param("processingTimeout") LocalDateTime processingTimeout,
+            @Param("limit") int limit
+    );
+
+    @Modifying
+    @Query("""
+        update StripeWebhookEvent e
+           set e.status = de.thfamily18.restaurant_backend.webhook.WebhookEventStatus.DONE,
+               e.processedAt = :now,
+               e.processingStartedAt = null,
+               e.lastError = null
+         where e.id = :id
+    """)
+    int markDone(@Param("id") UUID id, @Param("now") LocalDateTime now);
+
+    @Query("""
+        select count(e)
+        from StripeWebhookEvent e
+        where e.status in :statuses
+    """)
+    long countByStatusIn(@Param("statuses") Collection<WebhookEventStatus> statuses);
+
+    @Query("""
+        select min(e.receivedAt)
+        from StripeWebhookEvent e
+        where e.status in :statuses
+    """)
+    LocalDateTime oldestReceivedAt(@Param("statuses") Collection<WebhookEventStatus> statuses);
+
+    @Modifying
+    @Query(value = """
+        delete from stripe_webhook_inbox
+        where status = 'DONE' and processed_at < :before
+        """, nativeQuery = true)
+    int purgeDoneBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,77 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import de.thfamily18.restaurant_backend.service.StripeWebhookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+/**
+ * Receiving side of the webhook inbox: verify, append, acknowledge.
+ *
+ * The HTTP request only pays for the signature check and one insert; the order update runs later
+ * in {@link StripeWebhookInboxProcessor}, so slow database moments no longer turn into Stripe timeouts.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StripeWebhookInbox {
+
+    private final StripeWebhookEventRepository repo;
+    private final StripeWebhookService webhookService;
+    private final StripeEventDedup dedup;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    private Counter receivedCounter;
+    private Counter duplicateCounter;
+
+    @PostConstruct
+    void initMetrics() {
+        this.receivedCounter = meterRegistry.counter("stripe.webhook.inbox.received");
+        this.duplicateCounter = meterRegistry.counter("stripe.webhook.inbox.duplicates");
+    }
+
+    /**
+     * @param payload raw request body; the signature is checked over these exact bytes
+     * @throws IllegalArgumentException if the signature is invalid (mapped to 400, Stripe will retry)
+     */
+    @Transactional
+    public void receive(byte[] payload, String sigHeader) {
+        StripeWebhookPayload event = webhookService.verify(payload, sigHeader);
+        if (!webhookService.supports(event.type())) {
+            // Ignore unrelated events.
+            return;
+        }
+        if (dedup.isProcessed(event.eventId())) {
+            // Redelivery of an event that was already applied (the inbox row may be purged by now).
+            duplicateCounter.increment();
+            log.info("Duplicate Stripe webhook ignored (already applied). eventId={}, type={}",
+                    event.eventId(), event.type());
+            return;
+        }
+
+        int inserted = repo.insertIfAbsent(
+                event.eventId(),
+                event.type(),
+                event.orderingKey(),
+                event.created(),
+                new String(payload, StandardCharsets.UTF_8),
+                LocalDateTime.now(clock)
+        );
+
+        if (inserted == 0) {
+            duplicateCounter.increment();
+            log.info("Duplicate Stripe webhook ignored. eventId={}, type={}", event.eventId(), event.type());
+            return;
+        }
+        receivedCounter.increment();
+    }
+}
@@ -0,0 +1,227 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import de.thfamily18.restaurant_backend.notification.NotificationRetryPolicy;
+import de.thfamily18.restaurant_backend.service.StripeWebhookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the webhook inbox.
+ *
+ * - Tx #1 claims a batch with SKIP LOCKED (at most one event per order, see lockNextReady).
+ * - Each event is applied by StripeWebhookService in its own transaction, together with marking it DONE,
+ *   on a small pool of virtual threads. Different orders are processed in parallel.
+ * - Failures are retried with backoff; after maxAttempts the event is dead-lettered.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StripeWebhookInboxProcessor {
+
+    private static final Set<WebhookEventStatus> BACKLOG =
+            EnumSet.of(WebhookEventStatus.PENDING, WebhookEventStatus.FAILED, WebhookEventStatus.PROCESSING);
+
+    private final StripeWebhookEventRepository repo;
+    private final StripeWebhookService webhookService;
+    private final StripeEventDedup dedup;
+    private final TransactionTemplate tx;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.webhook.inbox.batchSize:50}")
+    private int batchSize;
+
+    @Value("${app.webhook.inbox.workers:4}")
+    private int workers;
+
+    @Value("${app.webhook.inbox.maxAttempts:10}")
+    private int maxAttempts;
+
+    // If an event stays in PROCESSING longer than this, the worker is assumed dead.
+    @Value("${app.webhook.inbox.processingTimeoutMinutes:5}")
+    private long processingTimeoutMinutes;
+
+    @Value("${app.webhook.inbox.retentionDays:1}")
+    private long retentionDays;
+
+    private ExecutorService pool;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong oldestAgeSeconds = new AtomicLong();
+
+    private Counter processedCounter;
+    private Counter failedCounter;
+    private Counter deadCounter;
+    private Timer delayTimer;
+
+    @PostConstruct
+    void init() {
+        this.pool = Executors.newFixedThreadPool(workers, Thread.ofVirtual().name("webhook-worker-", 0).factory());
+
+        this.processedCounter = meterRegistry.counter("stripe.webhook.inbox.processed");
+        this.failedCounter = meterRegistry.counter("stripe.webhook.inbox.failed");
+        this.deadCounter = meterRegistry.counter("stripe.webhook.inbox.dead");
+        // Time from receipt (200 sent to Stripe) until the order was updated.
+        this.delayTimer = meterRegistry.timer("stripe.webhook.inbox.delay");
+        Gauge.builder("stripe.webhook.inbox.backlog", backlog, AtomicLong::get)
+                .description("Webhook events not processed yet")
+                .register(meterRegistry);
+        Gauge.builder("stripe.webhook.inbox.lag.seconds", oldestAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest webhook event not processed yet")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    /**
+     * Claim and process until the inbox has no due events left.
+     */
+    @Scheduled(fixedDelayString = "${app.webhook.inbox.pollMillis:500}")
+    public void processDue() {
+        List<InboxTask> tasks;
+        do {
+            tasks = claimBatch();
+            if (tasks.isEmpty()) return;
+
+            List<Callable<Void>> jobs = new ArrayList<>(tasks.size());
+            for (InboxTask t : tasks) {
+                jobs.add(() -> {
+                    processOne(t);
+                    return null;
+                });
+            }
+            try {
+                pool.invokeAll(jobs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        } while (tasks.size() == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhook.inbox.metricsMillis:10000}")
+    public void refreshBacklogMetrics() {
+        backlog.set(repo.countByStatusIn(BACKLOG));
+        LocalDateTime oldest = repo.oldestReceivedAt(BACKLOG);
+        oldestAgeSeconds.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, now()).toSeconds()));
+    }
+
+    /**
+     * DONE rows hold the full payload; redeliveries after the purge are rejected by StripeEventDedup.
+     */
+    @Scheduled(cron = "${app.webhook.inbox.purgeCron:0 17 * * * *}")
+    public void purgeProcessed() {
+        Integer deleted = tx.execute(s -> repo.purgeDoneBefore(now().minusDays(retentionDays)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} processed webhook events", deleted);
+        }
+    }
+
+    /**
+     * Tx #1: lock a batch and mark it PROCESSING.
+     */
+    private List<InboxTask> claimBatch() {
+        LocalDateTime now = now();
+        LocalDateTime processingTimeout = now.minusMinutes(processingTimeoutMinutes);
+
+        return tx.execute(status -> {
+            List<StripeWebhookEvent> locked = repo.lockNextReady(now, processingTimeout, batchSize);
+            if (locked.isEmpty()) return List.of();
+
+            List<InboxTask> out = new ArrayList<>(locked.size());
+            for (StripeWebhookEvent e : locked) {
+                e.setStatus(WebhookEventStatus.PROCESSING);
+                e.setProcessingStartedAt(now);
+
+                out.add(new InboxTask(e.getId(), e.getEventId(), e.getEventType(), e.getPayload(), e.getReceivedAt()));
+            }
+            return out;
+        });
+    }
+
+    /**
+     * Tx #2: record the event id, apply the event and mark it DONE atomically,
+     * so a crash never applies an event twice.
+     */
+    void processOne(InboxTask t) {
+        try {
+            tx.executeWithoutResult(status -> {
+                if (dedup.markProcessed(t.eventId(), t.type())) {
+                    webhookService.process(t.payload());
+                } else {
+                    log.info("Stripe webhook already applied, skipping. eventId={}, type={}", t.eventId(), t.type());
+                }
+                repo.markDone(t.id(), now());
+            });
+            processedCounter.increment();
+            delayTimer.record(Duration.between(t.receivedAt(), now()));
+        } catch (Exception ex) {
+            log.error("Processing Stripe webhook failed. eventId={}, type={}", t.eventId(), t.type(), ex);
+            markFailed(t.id(), ex);
+        }
+    }
+
+    /**
+     * Tx #3: mark FAILED with backoff, or DEAD after maxAttempts.
+     */
+    void markFailed(UUID id, Exception ex) {
+        tx.executeWithoutResult(status -> {
+            StripeWebhookEvent e = repo.findById(id).orElse(null);
+            if (e == null) return;
+
+            int attempts = e.getAttempts() + 1;
+            e.setAttempts(attempts);
+            e.setLastError(NotificationRetryPolicy.trim(ex.getMessage(), 500));
+            e.setProcessingStartedAt(null);
+
+            if (attempts >= maxAttempts) {
+                // DEAD no longer blocks later events of the same order.
+                e.setStatus(WebhookEventStatus.DEAD);
+                deadCounter.increment();
+                return;
+            }
+
+            e.setStatus(WebhookEventStatus.FAILED);
+            e.setNextAttemptAt(now().plusSeconds(NotificationRetryPolicy.backoffSeconds(attempts)));
+            failedCounter.increment();
+        });
+    }
+
+    record InboxTask(
+            UUID id,
+            String eventId,
+            String type,
+            String payload,
+            LocalDateTime receivedAt
+    ) {}
+}
@@ -0,0 +1,33 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import java.util.List;
+
+/**
+ * The few fields of a Stripe webhook event the backend acts on, extracted in one streaming pass
+ * by {@link StripeWebhookPayloadParser}. Everything else in the payload is skipped.
+ *
+ * @param objectId        data.object.id (PaymentIntent id for payment_intent.*, charge id for charge.*)
+ * @param orderId         data.object.metadata.orderId (set by us when creating the PaymentIntent)
+ * @param paymentIntentId data.object.payment_intent (charge.*)
+ * @param refunds         data.object.refunds.data (charge.*)
+ */
+public record StripeWebhookPayload(
+        String eventId,
+        String type,
+        long created,
+        String objectId,
+        String orderId,
+        String paymentIntentId,
+        List<Refund> refunds
+) {
+
+    public record Refund(String id, String status, long amount, long created) {}
+
+    /**
+     * PaymentIntent id the event belongs to; events with the same key must be applied in order.
+     */
+    public String orderingKey() {
+        String key = (type != null && type.startsWith("payment_intent.")) ? objectId : paymentIntentId;
+        return (key == null || key.isBlank()) ? null : key;
+    }
+}
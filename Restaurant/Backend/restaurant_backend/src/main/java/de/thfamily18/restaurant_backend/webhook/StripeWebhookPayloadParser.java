@@ -0,0 +1,264 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Verifies the Stripe-Signature header over the raw request bytes and extracts a
+ * {@link StripeWebhookPayload} with a streaming JsonParser in a single pass.
+ *
+ * Replaces Webhook.constructEvent (full Event deserialization) + ObjectMapper.readTree (second full tree):
+ * no intermediate String or tree is built and unknown sub-objects are skipped without materializing them.
+ */
+@Component
+@RequiredArgsConstructor
+public class StripeWebhookPayloadParser {
+
+    // Same default as com.stripe.net.Webhook
+    private static final long TOLERANCE_SECONDS = 300;
+
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    @Value("${stripe.webhookSecret}")
+    private String webhookSecret;
+
+    /**
+     * @throws IllegalArgumentException if the signature is invalid or the payload is not a JSON object
+     */
+    public StripeWebhookPayload verifyAndParse(byte[] payload, String sigHeader) {
+        verifySignature(payload, sigHeader);
+        return parse(payload);
+    }
+
+    /**
+     * Stripe scheme v1: HMAC-SHA256 of "{t}.{raw body}" with the endpoint secret, hex encoded.
+     */
+    public void verifySignature(byte[] payload, String sigHeader) {
+        // Fail-fast if missing secret (signature verification must be enabled in production).
+        if (webhookSecret == null || webhookSecret.isBlank()) {
+            throw new IllegalStateException("Missing stripe.webhookSecret (STRIPE_WEBHOOK_SECRET)");
+        }
+        if (sigHeader == null || sigHeader.isBlank()) {
+            throw new IllegalArgumentException("Invalid Stripe signature");
+        }
+
+        long timestamp = -1;
+        List<String> signatures = new ArrayList<>(2);
+        for (String part : sigHeader.split(",")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) continue;
+            String key = part.substring(0, eq).trim();
+            String value = part.substring(eq + 1).trim();
+            if ("t".equals(key)) {
+                try {
+                    timestamp = Long.parseLong(value);
+                } catch (NumberFormatException ignored) {
+                    // handled below
+                }
+            } else if ("v1".equals(key)) {
+                signatures.add(value);
+            }
+        }
+        if (timestamp < 0 || signatures.isEmpty()) {
+            throw new IllegalArgumentException("Invalid Stripe signature");
+        }
+        if (Math.abs(clock.instant().getEpochSecond() - timestamp) > TOLERANCE_SECONDS) {
+            throw new IllegalArgumentException("Invalid Stripe signature (timestamp outside tolerance)");
+        }
+
+        byte[] expected = hmac(timestamp, payload);
+        for (String sig : signatures) {
+            try {
+                if (MessageDigest.isEqual(expected, HexFormat.of().parseHex(sig))) return;
+            } catch (IllegalArgumentException ignored) {
+                // not hex, try next
+            }
+        }
+        throw new IllegalArgumentException("Invalid Stripe signature");
+    }
+
+    /**
+     * Extract the needed fields without verifying (payload was verified when it was received).
+     */
+    public StripeWebhookPayload parse(byte[] payload) {
+        try (JsonParser p = objectMapper.createParser(payload)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Stripe payload is not a JSON object");
+            }
+            return readEvent(p);
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Malformed Stripe payload", ex);
+        }
+    }
+
+    // ===== streaming readers (parser positioned on START_OBJECT) =====
+
+    private static StripeWebhookPayload readEvent(JsonParser p) {
+        String id = null;
+        String type = null;
+        long created = 0;
+        DataObject obj = DataObject.EMPTY;
+
+        String name;
+        while ((name = p.nextName()) != null) {
+            p.nextToken();
+            switch (name) {
+                case "id" -> id = text(p);
+                case "type" -> type = text(p);
+                case "created" -> created = number(p);
+                case "data" -> obj = readData(p);
+                default -> p.skipChildren();
+            }
+        }
+        return new StripeWebhookPayload(id, type, created, obj.id, obj.orderId, obj.paymentIntent, obj.refunds);
+    }
+
+    private static DataObject readData(JsonParser p) {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return DataObject.EMPTY;
+        }
+        DataObject obj = DataObject.EMPTY;
+        String name;
+        while ((name = p.nextName()) != null) {
+            p.nextToken();
+            if ("object".equals(name) && p.currentToken() == JsonToken.START_OBJECT) {
+                obj = readObject(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return obj;
+    }
+
+    private static DataObject readObject(JsonParser p) {
+        DataObject obj = new DataObject();
+        String name;
+        while ((name = p.nextName()) != null) {
+            p.nextToken();
+            switch (name) {
+                case "id" -> obj.id = text(p);
+                case "payment_intent" -> obj.paymentIntent = text(p);
+                case "metadata" -> obj.orderId = readOrderId(p);
+                case "refunds" -> obj.refunds = readRefunds(p);
+                default -> p.skipChildren();
+            }
+        }
+        return obj;
+    }
+
+    private static String readOrderId(JsonParser p) {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String orderId = null;
+        String name;
+        while ((name = p.nextName()) != null) {
+            p.nextToken();
+            if ("orderId".equals(name)) {
+                orderId = text(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return orderId;
+    }
+
+    // refunds: { "object": "list", "data": [ {id, status, amount, created, ...}, ... ] }
+    private static List<StripeWebhookPayload.Refund> readRefunds(JsonParser p) {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return List.of();
+        }
+        List<StripeWebhookPayload.Refund> refunds = List.of();
+        String name;
+        while ((name = p.nextName()) != null) {
+            if (p.nextToken() == JsonToken.START_ARRAY && "data".equals(name)) {
+                refunds = new ArrayList<>();
+                JsonToken t;
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                    if (t == JsonToken.START_OBJECT) {
+                        refunds.add(readRefund(p));
+                    } else {
+                        // not expanded (plain refund id)
+                        p.skipChildren();
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return refunds;
+    }
+
+    private static StripeWebhookPayload.Refund readRefund(JsonParser p) {
+        String id = null;
+        String status = null;
+        long amount = 0;
+        long created = 0;
+        String name;
+        while ((name = p.nextName()) != null) {
+            p.nextToken();
+            switch (name) {
+                case "id" -> id = text(p);
+                case "status" -> status = text(p);
+                case "amount" -> amount = number(p);
+                case "created" -> created = number(p);
+                default -> p.skipChildren();
+            }
+        }
+        return new StripeWebhookPayload.Refund(id, status, amount, created);
+    }
+
+    private static String text(JsonParser p) {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_STRING || (t != null && t.isNumeric())) return p.getValueAsString();
+        // null, or an expanded object where we expect an id
+        p.skipChildren();
+        return null;
+    }
+
+    private static long number(JsonParser p) {
+        if (p.currentToken() != null && p.currentToken().isNumeric()) return p.getLongValue();
+        p.skipChildren();
+        return 0;
+    }
+
+    private byte[] hmac(long timestamp, byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update((timestamp + ".").getBytes(StandardCharsets.US_ASCII));
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static final class DataObject {
+        static final DataObject EMPTY = new DataObject();
+
+        String id;
+        String orderId;
+        String paymentIntent;
+        List<StripeWebhookPayload.Refund> refunds = List.of();
+    }
+}
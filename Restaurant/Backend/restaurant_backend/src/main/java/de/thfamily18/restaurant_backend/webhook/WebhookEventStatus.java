@@ -0,0 +1,9 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+public enum WebhookEventStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED, // will be retried
+    DEAD    // max attempts reached
+}
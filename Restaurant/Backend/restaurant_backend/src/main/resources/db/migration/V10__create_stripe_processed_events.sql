@@ -0,0 +1,12 @@
+-- V10: Stripe event ids that have been applied to an order.
+-- Rows are small (no payload) and are kept for app.webhook.dedup.ttlDays, longer than Stripe retries.
+
+create table if not exists stripe_processed_event (
+    event_id varchar(255) primary key,
+    event_type varchar(100) not null,
+    processed_at timestamp not null
+);
+
+-- TTL purge and filter warm-up scan by age
+create index if not exists idx_stripe_processed_event_processed_at
+    on stripe_processed_event (processed_at);
@@ -0,0 +1,11 @@
+-- V11: Apply Stripe events per order in Stripe creation order.
+
+-- Stripe "created" (epoch seconds) of the newest event applied to the order; older events are stale.
+alter table orders add column if not exists last_stripe_event_created bigint;
+
+-- Stripe "created" of each inbox event; the claim query orders events of one key by it.
+alter table stripe_webhook_inbox add column if not exists stripe_created bigint not null default 0;
+
+drop index if exists idx_webhook_inbox_key_received;
+create index if not exists idx_webhook_inbox_key_created
+    on stripe_webhook_inbox (ordering_key, stripe_created, received_at);
@@ -0,0 +1,6 @@
+-- V12: Payment TTL sweeper (PaymentExpirySweeper).
+-- Only unpaid Stripe orders are indexed, so the sweep and its backlog count stay cheap
+-- no matter how many paid orders accumulate.
+create index if not exists idx_orders_pending_stripe_created
+    on orders (created_at)
+    where payment_status = 'PENDING' and payment_method = 'STRIPE' and order_status = 'NEW';
@@ -0,0 +1,13 @@
+-- V13: Claim path of NotificationProcessor (lockDue / lockStaleSending).
+-- Only claimable rows are indexed, so claims stay index range scans that stop after one batch
+-- while SENT / DEAD rows pile up into the millions.
+create index if not exists idx_notifications_due
+    on notifications (next_attempt_at)
+    where status in ('PENDING', 'FAILED');
+
+create index if not exists idx_notifications_sending
+    on notifications (processing_started_at)
+    where status = 'SENDING';
+
+-- Replaced by idx_notifications_due; it indexed every SENT row as well.
+drop index if exists idx_notifications_status_next;
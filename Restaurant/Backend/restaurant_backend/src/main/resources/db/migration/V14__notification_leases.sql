@@ -0,0 +1,17 @@
+-- V14: Lease-based claiming in NotificationProcessor.
+-- claimed_by / lease_until replace the fixed 5 minute SENDING timeout; leases are renewed by a heartbeat.
+alter table notifications add column if not exists claimed_by varchar(64);
+alter table notifications add column if not exists lease_until timestamp;
+
+-- Rows in flight during the upgrade keep the old timeout.
+update notifications
+   set lease_until = coalesce(processing_started_at, now()) + interval '5 minutes'
+ where status = 'SENDING'
+   and lease_until is null;
+
+create index if not exists idx_notifications_lease
+    on notifications (lease_until)
+    where status = 'SENDING';
+
+-- Replaced by idx_notifications_lease.
+drop index if exists idx_notifications_sending;
@@ -0,0 +1,6 @@
+-- V15: Priority lanes in NotificationProcessor (one claim per NotificationType).
+-- Each lane claim is a range scan of its own type in next_attempt_at order;
+-- idx_notifications_due stays for the cross-lane lookups (next retry, exists due).
+create index if not exists idx_notifications_due_type
+    on notifications (type, next_attempt_at)
+    where status in ('PENDING', 'FAILED');
@@ -0,0 +1,14 @@
+-- V16: One staleness watermark per Stripe object instead of one per order.
+-- PaymentIntent events and charge events are ordered independently; comparing one against the other
+-- dropped e.g. a payment_intent.succeeded that arrived after a newer charge.refunded.
+
+alter table orders add column if not exists last_payment_intent_event_created bigint;
+alter table orders add column if not exists last_charge_event_created bigint;
+
+-- The shared value came from charge events once a refund was recorded, from PaymentIntent events before.
+update orders set last_payment_intent_event_created = last_stripe_event_created
+where last_stripe_event_created is not null and refund_status is null;
+update orders set last_charge_event_created = last_stripe_event_created
+where last_stripe_event_created is not null and refund_status is not null;
+
+alter table orders drop column if exists last_stripe_event_created;
@@ -0,0 +1,2 @@
+-- V17: Ids of live order feed events, shared by all nodes (OrderFeedRelay).
+create sequence if not exists order_feed_event_seq;
@@ -0,0 +1,9 @@
+-- V18: Catalog version for the in-memory menu snapshot.
+-- Bumped in every product write transaction; each node polls it and rebuilds its snapshot when it moved.
+create table if not exists catalog_version (
+    id smallint primary key,
+    version bigint not null
+);
+
+insert into catalog_version (id, version) values (1, 0)
+on conflict (id) do nothing;
@@ -0,0 +1,15 @@
+-- V8: Indexes for keyset (cursor) pagination of order lists.
+-- Lists are sorted by (created_at desc, id desc); each filter gets a matching composite index
+-- so "after=<createdAt,id>" is an index range scan instead of offset + count(*).
+
+-- Admin list without filter
+create index if not exists idx_orders_created_id
+    on orders (created_at, id);
+
+-- Customer lists (/api/orders/me, /api/user/orders)
+create index if not exists idx_orders_user_created_id
+    on orders (user_id, created_at, id);
+
+-- Admin list filtered by status
+create index if not exists idx_orders_status_created_id
+    on orders (order_status, created_at, id);
@@ -0,0 +1,27 @@
+-- V9: Inbox for Stripe webhooks.
+-- The webhook endpoint only verifies the signature and appends the raw event here (deduplicated on
+-- the Stripe event id); a worker applies it to the order asynchronously.
+
+create table if not exists stripe_webhook_inbox (
+    id uuid primary key,
+    event_id varchar(255) not null,
+    event_type varchar(100) not null,
+    ordering_key varchar(255) null,      -- PaymentIntent id, serializes events of one order
+    payload text not null,
+    status varchar(20) not null,         -- PENDING, PROCESSING, DONE, FAILED, DEAD
+    attempts int not null,
+    next_attempt_at timestamp not null,
+    received_at timestamp not null,
+    processing_started_at timestamp null,
+    processed_at timestamp null,
+    last_error varchar(500),
+    constraint ux_webhook_inbox_event_id unique (event_id)
+);
+
+-- Claim query: due events by status
+create index if not exists idx_webhook_inbox_status_next
+    on stripe_webhook_inbox (status, next_attempt_at);
+
+-- Per-order ordering check ("is there an older unfinished event for this key?")
+create index if not exists idx_webhook_inbox_key_received
+    on stripe_webhook_inbox (ordering_key, received_at);
@@ -9,6 +9,7 @@ import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -36,4 +37,28 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].bestSeller").value(true));
     }
+
+    @Test
+    void getAllProducts_withMatchingIfNoneMatch_should304WithoutBody() throws Exception {
+        String etag = mockMvc.perform(get("/api/products")
+                        .header("Accept-Language", "de"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Vary", containsString("Accept-Language")))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/api/products")
+                        .header("Accept-Language", "de")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Different language -> different representation -> different tag
+        mockMvc.perform(get("/api/products")
+                        .header("Accept-Language", "en")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
 }
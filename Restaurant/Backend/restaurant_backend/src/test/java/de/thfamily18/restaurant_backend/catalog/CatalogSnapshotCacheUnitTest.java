@@ -0,0 +1,174 @@
+package de.thfamily18.restaurant_backend.catalog;
+
+import de.thfamily18.restaurant_backend.dto.ProductResponse;
+import de.thfamily18.restaurant_backend.entity.Product;
+import de.thfamily18.restaurant_backend.repository.ProductRepository;
+import de.thfamily18.restaurant_backend.service.catalog.CatalogSnapshot;
+import de.thfamily18.restaurant_backend.service.catalog.CatalogSnapshotCache;
+import de.thfamily18.restaurant_backend.service.catalog.MenuPayload;
+import de.thfamily18.restaurant_backend.service.catalog.ProductCatalogChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+class CatalogSnapshotCacheUnitTest {
+
+    ProductRepository repo = mock(ProductRepository.class);
+    PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T12:00:00Z"), ZoneOffset.UTC);
+
+    CatalogSnapshotCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new CatalogSnapshotCache(repo, txManager, clock, new SimpleMeterRegistry(), new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "maxAgeSeconds", 300L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+
+        when(repo.findAll(any(Sort.class))).thenReturn(List.of(
+                product("Classic Milchtee", "Classic Milk Tea", "MILK_TEA", true),
+                product("Espresso", "Espresso", "COFFEE", false)
+        ));
+        when(repo.findDistinctCategories()).thenReturn(List.of("COFFEE", "MILK_TEA"));
+    }
+
+    @Test
+    void get_shouldPrecomputeLanguageAndCategoryViews_andHitRepositoryOnce() {
+        CatalogSnapshot s = cache.get();
+
+        assertEquals(2, s.products("de", null).size());
+        assertEquals("Classic Milchtee", s.products("de-DE,de;q=0.9", "milk_tea").getFirst().name());
+        assertEquals("Classic Milk Tea", s.products("en", " MILK_TEA ").getFirst().name());
+        assertTrue(s.products("en", "unknown").isEmpty());
+
+        List<ProductResponse> best = s.bestSellers("en", null);
+        assertEquals(1, best.size());
+        assertTrue(best.getFirst().bestSeller());
+        assertTrue(s.bestSellers("de", "COFFEE").isEmpty());
+        assertEquals(List.of("COFFEE", "MILK_TEA"), s.categories());
+
+        // Subsequent reads are served from memory.
+        assertSame(s, cache.get());
+        verify(repo, times(1)).findAll(Sort.by("createdAt", "id"));
+        verify(repo, times(1)).findDistinctCategories();
+    }
+
+    @Test
+    void onCatalogChanged_shouldRebuildInBackground_andSwapVersion() {
+        CatalogSnapshot first = cache.get();
+
+        cache.onCatalogChanged(new ProductCatalogChangedEvent("update"));
+
+        verify(repo, timeout(2000).times(2)).findAll(any(Sort.class));
+        // Wait until the swap is visible (rebuild finishes right after the repository calls).
+        long deadline = System.currentTimeMillis() + 2000;
+        while (cache.get().version() == first.version() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(first.version() + 1, cache.get().version());
+    }
+
+    @Test
+    void pollVersion_writeOnAnotherNode_shouldRebuild_andUnchangedVersionShouldNot() {
+        when(repo.findCatalogVersion()).thenReturn(4L);
+        CatalogSnapshot first = cache.get();
+
+        cache.pollVersion();
+        verify(repo, times(1)).findAll(any(Sort.class));
+
+        // Bumped by a product write committed elsewhere.
+        when(repo.findCatalogVersion()).thenReturn(5L);
+        cache.pollVersion();
+
+        verify(repo, timeout(2000).times(2)).findAll(any(Sort.class));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (cache.get().version() == first.version() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(first.version() + 1, cache.get().version());
+    }
+
+    @Test
+    void contentHash_shouldBeStableForSameContent_andChangeWithPrice() {
+        Product p = product("Espresso", "Espresso", "COFFEE", false);
+        CatalogSnapshot a = CatalogSnapshot.build(1, Instant.now(clock), List.of(p), List.of("COFFEE"), CatalogSnapshotCacheUnitTest::json);
+        CatalogSnapshot b = CatalogSnapshot.build(2, Instant.now(clock), List.of(p), List.of("COFFEE"), CatalogSnapshotCacheUnitTest::json);
+
+        // Version differs per rebuild/node, the tag must not.
+        assertEquals(a.etag("de"), b.etag("de-DE"));
+        assertNotEquals(a.etag("de"), a.etag("en"));
+
+        p.setPrice(new BigDecimal("4.60"));
+        CatalogSnapshot c = CatalogSnapshot.build(3, Instant.now(clock), List.of(p), List.of("COFFEE"), CatalogSnapshotCacheUnitTest::json);
+        assertNotEquals(a.etag("de"), c.etag("de"));
+    }
+
+    @Test
+    void payload_shouldHoldJsonAndCompressedVariants_perLanguageCategoryAndBestSeller() throws Exception {
+        CatalogSnapshot s = cache.get();
+
+        MenuPayload de = s.payload("de", null, false);
+        String json = new String(de.bytes(MenuPayload.Encoding.IDENTITY), StandardCharsets.UTF_8);
+        assertTrue(json.contains("Classic Milchtee"));
+        assertSame(de, s.payload("de-DE", " ", false));
+        assertNotSame(de, s.payload("en", null, false));
+        assertNotSame(de, s.payload("de", null, true));
+        assertEquals("[]", new String(s.payload("de", "unknown", false).bytes(MenuPayload.Encoding.IDENTITY),
+                StandardCharsets.UTF_8));
+
+        // Small bodies are never compressed.
+        assertEquals(MenuPayload.Encoding.IDENTITY, s.payload("de", "unknown", false).negotiate("gzip, deflate"));
+
+        byte[] big = ("[" + "\"x\",".repeat(500) + "\"x\"]").getBytes(StandardCharsets.UTF_8);
+        MenuPayload p = MenuPayload.of(big);
+        assertEquals(MenuPayload.Encoding.GZIP, p.negotiate("deflate, gzip;q=0.8"));
+        assertEquals(MenuPayload.Encoding.DEFLATE, p.negotiate("gzip;q=0, deflate"));
+        // "*" only stands for codings the header does not mention
+        assertEquals(MenuPayload.Encoding.DEFLATE, p.negotiate("gzip;q=0, *"));
+        assertEquals(MenuPayload.Encoding.IDENTITY, p.negotiate("gzip;q=0, deflate;q=0, *"));
+        assertEquals(MenuPayload.Encoding.GZIP, p.negotiate("*"));
+        assertEquals(MenuPayload.Encoding.IDENTITY, p.negotiate(null));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(p.bytes(MenuPayload.Encoding.GZIP)))) {
+            assertArrayEquals(big, in.readAllBytes());
+        }
+        assertEquals("\"abc-de-gzip\"", MenuPayload.etag("\"abc-de\"", MenuPayload.Encoding.GZIP));
+    }
+
+    private static byte[] json(Object o) {
+        return new ObjectMapper().writeValueAsBytes(o);
+    }
+
+    private static Product product(String nameDe, String nameEn, String category, boolean bestSeller) {
+        return Product.builder()
+                .id(UUID.randomUUID())
+                .nameDe(nameDe)
+                .nameEn(nameEn)
+                .price(new BigDecimal("4.50"))
+                .category(category)
+                .isBestSeller(bestSeller)
+                .build();
+    }
+}
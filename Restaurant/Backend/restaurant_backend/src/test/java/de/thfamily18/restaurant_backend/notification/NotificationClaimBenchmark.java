@@ -0,0 +1,122 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import de.thfamily18.restaurant_backend.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Claim latency (lockDue of one lane + lockExpiredLeases, as NotificationProcessor claims a batch) while the table grows
+ * from 10k to 10M rows. The claimable backlog stays the same (1000 due, 50 expired leases); only SENT rows grow.
+ * With the partial indexes (V13 - V15) the plans must not scan the table and the latency must stay flat.
+ *
+ * Not part of the regular build (name does not match *Test / *IT). Run manually, Docker required:
+ *   mvn test -Dtest=NotificationClaimBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *       [-Dbenchmark.sizes=10000,100000,1000000,10000000]
+ */
+@SpringBootTest(properties = "app.notification.listen.enabled=false")
+class NotificationClaimBenchmark extends AbstractIntegrationTest {
+
+    private static final int BATCH = 20;
+    private static final int DUE = 1_000;
+    private static final int STALE = 50;
+    private static final int ROUNDS = 200;
+
+    @Autowired
+    NotificationRepository repo;
+    @Autowired
+    TransactionTemplate tx;
+    @Autowired
+    JdbcTemplate jdbc;
+    // Keep the real processor from draining the seeded backlog.
+    @MockitoBean
+    NotificationProcessor processor;
+
+    @BeforeAll
+    void schema() throws Exception {
+        // The test schema comes from Hibernate (create-drop), which cannot express partial indexes.
+        for (String migration : List.of("V13__notification_claim_partial_indexes.sql", "V14__notification_leases.sql",
+                "V15__notification_lane_index.sql")) {
+            jdbc.execute(new ClassPathResource("db/migration/" + migration).getContentAsString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void claimLatency_shouldStayFlat_from10kTo10mRows() {
+        List<Integer> sizes = Arrays.stream(System.getProperty("benchmark.sizes", "10000,100000,1000000,10000000")
+                .split(",")).map(String::trim).map(Integer::parseInt).sorted().toList();
+
+        jdbc.update("delete from notifications");
+        seed("PENDING", "now() - interval '1 minute'", "null", DUE);
+        seed("SENDING", "now() - interval '1 hour'", "now() - interval '1 hour'", STALE);
+        jdbc.update("update notifications set claimed_by = 'worker-dead', lease_until = now() - interval '1 minute'"
+                + " where status = 'SENDING'");
+
+        System.out.printf("%12s %10s %10s %10s%n", "rows", "p50 us", "p99 us", "max us");
+        int rows = DUE + STALE;
+        for (int size : sizes) {
+            if (size > rows) {
+                seed("SENT", "now() - interval '1 day'", "null", size - rows);
+                rows = size;
+            }
+            jdbc.execute("analyze notifications");
+
+            assertNoSeqScan("select * from notifications where status in ('PENDING','FAILED') and type = 'PAYMENT_SUCCEEDED'"
+                    + " and next_attempt_at <= now()"
+                    + " order by next_attempt_at limit 20 for update skip locked");
+            assertNoSeqScan("select * from notifications where status = 'SENDING' and lease_until <= now()"
+                    + " order by lease_until limit 20 for update skip locked");
+
+            long[] micros = new long[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                micros[i] = claimOnceMicros();
+            }
+            Arrays.sort(micros);
+            System.out.printf("%12d %10d %10d %10d%n",
+                    rows, micros[ROUNDS / 2], micros[ROUNDS * 99 / 100], micros[ROUNDS - 1]);
+        }
+    }
+
+    // Same claim as NotificationProcessor, rolled back so every round sees the same backlog.
+    private long claimOnceMicros() {
+        LocalDateTime now = LocalDateTime.now();
+        long started = System.nanoTime();
+        Integer claimed = tx.execute(status -> {
+            int n = repo.lockDue(NotificationType.PAYMENT_SUCCEEDED.name(), now, BATCH).size();
+            if (n < BATCH) n += repo.lockExpiredLeases(now, BATCH - n).size();
+            status.setRollbackOnly();
+            return n;
+        });
+        long micros = (System.nanoTime() - started) / 1_000;
+        assertEquals(BATCH, claimed);
+        return micros;
+    }
+
+    private void seed(String status, String nextAttemptAt, String processingStartedAt, int count) {
+        jdbc.update("""
+                insert into notifications (id, type, channel, recipient, status, attempts, next_attempt_at,
+                                           created_at, processing_started_at)
+                select gen_random_uuid(), 'PAYMENT_SUCCEEDED', 'EMAIL', 'guest' || g || '@example.com', ?, 0,
+                       %s, now() - interval '1 day', %s
+                from generate_series(1, ?) g
+                """.formatted(nextAttemptAt, processingStartedAt), status, count);
+    }
+
+    private void assertNoSeqScan(String sql) {
+        String plan = String.join("\n", jdbc.queryForList("explain " + sql, String.class));
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+}
@@ -0,0 +1,117 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import de.thfamily18.restaurant_backend.AbstractIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Finalizing notification outcomes on a 100k-row queue:
+ * old path (one transaction, findById and update per message) vs. NotificationProcessor.finalizeBatch
+ * (one transaction and one set-based statement per outcome per batch of 20).
+ *
+ * Not part of the regular build (name does not match *Test / *IT). Run manually, Docker required:
+ *   mvn test -Dtest=NotificationFinalizeBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@SpringBootTest(properties = "app.notification.listen.enabled=false")
+class NotificationFinalizeBenchmark extends AbstractIntegrationTest {
+
+    private static final int ROWS = 100_000;
+    private static final int BATCH = 20;
+    // every 5th message fails
+    private static final int FAIL_EVERY = 5;
+
+    @Autowired
+    NotificationProcessor processor;
+    @Autowired
+    NotificationRepository repo;
+    @Autowired
+    TransactionTemplate tx;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void finalize100k_perRowVsSetBased() {
+        long perRow = run("per-row", batch -> {
+            for (NotificationProcessor.SendResult r : batch) {
+                if (r.error() == null) legacyMarkSent(r.task().notificationId());
+                else legacyMarkFailed(r.task().notificationId(), r.error());
+            }
+        });
+        long setBased = run("set-based", processor::finalizeBatch);
+
+        System.out.printf("finalize %d rows: per-row %d ms (%.0f rows/s), set-based %d ms (%.0f rows/s), %.1fx%n",
+                ROWS, perRow, ROWS * 1000.0 / perRow, setBased, ROWS * 1000.0 / setBased, (double) perRow / setBased);
+    }
+
+    private long run(String name, Consumer<List<NotificationProcessor.SendResult>> finalizer) {
+        List<NotificationProcessor.SendTask> tasks = seed();
+        RuntimeException error = new RuntimeException("SES throttled");
+
+        long started = System.nanoTime();
+        for (int from = 0; from < tasks.size(); from += BATCH) {
+            List<NotificationProcessor.SendResult> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(from + BATCH, tasks.size()); i++) {
+                batch.add(new NotificationProcessor.SendResult(tasks.get(i), i % FAIL_EVERY == 0 ? error : null));
+            }
+            finalizer.accept(batch);
+        }
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(ROWS / FAIL_EVERY, count("FAILED"), name);
+        assertEquals(ROWS - ROWS / FAIL_EVERY, count("SENT"), name);
+        return millis;
+    }
+
+    private List<NotificationProcessor.SendTask> seed() {
+        jdbc.update("delete from notifications");
+        jdbc.update("""
+                insert into notifications (id, type, channel, recipient, status, attempts, next_attempt_at,
+                                           created_at, processing_started_at, claimed_by, lease_until)
+                select gen_random_uuid(), 'PAYMENT_SUCCEEDED', 'EMAIL', 'guest' || g || '@example.com', 'SENDING', 0,
+                       now(), now(), now(), ?, now() + interval '1 hour'
+                from generate_series(1, ?) g
+                """, processor.workerId(), ROWS);
+        jdbc.execute("analyze notifications");
+        return jdbc.query("select id from notifications order by created_at, id", (rs, i) ->
+                new NotificationProcessor.SendTask(rs.getObject(1, UUID.class), "guest@example.com",
+                        NotificationType.PAYMENT_SUCCEEDED, NotificationChannel.EMAIL, null, null, 0));
+    }
+
+    private long count(String status) {
+        return jdbc.queryForObject("select count(*) from notifications where status = ?", Long.class, status);
+    }
+
+    // The finalization as it was before set-based batches.
+    private void legacyMarkSent(UUID id) {
+        tx.executeWithoutResult(status -> {
+            Notification n = repo.findById(id).orElse(null);
+            if (n == null) return;
+            repo.updateAfterSend(id, NotificationStatus.SENT, null, LocalDateTime.now(),
+                    n.getNextAttemptAt(), n.getAttempts(), null);
+        });
+    }
+
+    private void legacyMarkFailed(UUID id, Exception ex) {
+        tx.executeWithoutResult(status -> {
+            Notification n = repo.findById(id).orElse(null);
+            if (n == null) return;
+            int attempts = n.getAttempts() + 1;
+            n.setAttempts(attempts);
+            n.setStatus(NotificationStatus.FAILED);
+            n.setLastError(NotificationRetryPolicy.trim(ex.getMessage(), 500));
+            n.setProcessingStartedAt(null);
+            n.setNextAttemptAt(LocalDateTime.now().plusSeconds(NotificationRetryPolicy.backoffSeconds(attempts)));
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import de.thfamily18.restaurant_backend.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// finalizeBatch runs every outcome of a batch in one transaction, so one failing statement would roll back
+// the SENT rows with it. Runs against the real schema constraints (next_attempt_at NOT NULL, as in V4).
+@SpringBootTest(properties = {"app.notification.listen.enabled=false", "notification.maxAttempts=3"})
+class NotificationFinalizeIT extends AbstractIntegrationTest {
+
+    @Autowired
+    NotificationProcessor processor;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @BeforeEach
+    void clean() {
+        jdbc.update("delete from notifications");
+    }
+
+    @Test
+    void finalizeBatch_mixedOutcomesWithDead_shouldCommitEveryOutcome() {
+        NotificationProcessor.SendTask sent = claimed(0);
+        NotificationProcessor.SendTask failed = claimed(0);
+        NotificationProcessor.SendTask dead = claimed(2);
+        RuntimeException error = new RuntimeException("SES rejected");
+
+        processor.finalizeBatch(List.of(
+                new NotificationProcessor.SendResult(sent, null),
+                new NotificationProcessor.SendResult(failed, error),
+                new NotificationProcessor.SendResult(dead, error)));
+
+        assertEquals("SENT", row(sent).get("status"));
+        assertEquals("FAILED", row(failed).get("status"));
+
+        Map<String, Object> deadRow = row(dead);
+        assertEquals("DEAD", deadRow.get("status"));
+        assertEquals(3, deadRow.get("attempts"));
+        assertEquals("SES rejected", deadRow.get("last_error"));
+        assertNotNull(deadRow.get("dead_lettered_at"));
+        assertNotNull(deadRow.get("next_attempt_at"));
+        assertNull(deadRow.get("claimed_by"));
+    }
+
+    private NotificationProcessor.SendTask claimed(int attempts) {
+        UUID id = UUID.randomUUID();
+        jdbc.update("""
+                insert into notifications (id, type, channel, recipient, status, attempts, next_attempt_at,
+                                           created_at, processing_started_at, claimed_by, lease_until)
+                values (?, 'PAYMENT_SUCCEEDED', 'EMAIL', 'guest@example.com', 'SENDING', ?,
+                        now(), now(), now(), ?, now() + interval '1 hour')
+                """, id, attempts, processor.workerId());
+        return new NotificationProcessor.SendTask(id, "guest@example.com",
+                NotificationType.PAYMENT_SUCCEEDED, NotificationChannel.EMAIL, null, null, attempts);
+    }
+
+    private Map<String, Object> row(NotificationProcessor.SendTask task) {
+        return jdbc.queryForMap("select * from notifications where id = ?", task.notificationId());
+    }
+}
@@ -0,0 +1,405 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import de.thfamily18.restaurant_backend.notification.mail.EmailMessage;
+import de.thfamily18.restaurant_backend.notification.mail.EmailResult;
+import de.thfamily18.restaurant_backend.notification.mail.EmailSender;
+import de.thfamily18.restaurant_backend.notification.mail.EmailThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class NotificationProcessorUnitTest {
+
+    NotificationRepository repo = mock(NotificationRepository.class);
+    EmailSender emailSender = mock(EmailSender.class);
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T12:00:00Z"), ZoneOffset.UTC);
+    PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    NotificationProcessor processor;
+
+    @BeforeEach
+    void setup() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        MockEnvironment env = new MockEnvironment().withProperty("app.notification.dispatch.concurrency.email", "3");
+        processor = new NotificationProcessor(repo, tx, emailSender, clock, registry, env);
+        ReflectionTestUtils.setField(processor, "maxAttempts", 10);
+        ReflectionTestUtils.setField(processor, "sendTimeoutMillis", 300L);
+        ReflectionTestUtils.setField(processor, "pollMinMillis", 200L);
+        ReflectionTestUtils.setField(processor, "pollMaxMillis", 60_000L);
+        ReflectionTestUtils.setField(processor, "workerId", "worker-a");
+        ReflectionTestUtils.setField(processor, "leaseMillis", 60_000L);
+        ReflectionTestUtils.setField(processor, "heartbeatMillis", 15_000L);
+        ReflectionTestUtils.setField(processor, "minBatchSize", 5);
+        ReflectionTestUtils.setField(processor, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(processor, "initialBatchSize", 20);
+        ReflectionTestUtils.setField(processor, "targetBatchMillis", 2_000L);
+        ReflectionTestUtils.invokeMethod(processor, "initMetrics");
+        when(repo.lockDue(anyString(), any(), anyInt())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(processor, "shutdown");
+    }
+
+    @Test
+    void nextDelay_shouldBackOffWhileIdle_andResetAfterWork() {
+        assertEquals(200, processor.nextDelay(0));
+        assertEquals(400, processor.nextDelay(0));
+        assertEquals(800, processor.nextDelay(0));
+        assertEquals(200, processor.nextDelay(3));
+        assertEquals(200, processor.nextDelay(0));
+        assertEquals(400, processor.nextDelay(0));
+    }
+
+    @Test
+    void nextDelay_shouldNotSleepPastTheNextRetry() {
+        for (int i = 0; i < 10; i++) processor.nextDelay(0);
+        when(repo.findNextAttemptAt(anyCollection())).thenReturn(LocalDateTime.now(clock).plusSeconds(3));
+
+        assertEquals(3000, processor.nextDelay(0));
+    }
+
+    @Test
+    void wakeUp_shouldDrainImmediately_evenDuringALongIdleSleep() {
+        // Idle: the scheduler is parked for pollMaxMillis.
+        processor.start();
+        verify(repo, timeout(1000).atLeastOnce()).lockDue(anyString(), any(), anyInt());
+        for (int i = 0; i < 10; i++) processor.nextDelay(0);
+
+        Notification n = notification("guest@example.com");
+        when(repo.lockDue(eq("PAYMENT_SUCCEEDED"), any(), anyInt())).thenReturn(List.of(n)).thenReturn(List.of());
+
+        processor.wakeUp();
+
+        verify(emailSender, timeout(1000)).send(eq("guest@example.com"), eq("Payment received"), anyString());
+        verify(repo, timeout(1000)).markSent(eq(List.of(n.getId())), eq("worker-a"), any());
+    }
+
+    @Test
+    void processDue_shouldSendConcurrently_withinTheChannelLimit() {
+        List<Notification> batch = IntStream.range(0, 9).mapToObj(i -> notification("guest" + i + "@example.com")).toList();
+        claim(batch);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(emailSender).send(anyString(), anyString(), anyString());
+
+        long started = System.nanoTime();
+        assertEquals(9, processor.processDue());
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals(3, maxInFlight.get());
+        assertTrue(tookMillis < 9 * 50, "sent one after another, took " + tookMillis + " ms");
+        verify(repo).markSent(argThat(ids -> ids.size() == 9), eq("worker-a"), any());
+        // claim + one finalize transaction for the whole batch
+        verify(txManager, times(2)).getTransaction(any());
+    }
+
+    @Test
+    void processDue_slowSend_shouldTimeOutAlone_andBeRetried() throws Exception {
+        Notification slow = notification("slow@example.com");
+        Notification fast = notification("fast@example.com");
+        claim(List.of(slow, fast));
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await();
+            return null;
+        }).when(emailSender).send(eq("slow@example.com"), anyString(), anyString());
+
+        try {
+            assertEquals(2, processor.processDue());
+        } finally {
+            release.countDown();
+        }
+
+        verify(repo).markSent(eq(List.of(fast.getId())), eq("worker-a"), any());
+        verify(repo).markFailed(
+                aryEq(new UUID[]{slow.getId()}),
+                argThat(errors -> errors.length == 1 && errors[0].contains("timed out")),
+                aryEq(new Long[]{10L}),
+                eq("worker-a"),
+                any());
+        verify(repo, never()).markDead(any(), any(), any(), any());
+    }
+
+    @Test
+    void finalizeBatch_shouldGroupOutcomes_andDeadLetterExhaustedAttempts() {
+        NotificationProcessor.SendTask ok = task(0);
+        NotificationProcessor.SendTask retry = task(2);
+        NotificationProcessor.SendTask exhausted = task(9);
+        RuntimeException boom = new RuntimeException("SES throttled");
+
+        processor.finalizeBatch(List.of(
+                new NotificationProcessor.SendResult(ok, null),
+                new NotificationProcessor.SendResult(retry, boom),
+                new NotificationProcessor.SendResult(exhausted, boom)));
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        verify(repo).markSent(List.of(ok.notificationId()), "worker-a", now);
+        // 3rd attempt failed -> 10 * 2^2 s
+        verify(repo).markFailed(aryEq(new UUID[]{retry.notificationId()}), aryEq(new String[]{"SES throttled"}),
+                aryEq(new Long[]{40L}), eq("worker-a"), eq(now));
+        verify(repo).markDead(aryEq(new UUID[]{exhausted.notificationId()}), aryEq(new String[]{"SES throttled"}),
+                eq("worker-a"), eq(now));
+        // one transaction, nothing re-loaded
+        verify(txManager, times(1)).getTransaction(any());
+        verify(repo, never()).findById(any());
+    }
+
+    private static NotificationProcessor.SendTask task(int attempts) {
+        return new NotificationProcessor.SendTask(UUID.randomUUID(), "guest@example.com",
+                NotificationType.PAYMENT_SUCCEEDED, NotificationChannel.EMAIL, UUID.randomUUID(), null, attempts);
+    }
+
+    @Test
+    void processDue_shouldOnlyReclaimExpiredLeases_whenDueRowsDoNotFillTheBatch() {
+        List<Notification> full = IntStream.range(0, 20).mapToObj(i -> notification("guest" + i + "@example.com")).toList();
+        Notification due = notification("due@example.com");
+        Notification stale = notification("stale@example.com");
+        when(repo.lockDue(eq("PAYMENT_SUCCEEDED"), any(), anyInt()))
+                .thenReturn(full).thenReturn(List.of(due)).thenReturn(List.of());
+        stale.setStatus(NotificationStatus.SENDING);
+        stale.setClaimedBy("worker-dead");
+        when(repo.lockExpiredLeases(any(), anyInt())).thenReturn(List.of(stale)).thenReturn(List.of());
+
+        assertEquals(22, processor.processDue());
+
+        // first batch (20) was full with due rows, so the second one doubles to 40 and tops up 39 slots with expired leases
+        verify(repo, times(1)).lockExpiredLeases(LocalDateTime.now(clock), 39);
+        verify(emailSender).send(eq("stale@example.com"), anyString(), anyString());
+        assertEquals("worker-a", stale.getClaimedBy());
+        assertEquals(LocalDateTime.now(clock).plusMinutes(1), stale.getLeaseUntil());
+        assertEquals(1, registry.counter("notifications.lease.reclaimed").count());
+    }
+
+    @Test
+    void heartbeat_shouldRenewLeasesOfTheBatchInFlight() throws Exception {
+        Notification slow = notification("slow@example.com");
+        claim(List.of(slow));
+        ReflectionTestUtils.setField(processor, "sendTimeoutMillis", 5_000L);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await();
+            return null;
+        }).when(emailSender).send(anyString(), anyString(), anyString());
+        when(repo.renewLeases(anyCollection(), anyString(), any())).thenReturn(1);
+
+        Thread worker = Thread.ofVirtual().start(processor::processDue);
+        assertTrue(sending.await(1, TimeUnit.SECONDS));
+        processor.heartbeat();
+        release.countDown();
+        worker.join(1000);
+
+        verify(repo).renewLeases(List.of(slow.getId()), "worker-a", LocalDateTime.now(clock).plusMinutes(1));
+        assertEquals(0, registry.counter("notifications.lease.lost").count());
+
+        // finished: nothing left to renew
+        processor.heartbeat();
+        verify(repo, times(1)).renewLeases(anyCollection(), anyString(), any());
+    }
+
+    @Test
+    void heartbeat_shouldWakeUp_whenAnotherWorkersLeaseExpired() {
+        when(repo.existsExpiredLease(any())).thenReturn(true);
+        when(repo.countActiveWorkers(any())).thenReturn(3L);
+
+        processor.heartbeat();
+
+        verify(repo, timeout(1000).atLeastOnce()).lockDue(anyString(), any(), anyInt());
+        assertEquals(3, registry.get("notifications.lease.active_workers").gauge().value());
+    }
+
+    @Test
+    void claim_shortBatchWhileDueRowsRemain_shouldCountContention() {
+        claim(List.of(notification("guest@example.com")));
+        when(repo.existsDue(any())).thenReturn(true).thenReturn(false);
+
+        processor.processDue();
+
+        assertEquals(1, registry.counter("notifications.claim.contention").count());
+    }
+
+    @Test
+    void processDue_bulkSender_shouldSendInChunks_andMapResultsByNotificationId() {
+        List<Notification> batch = notifications(5);
+        claim(batch);
+        when(emailSender.maxBatchSize()).thenReturn(2);
+        AtomicInteger calls = new AtomicInteger();
+        when(emailSender.sendBatch(anyList())).thenAnswer(inv -> {
+            calls.incrementAndGet();
+            List<EmailMessage> messages = inv.getArgument(0);
+            return messages.stream()
+                    .map(m -> m.to().equals("guest3@example.com")
+                            ? EmailResult.failed(m.id(), "MessageRejected: address blacklisted")
+                            : EmailResult.sent(m.id(), "msg-" + m.to()))
+                    .toList();
+        });
+
+        assertEquals(5, processor.processDue());
+
+        assertEquals(3, calls.get());
+        verify(emailSender, never()).send(anyString(), anyString(), anyString());
+        verify(repo).markSent(argThat(ids -> ids.size() == 4 && !ids.contains(batch.get(3).getId())), eq("worker-a"), any());
+        verify(repo).markFailed(
+                aryEq(new UUID[]{batch.get(3).getId()}),
+                aryEq(new String[]{"MessageRejected: address blacklisted"}),
+                any(), eq("worker-a"), any());
+    }
+
+    @Test
+    void processDue_throttledSend_shouldBeDeferred_withoutCountingAnAttempt() {
+        Notification lastTry = notification("guest@example.com");
+        lastTry.setAttempts(9); // one more failed attempt would dead-letter it
+        Notification bulk = notification("bulk@example.com");
+        claim(List.of(lastTry));
+        doThrow(new EmailThrottledException("SES send rate exceeded"))
+                .when(emailSender).send(anyString(), anyString(), anyString());
+        ReflectionTestUtils.setField(processor, "deferMillis", 1_000L);
+
+        assertEquals(1, processor.processDue());
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        verify(repo).markDeferred(List.of(lastTry.getId()), "Deferred: send rate limit", "worker-a", now.plusSeconds(1));
+        verify(repo, never()).markFailed(any(), any(), any(), any(), any());
+        verify(repo, never()).markDead(any(), any(), any(), any());
+        assertEquals(1, registry.counter("notifications.deferred").count());
+
+        // Bulk path: a throttled result is deferred the same way.
+        claim(List.of(bulk));
+        when(emailSender.maxBatchSize()).thenReturn(10);
+        when(emailSender.sendBatch(anyList())).thenAnswer(inv -> List.of(
+                EmailResult.throttled(((List<EmailMessage>) inv.getArgument(0)).getFirst().id(), "no tokens")));
+
+        assertEquals(1, processor.processDue());
+
+        verify(repo).markDeferred(eq(List.of(bulk.getId())), anyString(), eq("worker-a"), any());
+        verify(repo, never()).markFailed(any(), any(), any(), any(), any());
+        verify(repo, never()).markDead(any(), any(), any(), any());
+    }
+
+    @Test
+    void laneQuotas_shouldShareByWeight_withAtLeastOneSlotPerLane() {
+        // 1 guaranteed slot per lane, 16 shared by weight 8/4/2/1
+        assertEquals(Map.of(NotificationType.PAYMENT_SUCCEEDED, 9, NotificationType.ORDER_CREATED, 5,
+                NotificationType.REFUND_SUCCEEDED, 3, NotificationType.REFUND_REQUESTED, 2), processor.laneQuotas(20));
+        assertEquals(Map.of(NotificationType.PAYMENT_SUCCEEDED, 1, NotificationType.ORDER_CREATED, 1,
+                NotificationType.REFUND_SUCCEEDED, 1, NotificationType.REFUND_REQUESTED, 1), processor.laneQuotas(5));
+        // fewer slots than lanes: highest priority first
+        assertEquals(Map.of(NotificationType.PAYMENT_SUCCEEDED, 1, NotificationType.ORDER_CREATED, 1),
+                processor.laneQuotas(2));
+        for (int size = 1; size <= 100; size++) {
+            int total = processor.laneQuotas(size).values().stream().mapToInt(Integer::intValue).sum();
+            assertTrue(total <= size, "size " + size + " claims " + total);
+        }
+        // by priority
+        assertEquals(List.of(NotificationType.PAYMENT_SUCCEEDED, NotificationType.ORDER_CREATED,
+                NotificationType.REFUND_SUCCEEDED, NotificationType.REFUND_REQUESTED),
+                List.copyOf(processor.laneQuotas(20).keySet()));
+    }
+
+    @Test
+    void processDue_lowPriorityLane_shouldNotStarve_behindABackloggedLane() {
+        Notification refund = notification("refund@example.com", NotificationType.REFUND_REQUESTED);
+        when(repo.lockDue(eq("PAYMENT_SUCCEEDED"), any(), anyInt()))
+                .thenAnswer(inv -> notifications(inv.getArgument(2)))
+                .thenAnswer(inv -> notifications(inv.getArgument(2)))
+                .thenReturn(List.of());
+        when(repo.lockDue(eq("REFUND_REQUESTED"), any(), anyInt())).thenReturn(List.of(refund)).thenReturn(List.of());
+
+        assertEquals(20, processor.processDue());
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        InOrder order = inOrder(repo);
+        order.verify(repo).lockDue("PAYMENT_SUCCEEDED", now, 9);
+        order.verify(repo).lockDue("ORDER_CREATED", now, 5);
+        order.verify(repo).lockDue("REFUND_SUCCEEDED", now, 3);
+        order.verify(repo).lockDue("REFUND_REQUESTED", now, 2);
+        // the backlogged lane gets the slots the others left unused, after its first rows are flushed as SENDING
+        order.verify(repo).flush();
+        order.verify(repo).lockDue("PAYMENT_SUCCEEDED", now, 10);
+        verify(emailSender).send(eq("refund@example.com"), eq("Refund requested"), anyString());
+        assertEquals(1, registry.counter("notifications.claimed", "lane", "REFUND_REQUESTED").count());
+        assertEquals(19, registry.counter("notifications.claimed", "lane", "PAYMENT_SUCCEEDED").count());
+    }
+
+    @Test
+    void adaptBatchSize_shouldGrowWithBacklog_shrinkWhenShort_andRespectLatency() {
+        processor.adaptBatchSize(20, 20);
+        assertEquals(40, processor.batchSize());
+        processor.adaptBatchSize(80, 80);
+        assertEquals(100, processor.batchSize());
+        processor.adaptBatchSize(12, 100);
+        assertEquals(12, processor.batchSize());
+        processor.adaptBatchSize(0, 12);
+        assertEquals(5, processor.batchSize());
+
+        // 3 concurrent email sends at 500 ms each -> 12 fit into the 2 s target
+        ReflectionTestUtils.setField(processor, "avgSendMillis", 500.0);
+        processor.adaptBatchSize(50, 50);
+        assertEquals(12, processor.batchSize());
+    }
+
+    @Test
+    void heartbeat_shouldPublishDepthAndAgePerLane() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        when(repo.findLaneDepths(anyCollection())).thenReturn(List.of(
+                new NotificationLaneDepth(NotificationType.ORDER_CREATED, 7L, now.minusSeconds(90))));
+
+        processor.heartbeat();
+
+        assertEquals(7, registry.get("notifications.queue.depth").tag("lane", "ORDER_CREATED").gauge().value());
+        assertEquals(90, registry.get("notifications.queue.oldest.seconds").tag("lane", "ORDER_CREATED").gauge().value());
+        assertEquals(0, registry.get("notifications.queue.depth").tag("lane", "REFUND_REQUESTED").gauge().value());
+    }
+
+    private void claim(List<Notification> batch) {
+        when(repo.lockDue(eq("PAYMENT_SUCCEEDED"), any(), anyInt())).thenReturn(batch).thenReturn(List.of());
+    }
+
+    private static List<Notification> notifications(int count) {
+        return IntStream.range(0, count).mapToObj(i -> notification("guest" + i + "@example.com")).toList();
+    }
+
+    private static Notification notification(String recipient) {
+        return notification(recipient, NotificationType.PAYMENT_SUCCEEDED);
+    }
+
+    private static Notification notification(String recipient, NotificationType type) {
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .type(type)
+                .recipient(recipient)
+                .orderId(UUID.randomUUID())
+                .build();
+    }
+}
@@ -3,9 +3,9 @@ package de.thfamily18.restaurant_backend.notification;
 // Make sure schema exists in tests
 // Key goals
 
-// SKIP LOCKED works: two concurrent transactions call lockNextReady() and they must not get the same row.
+// SKIP LOCKED works: two concurrent transactions call lockDue() and they must not get the same row.
 
-// Re-claim SENDING timeout works: a row in SENDING with processing_started_at older than timeout should be returned.
+// Re-claim expired leases works (lockExpiredLeases): a row in SENDING with lease_until in the past should be returned.
 
 // This test uses TransactionTemplate so we can keep a transaction open to hold row locks.
 public class NotificationRepositoryLockingIT {
@@ -0,0 +1,75 @@
+package de.thfamily18.restaurant_backend.notification;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NotificationWakeupListenerUnitTest {
+
+    NotificationProcessor processor = mock(NotificationProcessor.class);
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    NotificationWakeupListener listener;
+
+    @BeforeEach
+    void setup() {
+        listener = new NotificationWakeupListener(processor, mock(DataSource.class), jdbc, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(listener, "listenEnabled", true);
+        ReflectionTestUtils.invokeMethod(listener, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(listener, "shutdown");
+    }
+
+    @Test
+    void notifyOtherNodes_shouldCoalesceEnqueues_whileANotifyIsPending() throws Exception {
+        CountDownLatch inNotify = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            inNotify.countDown();
+            release.await();
+            return null;
+        }).doNothing().when(jdbc).execute("NOTIFY " + NotificationWakeupListener.CHANNEL);
+
+        listener.notifyOtherNodes(event());
+        assertTrue(inNotify.await(1, TimeUnit.SECONDS));
+        // One NOTIFY is running: these three share the next one.
+        listener.notifyOtherNodes(event());
+        listener.notifyOtherNodes(event());
+        listener.notifyOtherNodes(event());
+        release.countDown();
+
+        verify(jdbc, timeout(1000).times(2)).execute("NOTIFY " + NotificationWakeupListener.CHANNEL);
+        Thread.sleep(100);
+        verify(jdbc, times(2)).execute("NOTIFY " + NotificationWakeupListener.CHANNEL);
+    }
+
+    @Test
+    void notifyOtherNodes_failure_shouldNotPropagate_andNotBlockLaterNotifies() {
+        doThrow(new CannotGetJdbcConnectionException("pool exhausted")).doNothing()
+                .when(jdbc).execute("NOTIFY " + NotificationWakeupListener.CHANNEL);
+
+        assertDoesNotThrow(() -> listener.notifyOtherNodes(event()));
+        verify(jdbc, timeout(1000).times(1)).execute(anyString());
+
+        listener.notifyOtherNodes(event());
+        verify(jdbc, timeout(1000).times(2)).execute(anyString());
+    }
+
+    private static NotificationEnqueuedEvent event() {
+        return new NotificationEnqueuedEvent(UUID.randomUUID(), NotificationType.ORDER_CREATED);
+    }
+}
@@ -0,0 +1,96 @@
+package de.thfamily18.restaurant_backend.notification.mail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ses.SesClient;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SesEmailSender against LocalStack's SES: templates created on demand, bulk templated sends,
+ * one result with a message id per recipient.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SesEmailSenderIT {
+
+    private static final String FROM = "shop@example.com";
+
+    @Container
+    static final GenericContainer<?> localstack = new GenericContainer<>("localstack/localstack:3.8")
+            .withEnv("SERVICES", "ses")
+            .withExposedPorts(4566)
+            .waitingFor(Wait.forHttp("/_localstack/health").forPort(4566).forStatusCode(200));
+
+    SesClient ses;
+    SesEmailSender sender;
+
+    @BeforeAll
+    void setup() {
+        ses = SesClient.builder()
+                .endpointOverride(URI.create("http://" + localstack.getHost() + ":" + localstack.getMappedPort(4566)))
+                .region(Region.EU_CENTRAL_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .build();
+        // SES only sends from verified identities, LocalStack included.
+        ses.verifyEmailIdentity(r -> r.emailAddress(FROM));
+
+        sender = new SesEmailSender(ses, JsonMapper.builder().build(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sender, "from", FROM);
+        ReflectionTestUtils.setField(sender, "maxSendRate", 14);
+        ReflectionTestUtils.setField(sender, "nodes", 1);
+        ReflectionTestUtils.setField(sender, "maxWaitMillis", 5_000L);
+        ReflectionTestUtils.setField(sender, "templatePrefix", "restaurant-");
+        ReflectionTestUtils.setField(sender, "createTemplates", true);
+        ReflectionTestUtils.invokeMethod(sender, "init");
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (ses != null) ses.close();
+    }
+
+    @Test
+    void sendBatch_shouldDeliverEveryRecipient_withItsOwnMessageId() {
+        List<EmailMessage> messages = IntStream.range(0, 20)
+                .mapToObj(i -> new EmailMessage(UUID.randomUUID(), "guest" + i + "@example.com",
+                        i % 4 == 0 ? "order_created" : "payment_succeeded",
+                        Map.of(EmailMessage.SUBJECT, "Order " + i, EmailMessage.BODY, "Thanks, guest " + i)))
+                .toList();
+
+        List<EmailResult> results = sender.sendBatch(messages);
+
+        assertEquals(20, results.size());
+        assertEquals(messages.stream().map(EmailMessage::id).sorted().toList(),
+                results.stream().map(EmailResult::id).sorted().toList());
+        results.forEach(r -> {
+            assertTrue(r.ok(), r.error());
+            assertNotNull(r.providerMessageId());
+        });
+        assertEquals(20, results.stream().map(EmailResult::providerMessageId).distinct().count());
+        assertNotNull(ses.getTemplate(r -> r.templateName("restaurant-order_created")).template());
+    }
+
+    @Test
+    void send_shouldDeliverASingleEmail() {
+        assertDoesNotThrow(() -> sender.send("guest@example.com", "Payment received", "Thanks"));
+    }
+}
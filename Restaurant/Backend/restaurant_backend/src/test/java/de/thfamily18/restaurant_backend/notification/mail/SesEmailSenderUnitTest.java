@@ -0,0 +1,165 @@
+package de.thfamily18.restaurant_backend.notification.mail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.BulkEmailDestinationStatus;
+import software.amazon.awssdk.services.ses.model.BulkEmailStatus;
+import software.amazon.awssdk.services.ses.model.SendBulkTemplatedEmailRequest;
+import software.amazon.awssdk.services.ses.model.SendBulkTemplatedEmailResponse;
+import software.amazon.awssdk.services.ses.model.SesException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SesEmailSenderUnitTest {
+
+    SesClient ses = mock(SesClient.class);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    SesEmailSender sender;
+
+    @BeforeEach
+    void setup() {
+        sender = new SesEmailSender(ses, JsonMapper.builder().build(), registry);
+        ReflectionTestUtils.setField(sender, "from", "shop@example.com");
+        ReflectionTestUtils.setField(sender, "maxSendRate", 3);
+        ReflectionTestUtils.setField(sender, "nodes", 1);
+        ReflectionTestUtils.setField(sender, "maxWaitMillis", 2_000L);
+        ReflectionTestUtils.setField(sender, "templatePrefix", "restaurant-");
+        ReflectionTestUtils.invokeMethod(sender, "init");
+        when(ses.sendBulkTemplatedEmail(any(SendBulkTemplatedEmailRequest.class))).thenAnswer(inv -> {
+            SendBulkTemplatedEmailRequest req = inv.getArgument(0);
+            return SendBulkTemplatedEmailResponse.builder().status(req.destinations().stream()
+                    .map(d -> BulkEmailDestinationStatus.builder()
+                            .status(BulkEmailStatus.SUCCESS)
+                            .messageId("msg-" + d.destination().toAddresses().get(0))
+                            .build())
+                    .toList()).build();
+        });
+    }
+
+    @Test
+    void sendBatch_shouldCoalesceByTemplate_inChunksOfTheSendRate() {
+        List<EmailMessage> messages = List.of(
+                message("a@example.com", "payment_succeeded"),
+                message("b@example.com", "order_created"),
+                message("c@example.com", "payment_succeeded"),
+                message("d@example.com", "payment_succeeded"),
+                message("e@example.com", "payment_succeeded"));
+
+        List<EmailResult> results = sender.sendBatch(messages);
+
+        ArgumentCaptor<SendBulkTemplatedEmailRequest> calls = ArgumentCaptor.forClass(SendBulkTemplatedEmailRequest.class);
+        verify(ses, times(3)).sendBulkTemplatedEmail(calls.capture());
+        assertEquals(List.of("restaurant-payment_succeeded", "restaurant-payment_succeeded", "restaurant-order_created"),
+                calls.getAllValues().stream().map(SendBulkTemplatedEmailRequest::template).toList());
+        assertEquals(List.of(3, 1, 1), calls.getAllValues().stream().map(r -> r.destinations().size()).toList());
+        String data = calls.getAllValues().get(0).destinations().get(0).replacementTemplateData();
+        assertTrue(data.contains("\"subject\":\"Hi\"") && data.contains("\"body\":\"Body for a@example.com\""), data);
+
+        assertEquals(5, results.size());
+        for (EmailMessage m : messages) {
+            EmailResult r = results.stream().filter(x -> x.id().equals(m.id())).findFirst().orElseThrow();
+            assertTrue(r.ok());
+            assertEquals("msg-" + m.to(), r.providerMessageId());
+        }
+    }
+
+    @Test
+    void sendBatch_shouldMapPerDestinationStatuses_backToMessageIds() {
+        when(ses.sendBulkTemplatedEmail(any(SendBulkTemplatedEmailRequest.class))).thenReturn(
+                SendBulkTemplatedEmailResponse.builder().status(
+                        BulkEmailDestinationStatus.builder().status(BulkEmailStatus.SUCCESS).messageId("m-1").build(),
+                        BulkEmailDestinationStatus.builder().status(BulkEmailStatus.MESSAGE_REJECTED)
+                                .error("Email address is not verified").build()).build());
+        EmailMessage ok = message("ok@example.com", "payment_succeeded");
+        EmailMessage rejected = message("rejected@example.com", "payment_succeeded");
+
+        List<EmailResult> results = sender.sendBatch(List.of(ok, rejected));
+
+        assertEquals(List.of(EmailResult.sent(ok.id(), "m-1"),
+                EmailResult.failed(rejected.id(), "MessageRejected: Email address is not verified")), results);
+    }
+
+    @Test
+    void sendBatch_failedCall_shouldOnlyFailItsOwnChunk() {
+        when(ses.sendBulkTemplatedEmail(any(SendBulkTemplatedEmailRequest.class)))
+                .thenThrow(SesException.builder().message("Throttling").build())
+                .thenReturn(SendBulkTemplatedEmailResponse.builder().status(
+                        BulkEmailDestinationStatus.builder().status(BulkEmailStatus.SUCCESS).messageId("m-2").build())
+                        .build());
+        EmailMessage first = message("a@example.com", "payment_succeeded");
+        EmailMessage other = message("b@example.com", "order_created");
+
+        List<EmailResult> results = sender.sendBatch(List.of(first, other));
+
+        assertEquals(List.of(EmailResult.failed(first.id(), "Throttling"), EmailResult.sent(other.id(), "m-2")), results);
+    }
+
+    @Test
+    void sendBatch_shouldFailLocally_whenTheSendRateBucketStaysEmpty() {
+        ReflectionTestUtils.setField(sender, "maxWaitMillis", 0L);
+        List<EmailMessage> messages = IntStream.range(0, 5)
+                .mapToObj(i -> message("guest" + i + "@example.com", "payment_succeeded")).toList();
+
+        List<EmailResult> results = sender.sendBatch(messages);
+
+        // 3 tokens per second: the first chunk of 3 goes out, the remaining 2 find the bucket empty
+        verify(ses, times(1)).sendBulkTemplatedEmail(any(SendBulkTemplatedEmailRequest.class));
+        assertEquals(3, results.stream().filter(EmailResult::ok).count());
+        assertEquals(2, registry.counter("mail.ses.throttled").count());
+        assertTrue(results.get(4).throttled());
+        assertTrue(results.get(4).error().contains("rate exceeded"));
+    }
+
+    @Test
+    void sendBatch_sesThrottling_shouldBeReportedAsThrottled_notAsFailure() {
+        when(ses.sendBulkTemplatedEmail(any(SendBulkTemplatedEmailRequest.class))).thenThrow(SesException.builder()
+                .message("Maximum sending rate exceeded.")
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("Throttling").build())
+                .build());
+        EmailMessage m = message("a@example.com", "payment_succeeded");
+
+        EmailResult r = sender.sendBatch(List.of(m)).getFirst();
+
+        assertTrue(r.throttled());
+        assertFalse(r.ok());
+    }
+
+    @Test
+    void send_shouldThrowThrottled_whenTheSendRateBucketStaysEmpty() {
+        ReflectionTestUtils.setField(sender, "maxWaitMillis", 0L);
+        sender.sendBatch(IntStream.range(0, 3).mapToObj(i -> message("g" + i + "@example.com", "order_created")).toList());
+
+        assertThrows(EmailThrottledException.class, () -> sender.send("x@example.com", "Hi", "Body"));
+        verify(ses, never()).sendEmail(any(software.amazon.awssdk.services.ses.model.SendEmailRequest.class));
+    }
+
+    @Test
+    void sendRate_shouldBeThisNodesShareOfTheAccountRate() {
+        ReflectionTestUtils.setField(sender, "nodes", 3);
+        ReflectionTestUtils.setField(sender, "maxWaitMillis", 0L);
+        ReflectionTestUtils.invokeMethod(sender, "init");
+
+        // 3/s across 3 nodes: 1/s here.
+        assertEquals(1, sender.maxBatchSize());
+        sender.send("a@example.com", "Hi", "Body");
+        assertThrows(EmailThrottledException.class, () -> sender.send("b@example.com", "Hi", "Body"));
+    }
+
+    private static EmailMessage message(String to, String template) {
+        return new EmailMessage(UUID.randomUUID(), to, template,
+                Map.of(EmailMessage.SUBJECT, "Hi", EmailMessage.BODY, "Body for " + to));
+    }
+}
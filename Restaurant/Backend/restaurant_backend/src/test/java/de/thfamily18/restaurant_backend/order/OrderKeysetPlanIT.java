@@ -0,0 +1,119 @@
+package de.thfamily18.restaurant_backend.order;
+
+import de.thfamily18.restaurant_backend.AbstractIntegrationTest;
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Guards keyset pagination against degrading to a filtered scan: a deep page must start the backward index scan
+// at the cursor (Index Cond), not read and drop every newer row (Rows Removed by Filter).
+// The indexes come from the @Index declarations on Order (create-drop test schema), same as V8.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "de.thfamily18.restaurant_backend.order.OrderKeysetPlanIT$RecordingInspector")
+class OrderKeysetPlanIT extends AbstractIntegrationTest {
+
+    private static final int ROWS = 50_000;
+    private static final int DEPTH = 40_000;
+    private static final int PAGE = 20;
+
+    @Autowired
+    OrderRepository orderRepo;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private UUID userId;
+    private LocalDateTime cursorCreatedAt;
+    private UUID cursorId;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from order_items");
+        jdbc.update("delete from orders");
+        jdbc.update("delete from users where email = 'keyset@test.com'");
+        userId = UUID.randomUUID();
+        jdbc.update("insert into users (id, email, password_hash, role, created_at)"
+                + " values (?, 'keyset@test.com', 'x', 'USER', now())", userId);
+        // Pairs of orders share a created_at, so the id tie-breaker matters.
+        jdbc.update("""
+                insert into orders (id, user_id, total_price, payment_method, payment_status, order_status, created_at)
+                select gen_random_uuid(), ?, 13.50, 'COD', 'PENDING', 'NEW',
+                       timestamp '2026-01-01 12:00' - (g / 2) * interval '1 second'
+                from generate_series(1, ?) g
+                """, userId, ROWS);
+        jdbc.execute("analyze orders");
+
+        Map<String, Object> cursor = jdbc.queryForMap(
+                "select created_at, id from orders order by created_at desc, id desc offset ? limit 1", DEPTH - 1);
+        cursorCreatedAt = ((Timestamp) cursor.get("created_at")).toLocalDateTime();
+        cursorId = (UUID) cursor.get("id");
+        RecordingInspector.SQL.clear();
+    }
+
+    @Test
+    void findNextPage_deepCursor_shouldBeAnIndexRangeScan() {
+        List<Order> page = orderRepo.findNextPage(cursorCreatedAt, cursorId, Limit.of(PAGE));
+
+        assertEquals(expectedIds(false), page.stream().map(Order::getId).toList());
+        assertIndexRangeScan(lastOrdersQuery(), cursorCreatedAt, cursorId, PAGE);
+    }
+
+    @Test
+    void findNextPageByUser_deepCursor_shouldBeAnIndexRangeScan() {
+        List<Order> page = orderRepo.findNextPageByUser(userId, cursorCreatedAt, cursorId, Limit.of(PAGE));
+
+        assertEquals(expectedIds(true), page.stream().map(Order::getId).toList());
+        assertIndexRangeScan(lastOrdersQuery(), userId, cursorCreatedAt, cursorId, PAGE);
+    }
+
+    private List<UUID> expectedIds(boolean byUser) {
+        return jdbc.queryForList("select id from orders where (created_at, id) < (?, ?)"
+                        + (byUser ? " and user_id = '" + userId + "'" : "")
+                        + " order by created_at desc, id desc limit ?",
+                UUID.class, Timestamp.valueOf(cursorCreatedAt), cursorId, PAGE);
+    }
+
+    // EXPLAIN the statement Hibernate generated, with the same parameters.
+    private void assertIndexRangeScan(String sql, Object... params) {
+        Object[] jdbcParams = Arrays.stream(params)
+                .map(p -> p instanceof LocalDateTime t ? Timestamp.valueOf(t) : p)
+                .toArray();
+        String plan = String.join("\n", jdbc.queryForList("explain (analyze, costs off) " + sql, String.class, jdbcParams));
+        assertTrue(plan.contains("Index Scan Backward") || plan.contains("Index Only Scan Backward"), plan);
+        assertTrue(plan.contains("Index Cond") && plan.contains("ROW("), plan);
+        assertFalse(plan.contains("Rows Removed by Filter"), plan);
+    }
+
+    private static String lastOrdersQuery() {
+        for (int i = RecordingInspector.SQL.size() - 1; i >= 0; i--) {
+            String sql = RecordingInspector.SQL.get(i);
+            if (sql.contains(" from orders ")) return sql;
+        }
+        return fail("no orders query recorded");
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
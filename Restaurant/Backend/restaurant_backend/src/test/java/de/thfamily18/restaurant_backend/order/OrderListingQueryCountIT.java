@@ -0,0 +1,124 @@
+package de.thfamily18.restaurant_backend.order;
+
+import de.thfamily18.restaurant_backend.AbstractIntegrationTest;
+import de.thfamily18.restaurant_backend.dto.OrderResponse;
+import de.thfamily18.restaurant_backend.entity.*;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.repository.ProductRepository;
+import de.thfamily18.restaurant_backend.repository.UserRepository;
+import de.thfamily18.restaurant_backend.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Guards the order listing read path against N+1:
+// the number of SQL statements must not grow with the number of orders/items on a page.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderListingQueryCountIT extends AbstractIntegrationTest {
+
+    // page query + count query + one fetch-join for items and products
+    private static final long MAX_STATEMENTS = 3;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderRepository orderRepo;
+    @Autowired
+    ProductRepository productRepo;
+    @Autowired
+    UserRepository userRepo;
+    @Autowired
+    EntityManagerFactory emf;
+
+    private Statistics stats;
+
+    @BeforeEach
+    void setup() {
+        orderRepo.deleteAll();
+        productRepo.deleteAll();
+        userRepo.deleteAll();
+
+        User user = userRepo.save(User.builder()
+                .email("listing@test.com")
+                .passwordHash("x")
+                .role(Role.USER)
+                .build());
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            products.add(productRepo.save(Product.builder()
+                    .nameDe("Produkt " + i)
+                    .nameEn("Product " + i)
+                    .price(new BigDecimal("4.50"))
+                    .category("MILK_TEA")
+                    .build()));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            Order order = Order.builder()
+                    .user(user)
+                    .customerName("Customer " + i)
+                    .phone("0123")
+                    .address("Berlin")
+                    .totalPrice(new BigDecimal("13.50"))
+                    .paymentMethod(PaymentMethod.COD)
+                    .build();
+            for (int j = 0; j < 3; j++) {
+                order.getItems().add(OrderItem.builder()
+                        .order(order)
+                        .product(products.get((i + j) % products.size()))
+                        .quantity(1)
+                        .price(new BigDecimal("4.50"))
+                        .build());
+            }
+            orderRepo.save(order);
+        }
+
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void adminList_shouldUseConstantNumberOfStatements() {
+        Page<OrderResponse> page = orderService.adminList(null, 0, 20, "createdAt", "desc", "de");
+
+        assertEquals(20, page.getContent().size());
+        assertTrue(page.getContent().stream().allMatch(o -> o.items().size() == 3));
+        assertTrue(stats.getPrepareStatementCount() <= MAX_STATEMENTS,
+                "statements: " + stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void getMyOrders_shouldUseConstantNumberOfStatements() {
+        Page<OrderResponse> page = orderService.getMyOrders("listing@test.com", null, 0, 20, "createdAt", "desc", "en");
+
+        assertEquals(20, page.getContent().size());
+        assertEquals("Product 0", page.getContent().stream()
+                .flatMap(o -> o.items().stream())
+                .filter(i -> i.productName().endsWith("0"))
+                .findFirst().orElseThrow().productName());
+        assertTrue(stats.getPrepareStatementCount() <= MAX_STATEMENTS,
+                "statements: " + stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void getOrdersForUser_shouldUseConstantNumberOfStatements() {
+        Page<OrderResponse> page = orderService.getOrdersForUser("listing@test.com", "de", 0, 20);
+
+        assertEquals(20, page.getContent().size());
+        // + the user lookup by email
+        assertTrue(stats.getPrepareStatementCount() <= MAX_STATEMENTS + 1,
+                "statements: " + stats.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,151 @@
+package de.thfamily18.restaurant_backend.order;
+
+import de.thfamily18.restaurant_backend.dto.CreateOrderItemRequest;
+import de.thfamily18.restaurant_backend.dto.CreateOrderRequest;
+import de.thfamily18.restaurant_backend.dto.OrderResponse;
+import de.thfamily18.restaurant_backend.dto.OrderSliceResponse;
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.Product;
+import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.repository.ProductRepository;
+import de.thfamily18.restaurant_backend.service.OrderCursor;
+import de.thfamily18.restaurant_backend.service.OrderService;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceUnitTest {
+
+    @Mock
+    OrderRepository orderRepo;
+    @Mock
+    ProductRepository productRepo;
+    @Mock
+    ApplicationEventPublisher events;
+
+    @InjectMocks
+    OrderService service;
+
+    @Test
+    void createGuestOrder_shouldLoadProductsOnce_andAggregateDuplicateLines() {
+        Product tea = product("5.50");
+        Product coffee = product("2.90");
+        when(productRepo.findAllById(anyIterable())).thenReturn(List.of(tea, coffee));
+        when(orderRepo.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        OrderResponse res = service.createGuestOrder(request(
+                new CreateOrderItemRequest(tea.getId(), 1),
+                new CreateOrderItemRequest(coffee.getId(), 1),
+                new CreateOrderItemRequest(tea.getId(), 2)
+        ), "de");
+
+        verify(productRepo, times(1)).findAllById(anyIterable());
+        verify(productRepo, never()).findById(any());
+        verify(events).publishEvent(argThat((Object e) ->
+                e instanceof OrderFeedEvent fe && fe.type() == OrderFeedEvent.Type.ORDER_CREATED));
+
+        assertEquals(2, res.items().size());
+        assertEquals(tea.getId(), res.items().get(0).productId());
+        assertEquals(3, res.items().get(0).quantity());
+        assertEquals(0, new BigDecimal("19.40").compareTo(res.totalPrice()));
+    }
+
+    @Test
+    void createGuestOrder_shouldReportAllMissingProductsTogether() {
+        Product tea = product("5.50");
+        UUID missing1 = UUID.randomUUID();
+        UUID missing2 = UUID.randomUUID();
+        when(productRepo.findAllById(anyIterable())).thenReturn(List.of(tea));
+
+        ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
+                () -> service.createGuestOrder(request(
+                        new CreateOrderItemRequest(missing1, 1),
+                        new CreateOrderItemRequest(tea.getId(), 1),
+                        new CreateOrderItemRequest(missing2, 1)
+                ), "de"));
+
+        assertTrue(ex.getMessage().contains(missing1.toString()));
+        assertTrue(ex.getMessage().contains(missing2.toString()));
+        verify(orderRepo, never()).save(any());
+    }
+
+    @Test
+    void adminScroll_shouldFetchOneExtraRow_andReturnCursorOfLastItem() {
+        ReflectionTestUtils.setField(service, "maxPageSize", 2);
+        Order newest = order(LocalDateTime.of(2026, 3, 1, 12, 0, 3));
+        Order middle = order(LocalDateTime.of(2026, 3, 1, 12, 0, 2));
+        Order oldest = order(LocalDateTime.of(2026, 3, 1, 12, 0, 1));
+        when(orderRepo.findNextPage(any(), any(), any())).thenReturn(List.of(newest, middle, oldest));
+        when(orderRepo.findAllWithItemsByIdIn(anyCollection())).thenReturn(List.of(newest, middle));
+
+        // size above the cap is clamped
+        OrderSliceResponse res = service.adminScroll(null, null, 500, "de");
+
+        verify(orderRepo).findNextPage(OrderCursor.START.createdAt(), OrderCursor.START.id(), Limit.of(3));
+        verify(orderRepo, never()).count();
+        assertEquals(2, res.size());
+        assertTrue(res.hasNext());
+        assertEquals(new OrderCursor(middle.getCreatedAt(), middle.getId()), OrderCursor.decode(res.nextCursor()));
+
+        when(orderRepo.findNextPage(any(), any(), any())).thenReturn(List.of(oldest));
+        when(orderRepo.findAllWithItemsByIdIn(anyCollection())).thenReturn(List.of(oldest));
+
+        OrderSliceResponse last = service.adminScroll(null, res.nextCursor(), 2, "de");
+
+        verify(orderRepo).findNextPage(middle.getCreatedAt(), middle.getId(), Limit.of(3));
+        assertFalse(last.hasNext());
+        assertNull(last.nextCursor());
+        assertEquals(oldest.getId(), last.items().getFirst().id());
+    }
+
+    @Test
+    void orderCursor_shouldRejectTamperedTokens() {
+        assertEquals(OrderCursor.START, OrderCursor.decode(" "));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("%%%"));
+    }
+
+    private static CreateOrderRequest request(CreateOrderItemRequest... items) {
+        return new CreateOrderRequest("Guest A", "0123456789", "Berlin", PaymentMethod.COD, List.of(items));
+    }
+
+    private static Order order(LocalDateTime createdAt) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .totalPrice(new BigDecimal("4.50"))
+                .paymentMethod(PaymentMethod.COD)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static Product product(String price) {
+        return Product.builder()
+                .id(UUID.randomUUID())
+                .nameDe("Produkt")
+                .nameEn("Product")
+                .price(new BigDecimal(price))
+                .category("MILK_TEA")
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package de.thfamily18.restaurant_backend.orderfeed;
+
+import de.thfamily18.restaurant_backend.entity.OrderStatus;
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedBroadcaster;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderFeedBroadcasterUnitTest {
+
+    // Records the "id:" / "event:" lines of everything sent to a screen.
+    static class CapturingEmitter extends SseEmitter {
+        final List<String> frames = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            Set<DataWithMediaType> parts = builder.build();
+            frames.add(parts.stream()
+                    .map(d -> String.valueOf(d.getData()))
+                    .filter(s -> s.contains("id:") || s.contains("event:") || s.contains(":ping"))
+                    .collect(Collectors.joining()));
+        }
+    }
+
+    final List<CapturingEmitter> emitters = new CopyOnWriteArrayList<>();
+    OrderFeedBroadcaster feed;
+
+    @BeforeEach
+    void setup() {
+        feed = new OrderFeedBroadcaster(new SimpleMeterRegistry()) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMillis) {
+                CapturingEmitter e = new CapturingEmitter();
+                emitters.add(e);
+                return e;
+            }
+        };
+        ReflectionTestUtils.setField(feed, "replaySize", 3);
+        ReflectionTestUtils.setField(feed, "clientQueueSize", 16);
+        ReflectionTestUtils.setField(feed, "heartbeatSeconds", 30L);
+        ReflectionTestUtils.setField(feed, "emitterTimeoutMinutes", 1L);
+        ReflectionTestUtils.invokeMethod(feed, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(feed, "shutdown");
+    }
+
+    @Test
+    void subscriber_shouldReceiveLiveEvents_inOrder() {
+        feed.subscribe(null);
+        CapturingEmitter screen = emitters.getFirst();
+
+        feed.publish(event(OrderFeedEvent.Type.ORDER_CREATED));
+        feed.publish(event(OrderFeedEvent.Type.ORDER_STATUS_CHANGED));
+
+        awaitFrames(screen, 2);
+        assertTrue(screen.frames.get(0).contains("id:1"));
+        assertTrue(screen.frames.get(0).contains("event:order-created"));
+        assertTrue(screen.frames.get(1).contains("event:order-status-changed"));
+    }
+
+    @Test
+    void reconnect_shouldReplayMissedEvents_orAskForResyncWhenEvicted() {
+        for (int i = 0; i < 5; i++) {
+            feed.publish(event(OrderFeedEvent.Type.PAYMENT_UPDATED));
+        }
+
+        // Buffer holds ids 3..5
+        feed.subscribe("3");
+        CapturingEmitter resumed = emitters.getLast();
+        awaitFrames(resumed, 2);
+        assertTrue(resumed.frames.get(0).contains("id:4"));
+        assertTrue(resumed.frames.get(1).contains("id:5"));
+
+        feed.subscribe("1");
+        CapturingEmitter tooOld = emitters.getLast();
+        awaitFrames(tooOld, 1);
+        assertTrue(tooOld.frames.getFirst().contains("event:resync"));
+    }
+
+    @Test
+    void sharedIds_shouldBeServedAsIs_andResyncShouldReachConnectedScreens() {
+        feed.publish(41, event(OrderFeedEvent.Type.ORDER_CREATED));
+        feed.publish(42, event(OrderFeedEvent.Type.PAYMENT_UPDATED));
+
+        // Last-Event-ID handed out by another node
+        feed.subscribe("41");
+        CapturingEmitter screen = emitters.getLast();
+        awaitFrames(screen, 1);
+        assertTrue(screen.frames.getFirst().contains("id:42"));
+
+        feed.resync();
+        awaitFrames(screen, 2);
+        assertTrue(screen.frames.get(1).contains("event:resync"));
+
+        // Replay buffer is gone: an older id can no longer be replayed.
+        feed.subscribe("41");
+        CapturingEmitter late = emitters.getLast();
+        awaitFrames(late, 1);
+        assertTrue(late.frames.getFirst().contains("event:resync"));
+    }
+
+    private static void awaitFrames(CapturingEmitter e, int count) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (e.frames.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(e.frames.size() >= count, "frames: " + e.frames);
+    }
+
+    private static OrderFeedEvent event(OrderFeedEvent.Type type) {
+        return new OrderFeedEvent(type, UUID.randomUUID(), OrderStatus.NEW, PaymentStatus.PENDING,
+                PaymentMethod.COD, null, new BigDecimal("9.90"), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,80 @@
+package de.thfamily18.restaurant_backend.orderfeed;
+
+import de.thfamily18.restaurant_backend.entity.OrderStatus;
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedBroadcaster;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedRelay;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderFeedRelayUnitTest {
+
+    OrderFeedBroadcaster broadcaster = mock(OrderFeedBroadcaster.class);
+    TransactionTemplate tx = mock(TransactionTemplate.class);
+    OrderFeedRelay relay;
+
+    @BeforeEach
+    void setup() {
+        relay = new OrderFeedRelay(broadcaster, mock(DataSource.class), mock(JdbcTemplate.class), tx,
+                JsonMapper.builder().build(), new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(relay, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(relay, "shutdown");
+    }
+
+    @Test
+    void notListening_shouldPublishLocally() {
+        OrderFeedEvent event = event();
+
+        relay.onOrderEvent(event);
+
+        verify(broadcaster).publish(event);
+        verifyNoInteractions(tx);
+    }
+
+    @Test
+    void received_shouldBePublishedWithTheSharedId() {
+        OrderFeedEvent event = event();
+        String payload = "{\"id\":7,\"event\":" + JsonMapper.builder().build().writeValueAsString(event) + "}";
+
+        ReflectionTestUtils.invokeMethod(relay, "receive", payload);
+
+        verify(broadcaster).publish(7L, event);
+    }
+
+    @Test
+    void sendFailure_shouldTellScreensToResync() {
+        ReflectionTestUtils.setField(relay, "listening", true);
+        doThrow(new IllegalStateException("db down")).when(tx).executeWithoutResult(any());
+
+        relay.onOrderEvent(event());
+
+        verify(broadcaster, timeout(1000)).resync();
+        verify(broadcaster, never()).publish(any(OrderFeedEvent.class));
+    }
+
+    private static OrderFeedEvent event() {
+        return new OrderFeedEvent(OrderFeedEvent.Type.ORDER_CREATED, UUID.randomUUID(), OrderStatus.NEW,
+                PaymentStatus.PENDING, PaymentMethod.COD, null, new BigDecimal("9.90"),
+                LocalDateTime.of(2026, 10, 17, 12, 0));
+    }
+}
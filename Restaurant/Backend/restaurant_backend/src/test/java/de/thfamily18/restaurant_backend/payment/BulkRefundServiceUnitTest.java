@@ -0,0 +1,133 @@
+package de.thfamily18.restaurant_backend.payment;
+
+import de.thfamily18.restaurant_backend.dto.payment.BulkRefundJobResponse;
+import de.thfamily18.restaurant_backend.dto.payment.BulkRefundRequest;
+import de.thfamily18.restaurant_backend.dto.payment.RefundResponse;
+import de.thfamily18.restaurant_backend.entity.BulkRefundItemStatus;
+import de.thfamily18.restaurant_backend.entity.BulkRefundJobStatus;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
+import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
+import de.thfamily18.restaurant_backend.service.StripeRefundService;
+import de.thfamily18.restaurant_backend.service.payment.BulkRefundService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkRefundServiceUnitTest {
+
+    StripeRefundService refundService = mock(StripeRefundService.class);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    BulkRefundService service;
+
+    @BeforeEach
+    void setup() {
+        service = new BulkRefundService(refundService, Clock.systemUTC(), registry);
+        ReflectionTestUtils.setField(service, "concurrency", 3);
+        ReflectionTestUtils.setField(service, "retentionMinutes", 60L);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(service, "shutdown");
+    }
+
+    @Test
+    void submit_shouldRefundEachItem_andIsolateFailures() throws Exception {
+        UUID ok = UUID.randomUUID();
+        UUID broken = UUID.randomUUID();
+        when(refundService.refundOrder(eq(ok), any(), eq("event cancelled"))).thenReturn(refunded(ok, "re_1"));
+        when(refundService.refundOrder(eq(broken), any(), any()))
+                .thenThrow(new IllegalArgumentException("Order is not PAID"));
+
+        BulkRefundJobResponse started = service.submit(new BulkRefundRequest(List.of(
+                new BulkRefundRequest.Item(ok, new BigDecimal("2.50")),
+                new BulkRefundRequest.Item(broken, null)), "event cancelled"));
+        BulkRefundJobResponse done = awaitDone(started.jobId());
+
+        assertEquals(2, done.total());
+        assertEquals(1, done.succeeded());
+        assertEquals(1, done.failed());
+        assertEquals(0, done.pending());
+        assertNotNull(done.finishedAt());
+
+        BulkRefundJobResponse.Item first = done.items().get(0);
+        assertEquals(BulkRefundItemStatus.SUCCEEDED, first.status());
+        assertEquals("re_1", first.refundId());
+        assertEquals(RefundStatus.PENDING, first.refundStatus());
+        BulkRefundJobResponse.Item second = done.items().get(1);
+        assertEquals(BulkRefundItemStatus.FAILED, second.status());
+        assertEquals("Order is not PAID", second.error());
+
+        verify(refundService).refundOrder(ok, new BigDecimal("2.50"), "event cancelled");
+        assertEquals(1, registry.counter("payments.refund.bulk.items", "outcome", "failed").count());
+    }
+
+    @Test
+    void submit_shouldNotExceedConfiguredConcurrency() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(refundService.refundOrder(any(), any(), any())).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return refunded(inv.getArgument(0), "re_x");
+        });
+
+        List<BulkRefundRequest.Item> items = IntStream.range(0, 12)
+                .mapToObj(i -> new BulkRefundRequest.Item(UUID.randomUUID(), null))
+                .toList();
+        BulkRefundJobResponse done = awaitDone(service.submit(new BulkRefundRequest(items, null)).jobId());
+
+        assertEquals(12, done.succeeded());
+        assertTrue(maxInFlight.get() <= 3, "max in flight was " + maxInFlight.get());
+    }
+
+    @Test
+    void submit_withDuplicateOrder_shouldBeRejected() {
+        UUID id = UUID.randomUUID();
+        var req = new BulkRefundRequest(List.of(
+                new BulkRefundRequest.Item(id, null),
+                new BulkRefundRequest.Item(id, BigDecimal.ONE)), null);
+
+        assertThrows(IllegalArgumentException.class, () -> service.submit(req));
+        verifyNoInteractions(refundService);
+    }
+
+    @Test
+    void get_unknownJob_shouldThrowNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> service.get(UUID.randomUUID()));
+    }
+
+    private BulkRefundJobResponse awaitDone(UUID jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        BulkRefundJobResponse res = service.get(jobId);
+        while (res.status() != BulkRefundJobStatus.DONE && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            res = service.get(jobId);
+        }
+        assertEquals(BulkRefundJobStatus.DONE, res.status());
+        return res;
+    }
+
+    private static RefundResponse refunded(UUID orderId, String refundId) {
+        return new RefundResponse(refundId, RefundStatus.PENDING, orderId, "pi_" + orderId,
+                PaymentStatus.PAID, LocalDateTime.now());
+    }
+}
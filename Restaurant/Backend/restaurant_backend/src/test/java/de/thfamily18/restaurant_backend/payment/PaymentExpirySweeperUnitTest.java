@@ -0,0 +1,118 @@
+package de.thfamily18.restaurant_backend.payment;
+
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentIntent;
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.entity.OrderStatus;
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import de.thfamily18.restaurant_backend.service.payment.PaymentExpirySweeper;
+import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentExpirySweeperUnitTest {
+
+    OrderRepository orderRepo = mock(OrderRepository.class);
+    StripeGateway gateway = mock(StripeGateway.class);
+    ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T12:00:00Z"), ZoneOffset.UTC);
+    LocalDateTime cutoff = LocalDateTime.now(clock).minusMinutes(35);
+
+    PaymentExpirySweeper sweeper;
+
+    @BeforeEach
+    void setup() {
+        TransactionTemplate tx = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        sweeper = new PaymentExpirySweeper(orderRepo, gateway, tx, events, clock, registry);
+        ReflectionTestUtils.setField(sweeper, "ttlMinutes", 30L);
+        ReflectionTestUtils.setField(sweeper, "enabled", true);
+        ReflectionTestUtils.setField(sweeper, "graceMinutes", 5L);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+        ReflectionTestUtils.setField(sweeper, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.invokeMethod(sweeper, "init");
+    }
+
+    @Test
+    void sweep_shouldExpireInBatches_andCancelDanglingPaymentIntents() throws Exception {
+        Order noIntent = order(null);
+        Order withIntent = order("pi_1");
+        Order last = order("pi_2");
+        when(orderRepo.lockExpiredPending(cutoff, 2))
+                .thenReturn(List.of(noIntent, withIntent))
+                .thenReturn(List.of(last));
+        when(orderRepo.countExpiredPending(cutoff)).thenReturn(0L);
+
+        sweeper.sweep();
+
+        for (Order o : List.of(noIntent, withIntent, last)) {
+            assertEquals(PaymentStatus.CANCELED, o.getPaymentStatus());
+            assertEquals(OrderStatus.CANCELLED, o.getOrderStatus());
+        }
+        verify(orderRepo, times(2)).lockExpiredPending(cutoff, 2);
+        verify(gateway).cancelPaymentIntent(eq("pi_1"), any(), any());
+        verify(gateway).cancelPaymentIntent(eq("pi_2"), any(), any());
+        verify(events, times(3)).publishEvent(any(OrderFeedEvent.class));
+        assertEquals(3, registry.counter("orders.payment.expired").count());
+        assertEquals(2, registry.counter("orders.payment.expiry.pi_cancel", "outcome", "canceled").count());
+    }
+
+    @Test
+    void sweep_whenIntentSucceededMeanwhile_shouldReopenOrder() throws Exception {
+        Order paid = order("pi_paid");
+        when(orderRepo.lockExpiredPending(cutoff, 2)).thenReturn(List.of(paid));
+        when(gateway.cancelPaymentIntent(eq("pi_paid"), any(), any())).thenThrow(new InvalidRequestException(
+                "You cannot cancel this PaymentIntent because it has a status of succeeded.",
+                null, "req_1", "payment_intent_unexpected_state", 400, null));
+        PaymentIntent pi = new PaymentIntent();
+        pi.setId("pi_paid");
+        pi.setStatus("succeeded");
+        when(gateway.retrievePaymentIntent("pi_paid")).thenReturn(pi);
+
+        sweeper.sweep();
+
+        verify(orderRepo).reopenExpired(paid.getId());
+        assertEquals(1, registry.counter("orders.payment.expiry.pi_cancel", "outcome", "already_paid").count());
+    }
+
+    @Test
+    void sweep_whenDisabled_shouldNotTouchOrders() {
+        ReflectionTestUtils.setField(sweeper, "enabled", false);
+
+        sweeper.sweep();
+
+        verifyNoInteractions(orderRepo, gateway);
+    }
+
+    private static Order order(String paymentIntentId) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .paymentMethod(PaymentMethod.STRIPE)
+                .paymentStatus(PaymentStatus.PENDING)
+                .orderStatus(OrderStatus.NEW)
+                .totalPrice(new BigDecimal("7.80"))
+                .stripePaymentIntentId(paymentIntentId)
+                .createdAt(LocalDateTime.parse("2026-01-01T11:00:00"))
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package de.thfamily18.restaurant_backend.payment;
+
+import de.thfamily18.restaurant_backend.dto.payment.PaymentStatusResponse;
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.entity.OrderStatus;
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.exception.TooManyWaitersException;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.StripePaymentService;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import de.thfamily18.restaurant_backend.service.payment.PaymentIntentSecretCache;
+import de.thfamily18.restaurant_backend.service.payment.PaymentStatusWaiters;
+import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PaymentStatusWaitersUnitTest {
+
+    OrderRepository orderRepo = mock(OrderRepository.class);
+    PaymentStatusWaiters waiters;
+    StripePaymentService service;
+
+    Order order;
+
+    @BeforeEach
+    void setup() {
+        waiters = new PaymentStatusWaiters(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(waiters, "maxWaiters", 100);
+        ReflectionTestUtils.setField(waiters, "retryAfterSeconds", 5L);
+        ReflectionTestUtils.invokeMethod(waiters, "init");
+        service = new StripePaymentService(mock(StripeGateway.class), orderRepo, waiters,
+                mock(PaymentIntentSecretCache.class));
+
+        order = Order.builder()
+                .id(UUID.randomUUID())
+                .totalPrice(new BigDecimal("7.80"))
+                .paymentMethod(PaymentMethod.STRIPE)
+                .stripePaymentIntentId("pi_1")
+                .createdAt(LocalDateTime.now())
+                .build();
+        when(orderRepo.findById(order.getId())).thenReturn(Optional.of(order));
+    }
+
+    @Test
+    void awaitStatusChange_shouldCompleteWhenWebhookCommitsPayment() throws Exception {
+        CompletableFuture<PaymentStatusResponse> res =
+                service.awaitStatusChange(order.getId(), "PENDING", Duration.ofSeconds(10));
+        assertFalse(res.isDone());
+        assertEquals(1, waiters.size());
+
+        order.setPaymentStatus(PaymentStatus.PAID);
+        waiters.onOrderEvent(OrderFeedEvent.of(OrderFeedEvent.Type.PAYMENT_UPDATED, order));
+
+        assertEquals("PAID", res.get(1, TimeUnit.SECONDS).paymentStatus());
+        assertEquals(0, waiters.size());
+        verify(orderRepo, times(1)).findById(order.getId());
+    }
+
+    @Test
+    void awaitStatusChange_shouldAnswerImmediately_whenClientIsBehind() {
+        order.setPaymentStatus(PaymentStatus.PAID);
+
+        CompletableFuture<PaymentStatusResponse> res =
+                service.awaitStatusChange(order.getId(), "PENDING", Duration.ofSeconds(10));
+
+        assertTrue(res.isDone());
+        assertEquals("PAID", res.join().paymentStatus());
+        assertEquals(0, waiters.size());
+    }
+
+    @Test
+    void awaitStatusChange_shouldReturnUnchangedStatusOnTimeout_andReleaseWaiter() {
+        CompletableFuture<PaymentStatusResponse> res =
+                service.awaitStatusChange(order.getId(), "PENDING", Duration.ofMillis(50));
+
+        assertEquals("PENDING", res.join().paymentStatus());
+        assertEquals(0, waiters.size());
+
+        // Events for other types or orders do not touch waiters.
+        CompletableFuture<PaymentStatusResponse> other = waiters.register(order.getId());
+        order.setOrderStatus(OrderStatus.PREPARING);
+        waiters.onOrderEvent(OrderFeedEvent.of(OrderFeedEvent.Type.ORDER_STATUS_CHANGED, order));
+        assertFalse(other.isDone());
+        waiters.release(order.getId(), other);
+        assertEquals(0, waiters.size());
+    }
+
+    @Test
+    void awaitStatusChange_whenFull_shouldRejectWithRetryAfter_unlessTheStatusChanged() {
+        ReflectionTestUtils.setField(waiters, "maxWaiters", 1);
+        CompletableFuture<PaymentStatusResponse> parked =
+                service.awaitStatusChange(order.getId(), "PENDING", Duration.ofSeconds(10));
+        assertFalse(parked.isDone());
+
+        // No "no change" answer that the client would re-poll right away.
+        TooManyWaitersException ex = assertThrows(TooManyWaitersException.class,
+                () -> service.awaitStatusChange(order.getId(), "PENDING", Duration.ofSeconds(10)));
+        assertEquals(5, ex.getRetryAfterSeconds());
+        assertEquals(1, waiters.size());
+
+        // A client that is behind still gets the new status.
+        assertEquals("PENDING", service.awaitStatusChange(order.getId(), "NEW", Duration.ofSeconds(10))
+                .join().paymentStatus());
+
+        waiters.onOrderEvent(OrderFeedEvent.of(OrderFeedEvent.Type.PAYMENT_UPDATED, order));
+        assertTrue(parked.isDone());
+        assertEquals(0, waiters.size());
+    }
+}
@@ -0,0 +1,215 @@
+package de.thfamily18.restaurant_backend.payment;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentIntent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.thfamily18.restaurant_backend.config.StripeConfig;
+import de.thfamily18.restaurant_backend.exception.PaymentProviderUnavailableException;
+import de.thfamily18.restaurant_backend.service.payment.StripeCircuitBreaker;
+import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StripeGateway + JDK transport against a local HTTP stub (no network, no Stripe account).
+ */
+class StripeGatewayUnitTest {
+
+    HttpServer stub;
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicReference<StubHandler> handler = new AtomicReference<>();
+    final AtomicReference<String> lastAuth = new AtomicReference<>();
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    StripeGateway gateway;
+
+    interface StubHandler {
+        void handle(HttpExchange ex) throws Exception;
+    }
+
+    @BeforeEach
+    void setup() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stub.createContext("/", ex -> {
+            requests.incrementAndGet();
+            lastAuth.set(ex.getRequestHeaders().getFirst("Authorization"));
+            try {
+                handler.get().handle(ex);
+            } catch (Exception ignored) {
+                // client went away (timeout)
+            } finally {
+                ex.close();
+            }
+        });
+        stub.start();
+
+        gateway = gateway(4, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.stop(0);
+    }
+
+    private StripeGateway gateway(int maxConcurrent, int failureThreshold) {
+        var client = new StripeConfig().stripeClient("sk_test_stub",
+                "http://127.0.0.1:" + stub.getAddress().getPort(), 500, 2000, 0);
+        StripeGateway g = new StripeGateway(client, Clock.systemUTC(), registry);
+        ReflectionTestUtils.setField(g, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(g, "maxWaitMillis", 50L);
+        ReflectionTestUtils.setField(g, "failureThreshold", failureThreshold);
+        ReflectionTestUtils.setField(g, "openSeconds", 30L);
+        ReflectionTestUtils.setField(g, "retrieveTimeoutMillis", 300);
+        ReflectionTestUtils.setField(g, "createPaymentIntentTimeoutMillis", 300);
+        ReflectionTestUtils.setField(g, "createRefundTimeoutMillis", 300);
+        ReflectionTestUtils.invokeMethod(g, "init");
+        return g;
+    }
+
+    @Test
+    void retrieve_shouldGoThroughStub_andRecordSuccess() throws Exception {
+        handler.set(ex -> respond(ex, 200, """
+                {"id":"pi_1","object":"payment_intent","client_secret":"cs_1","status":"requires_payment_method"}
+                """));
+
+        PaymentIntent pi = gateway.retrievePaymentIntent("pi_1");
+
+        assertEquals("cs_1", pi.getClientSecret());
+        assertEquals("Bearer sk_test_stub", lastAuth.get());
+        assertEquals(1, calls("retrievePaymentIntent", "success"));
+    }
+
+    @Test
+    void timeouts_shouldOpenCircuit_andFailFastWithoutCallingStripe() {
+        handler.set(ex -> Thread.sleep(2_000));
+
+        ApiConnectionException e = assertThrows(ApiConnectionException.class, () -> gateway.retrievePaymentIntent("pi_1"));
+        assertTrue(e.getMessage().contains("timed out"), e.getMessage());
+        assertThrows(ApiConnectionException.class, () -> gateway.retrieveRefund("re_1"));
+        assertEquals(StripeCircuitBreaker.State.OPEN, gateway.circuitState());
+
+        int before = requests.get();
+        assertThrows(PaymentProviderUnavailableException.class, () -> gateway.retrievePaymentIntent("pi_1"));
+        assertEquals(before, requests.get());
+
+        assertEquals(1, calls("retrievePaymentIntent", "timeout"));
+        assertEquals(1, calls("retrievePaymentIntent", "circuit_open"));
+    }
+
+    @Test
+    void clientErrors_shouldNotOpenCircuit() {
+        handler.set(ex -> respond(ex, 404, """
+                {"error":{"type":"invalid_request_error","message":"No such payment_intent: 'pi_x'"}}
+                """));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(InvalidRequestException.class, () -> gateway.retrievePaymentIntent("pi_x"));
+        }
+        assertEquals(StripeCircuitBreaker.State.CLOSED, gateway.circuitState());
+        assertEquals(3, calls("retrievePaymentIntent", "client_error"));
+    }
+
+    @Test
+    void bulkhead_shouldRejectWhenAllSlotsAreBusy() throws Exception {
+        gateway = gateway(1, 5);
+        CountDownLatch inStripe = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        handler.set(ex -> {
+            inStripe.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            respond(ex, 200, "{\"id\":\"pi_1\",\"object\":\"payment_intent\"}");
+        });
+        ReflectionTestUtils.setField(gateway, "retrieveTimeoutMillis", 5_000);
+
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                gateway.retrievePaymentIntent("pi_1");
+            } catch (Exception ignored) {
+            }
+        });
+        assertTrue(inStripe.await(5, TimeUnit.SECONDS));
+
+        assertThrows(PaymentProviderUnavailableException.class, () -> gateway.retrievePaymentIntent("pi_2"));
+
+        release.countDown();
+        first.join(5_000);
+        assertEquals(1, calls("retrievePaymentIntent", "bulkhead_full"));
+        assertEquals(StripeCircuitBreaker.State.CLOSED, gateway.circuitState());
+    }
+
+    @Test
+    void circuitBreaker_shouldLetOneProbeThroughAfterOpenDuration() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-01T12:00:00Z"));
+        StripeCircuitBreaker breaker = new StripeCircuitBreaker(1, Duration.ofSeconds(30), clock);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+
+        clock.advance(Duration.ofSeconds(30));
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only one probe while half-open");
+        breaker.onFailure();
+        assertEquals(StripeCircuitBreaker.State.OPEN, breaker.state());
+
+        clock.advance(Duration.ofSeconds(30));
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(StripeCircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private long calls(String operation, String outcome) {
+        var timer = registry.find("stripe.api.calls").tag("operation", operation).tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static void respond(HttpExchange ex, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.getResponseHeaders().add("Request-Id", "req_stub");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+}
@@ -8,11 +8,16 @@ import de.thfamily18.restaurant_backend.entity.OrderStatus;
 import de.thfamily18.restaurant_backend.entity.PaymentStatus;
 import de.thfamily18.restaurant_backend.repository.OrderRepository;
 import de.thfamily18.restaurant_backend.service.StripePaymentService;
+import de.thfamily18.restaurant_backend.service.orderfeed.OrderFeedEvent;
+import de.thfamily18.restaurant_backend.service.payment.PaymentIntentSecretCache;
 import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -22,6 +27,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -33,10 +39,18 @@ class StripePaymentServiceUniTest {
     StripeGateway stripeGateway;
     @Mock
     OrderRepository orderRepo;
+    @Spy
+    PaymentIntentSecretCache secretCache = new PaymentIntentSecretCache(new SimpleMeterRegistry());
 
     @InjectMocks
     StripePaymentService service;
 
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(secretCache, "maxEntries", 100);
+        ReflectionTestUtils.invokeMethod(secretCache, "init");
+    }
+
     @Test
     void createPaymentIntent_whenExistingPi_shouldRetrieveAndReturn() throws Exception {
         UUID orderId = UUID.randomUUID();
@@ -94,10 +108,11 @@ class StripePaymentServiceUniTest {
 
         assertEquals("pi_new", res.paymentIntentId());
         assertEquals("cs_new", res.clientSecret());
-        assertEquals("pi_new", order.getStripePaymentIntentId());
-
         verify(stripeGateway).createPaymentIntent(any(PaymentIntentCreateParams.class), any());
         verify(orderRepo).findById(orderId);
+        // Stored with a conditional update after the Stripe call, not by saving the loaded entity.
+        verify(orderRepo).attachPaymentIntent(orderId, "pi_new");
+        verify(orderRepo, never()).save(any());
     }
 
     @Test
@@ -116,4 +131,48 @@ class StripePaymentServiceUniTest {
         assertThrows(IllegalStateException.class, () -> service.createPaymentIntent(orderId));
         verifyNoInteractions(stripeGateway);
     }
+
+    @Test
+    void createPaymentIntent_secondCall_shouldBeServedFromCache_untilPaymentUpdate() throws Exception {
+        UUID orderId = UUID.randomUUID();
+
+        Order order = new Order();
+        order.setId(orderId);
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setOrderStatus(OrderStatus.NEW);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setTotalPrice(new BigDecimal("7.80"));
+
+        when(orderRepo.findById(orderId)).thenReturn(Optional.of(order));
+
+        PaymentIntent created = new PaymentIntent();
+        created.setId("pi_new");
+        created.setClientSecret("cs_new");
+        when(stripeGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), any())).thenReturn(created);
+
+        ReflectionTestUtils.setField(service, "ttlMinutes", 30L);
+
+        service.createPaymentIntent(orderId);
+        CreateStripeIntentResponse res = service.createPaymentIntent(orderId);
+
+        assertEquals("cs_new", res.clientSecret());
+        verify(stripeGateway, times(1)).createPaymentIntent(any(PaymentIntentCreateParams.class), any());
+        verify(orderRepo, times(1)).findById(orderId);
+
+        order.setPaymentStatus(PaymentStatus.PAID);
+        order.setStripePaymentIntentId("pi_new");
+        secretCache.onOrderEvent(OrderFeedEvent.of(OrderFeedEvent.Type.PAYMENT_UPDATED, order));
+        assertNull(secretCache.get(orderId));
+        assertThrows(IllegalArgumentException.class, () -> service.createPaymentIntent(orderId));
+    }
+
+    @Test
+    void secretCache_shouldNotKeepEntriesPastTheOrderTtl() {
+        UUID orderId = UUID.randomUUID();
+
+        secretCache.put(orderId, new CreateStripeIntentResponse("pi_old", "cs_old"), LocalDateTime.now().minusSeconds(1));
+
+        assertNull(secretCache.get(orderId));
+        assertEquals(0, secretCache.size());
+    }
 }
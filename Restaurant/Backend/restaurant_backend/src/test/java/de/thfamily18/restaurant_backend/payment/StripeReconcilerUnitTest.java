@@ -0,0 +1,179 @@
+package de.thfamily18.restaurant_backend.payment;
+
+import com.stripe.model.PaymentIntent;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import de.thfamily18.restaurant_backend.config.StripeConfig;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
+import de.thfamily18.restaurant_backend.payment.emulator.EmulatorWebhookSender;
+import de.thfamily18.restaurant_backend.payment.emulator.StripeEmulator;
+import de.thfamily18.restaurant_backend.repository.OrderPaymentSnapshot;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.StripeWebhookService;
+import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
+import de.thfamily18.restaurant_backend.service.payment.StripeReconciler;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * StripeReconciler against the Stripe emulator with webhooks switched off (= lost).
+ */
+class StripeReconcilerUnitTest {
+
+    StripeEmulator emulator;
+    StripeGateway gateway;
+    OrderRepository orderRepo = mock(OrderRepository.class);
+    StripeWebhookService webhookService = mock(StripeWebhookService.class);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    StripeReconciler reconciler;
+
+    final List<OrderPaymentSnapshot> orders = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        emulator = new StripeEmulator("whsec_unused", EmulatorWebhookSender.Options.immediate());
+
+        var client = new StripeConfig().stripeClient("sk_test_emulator", emulator.baseUrl(), 500, 2000, 0);
+        gateway = new StripeGateway(client, Clock.systemUTC(), registry);
+        ReflectionTestUtils.setField(gateway, "maxConcurrent", 8);
+        ReflectionTestUtils.setField(gateway, "maxWaitMillis", 250L);
+        ReflectionTestUtils.setField(gateway, "failureThreshold", 5);
+        ReflectionTestUtils.setField(gateway, "openSeconds", 30L);
+        ReflectionTestUtils.setField(gateway, "retrieveTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(gateway, "createPaymentIntentTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(gateway, "createRefundTimeoutMillis", 2000);
+        ReflectionTestUtils.invokeMethod(gateway, "init");
+
+        reconciler = new StripeReconciler(gateway, orderRepo, webhookService, Clock.systemUTC(), registry);
+        ReflectionTestUtils.setField(reconciler, "enabled", true);
+        ReflectionTestUtils.setField(reconciler, "lookbackHours", 1L);
+        ReflectionTestUtils.setField(reconciler, "minAgeMinutes", 0L);
+        ReflectionTestUtils.setField(reconciler, "pageSize", 2);
+        ReflectionTestUtils.setField(reconciler, "maxPages", 10);
+        ReflectionTestUtils.setField(reconciler, "requestsPerSecond", 100);
+        ReflectionTestUtils.setField(reconciler, "concurrency", 2);
+        ReflectionTestUtils.invokeMethod(reconciler, "init");
+
+        // Set-based lookup: answer from the in-memory "orders" table.
+        when(orderRepo.findPaymentSnapshots(anyCollection(), anyCollection())).thenAnswer(inv -> {
+            var piIds = inv.<java.util.Collection<String>>getArgument(0);
+            var orderIds = inv.<java.util.Collection<UUID>>getArgument(1);
+            return orders.stream()
+                    .filter(o -> piIds.contains(o.getStripePaymentIntentId()) || orderIds.contains(o.getId()))
+                    .toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(reconciler, "shutdown");
+        emulator.close();
+    }
+
+    @Test
+    void reconcile_shouldRepairPaidOrdersWhoseWebhookWasLost() throws Exception {
+        UUID lost = UUID.randomUUID();
+        UUID inSync = UUID.randomUUID();
+        UUID unpaid = UUID.randomUUID();
+        String lostPi = intent(lost, true);
+        String inSyncPi = intent(inSync, true);
+        intent(unpaid, false);
+        // Not ours: no order.
+        intent(UUID.randomUUID(), true);
+
+        // The PaymentIntent id was never attached to the "lost" order; it is matched by metadata.orderId.
+        orders.add(snapshot(lost, null, PaymentStatus.PENDING, null, null));
+        orders.add(snapshot(inSync, inSyncPi, PaymentStatus.PAID, null, null));
+        orders.add(snapshot(unpaid, null, PaymentStatus.PENDING, null, null));
+
+        StripeReconciler.Result result = reconciler.reconcile();
+
+        assertEquals(new StripeReconciler.Result(4, 1, 1, 0), result);
+        ArgumentCaptor<StripeWebhookPayload> repaired = ArgumentCaptor.forClass(StripeWebhookPayload.class);
+        verify(webhookService).process(repaired.capture());
+        assertEquals("payment_intent.succeeded", repaired.getValue().type());
+        assertEquals(lostPi, repaired.getValue().objectId());
+        assertEquals(lost.toString(), repaired.getValue().orderId());
+        assertEquals(0L, repaired.getValue().created(), "synthetic events must never make real ones stale");
+        // one Stripe page per 2 intents, nothing else
+        assertEquals(2, registry.find("stripe.api.calls").tag("operation", "listPaymentIntents").timer().count());
+    }
+
+    @Test
+    void reconcile_shouldRepairRefundsWithTheCompleteRefundList() throws Exception {
+        UUID orderId = UUID.randomUUID();
+        String pi = intent(orderId, true);
+        gateway.createRefund(RefundCreateParams.builder().setPaymentIntent(pi).setAmount(300L).build(), null);
+        gateway.createRefund(RefundCreateParams.builder().setPaymentIntent(pi).setAmount(480L).build(), null);
+
+        // Refund was requested (id recorded) but its charge.refunded webhook never arrived.
+        orders.add(snapshot(orderId, pi, PaymentStatus.PAID, "re_requested", null));
+
+        StripeReconciler.Result result = reconciler.reconcile();
+
+        assertEquals(1, result.divergent());
+        ArgumentCaptor<StripeWebhookPayload> repaired = ArgumentCaptor.forClass(StripeWebhookPayload.class);
+        verify(webhookService).process(repaired.capture());
+        StripeWebhookPayload event = repaired.getValue();
+        assertEquals("charge.refunded", event.type());
+        assertEquals(pi, event.paymentIntentId());
+        assertEquals(2, event.refunds().size());
+        assertEquals(780, event.refunds().stream().mapToLong(StripeWebhookPayload.Refund::amount).sum());
+    }
+
+    @Test
+    void reconcile_failedRepair_shouldBeCountedAndNotAbortTheRun() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        intent(a, true);
+        intent(b, true);
+        orders.add(snapshot(a, null, PaymentStatus.PENDING, null, null));
+        orders.add(snapshot(b, null, PaymentStatus.FAILED, null, null));
+        doThrow(new IllegalStateException("db down")).doNothing().when(webhookService).process(any(StripeWebhookPayload.class));
+
+        StripeReconciler.Result result = reconciler.reconcile();
+
+        assertEquals(2, result.divergent());
+        assertEquals(1, result.repaired());
+        assertEquals(1, result.failed());
+    }
+
+    private String intent(UUID orderId, boolean pay) throws Exception {
+        PaymentIntent pi = gateway.createPaymentIntent(PaymentIntentCreateParams.builder()
+                .setAmount(780L)
+                .setCurrency("eur")
+                .putMetadata("orderId", orderId.toString())
+                .build());
+        if (pay) emulator.confirm(pi.getId());
+        return pi.getId();
+    }
+
+    private static OrderPaymentSnapshot snapshot(UUID id, String pi, PaymentStatus status,
+                                                 String refundId, RefundStatus refundStatus) {
+        return new OrderPaymentSnapshot() {
+            @Override public UUID getId() { return id; }
+            @Override public String getStripePaymentIntentId() { return pi; }
+            @Override public PaymentStatus getPaymentStatus() { return status; }
+            @Override public String getStripeRefundId() { return refundId; }
+            @Override public RefundStatus getRefundStatus() { return refundStatus; }
+            @Override public BigDecimal getTotalPrice() { return new BigDecimal("7.80"); }
+        };
+    }
+}
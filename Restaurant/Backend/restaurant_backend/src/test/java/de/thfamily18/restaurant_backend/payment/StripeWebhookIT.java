@@ -4,6 +4,8 @@ import de.thfamily18.restaurant_backend.AbstractIntegrationTest;
 import de.thfamily18.restaurant_backend.entity.Order;
 import de.thfamily18.restaurant_backend.entity.PaymentStatus;
 import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookEventRepository;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookInboxProcessor;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -31,6 +33,10 @@ public class StripeWebhookIT extends AbstractIntegrationTest {
     OrderRepository orderRepo;
     @Autowired
     ObjectMapper om;
+    @Autowired
+    StripeWebhookInboxProcessor inboxProcessor;
+    @Autowired
+    StripeWebhookEventRepository inboxRepo;
 
     private static final String WEBHOOK_SECRET =
             "whsec_test_aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
@@ -78,8 +84,16 @@ public class StripeWebhookIT extends AbstractIntegrationTest {
                         .content(payload))
                 .andExpect(status().isOk());
 
-        // 5) Assert DB updated
-        Order updated = orderRepo.findById(order.getId()).orElseThrow();
+        // Redelivery of the same event is acknowledged but stored only once.
+        mvc.perform(post("/api/payments/stripe/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Stripe-Signature", sigHeader)
+                        .content(payload))
+                .andExpect(status().isOk());
+        assertEquals(1, inboxRepo.findAll().stream().filter(e -> "evt_test_1".equals(e.getEventId())).count());
+
+        // 5) Assert DB updated (processed asynchronously from the inbox)
+        Order updated = awaitPaymentStatus(order.getId(), PaymentStatus.PAID);
         assertEquals(PaymentStatus.PAID, updated.getPaymentStatus());
         assertNotNull(updated.getPaidAt(), "paidAt should be set");
         assertEquals("pi_test_123", updated.getStripePaymentIntentId());
@@ -118,7 +132,7 @@ public class StripeWebhookIT extends AbstractIntegrationTest {
                         .content(payload))
                 .andExpect(status().isOk());
 
-        Order updated = orderRepo.findById(order.getId()).orElseThrow();
+        Order updated = awaitPaymentStatus(order.getId(), PaymentStatus.FAILED);
         assertEquals(PaymentStatus.FAILED, updated.getPaymentStatus());
         assertEquals("pi_test_999", updated.getStripePaymentIntentId());
     }
@@ -158,6 +172,17 @@ public class StripeWebhookIT extends AbstractIntegrationTest {
                 .andExpect(status().isBadRequest()); // nếu bạn map IllegalArgumentException => 400
     }
 
+    private Order awaitPaymentStatus(UUID orderId, PaymentStatus expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        Order o = orderRepo.findById(orderId).orElseThrow();
+        while (o.getPaymentStatus() != expected && System.currentTimeMillis() < deadline) {
+            inboxProcessor.processDue();
+            Thread.sleep(50);
+            o = orderRepo.findById(orderId).orElseThrow();
+        }
+        return o;
+    }
+
     /**
      * Build Stripe-Signature header:
      *   t=timestamp,v1=HMAC_SHA256_HEX( (timestamp + "." + payload), secret )
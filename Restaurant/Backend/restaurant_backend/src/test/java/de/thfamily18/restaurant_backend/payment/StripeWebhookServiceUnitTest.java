@@ -0,0 +1,116 @@
+package de.thfamily18.restaurant_backend.payment;
+
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.entity.RefundStatus;
+import de.thfamily18.restaurant_backend.notification.NotificationService;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.StripeWebhookService;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayload;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayloadParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripeWebhookServiceUnitTest {
+
+    @Mock
+    OrderRepository orderRepo;
+    @Mock
+    NotificationService notificationService;
+    @Mock
+    StripeWebhookPayloadParser payloadParser;
+    @Mock
+    ApplicationEventPublisher events;
+
+    @InjectMocks
+    StripeWebhookService service;
+
+    @Test
+    void supports_shouldOnlyAcceptHandledEventTypes() {
+        assertTrue(service.supports("payment_intent.succeeded"));
+        assertTrue(service.supports("charge.refunded"));
+        // no handler: must not be queued in the inbox
+        assertFalse(service.supports("charge.refund.updated"));
+        assertFalse(service.supports(null));
+    }
+
+    @Test
+    void process_shouldLockOrderRow_andRecordEventCreated() {
+        Order order = order();
+        when(orderRepo.findByIdForUpdate(order.getId())).thenReturn(Optional.of(order));
+
+        service.process(piEvent("payment_intent.succeeded", 1_000, order.getId()));
+
+        verify(orderRepo, never()).findById(any());
+        assertEquals(PaymentStatus.PAID, order.getPaymentStatus());
+        assertEquals(1_000L, order.getLastPaymentIntentEventCreated());
+        assertNull(order.getLastChargeEventCreated());
+    }
+
+    @Test
+    void process_shouldIgnoreChargeEventCreatedBeforeLastAppliedOne() {
+        Order order = order();
+        order.setPaymentStatus(PaymentStatus.PAID);
+        order.setLastChargeEventCreated(2_000L);
+        when(orderRepo.findByStripePaymentIntentIdForUpdate("pi_1")).thenReturn(Optional.of(order));
+
+        // Older charge.refunded (pending refund) arrives after a newer one was applied.
+        service.process(new StripeWebhookPayload("evt_old", "charge.refunded", 1_999, "ch_1", null, "pi_1",
+                List.of(new StripeWebhookPayload.Refund("re_1", "pending", 780, 1_990))));
+
+        verify(orderRepo, never()).save(any());
+        assertNull(order.getRefundStatus());
+
+        // Same second is not stale.
+        service.process(new StripeWebhookPayload("evt_new", "charge.refunded", 2_000, "ch_1", null, "pi_1",
+                List.of(new StripeWebhookPayload.Refund("re_1", "succeeded", 780, 1_990))));
+
+        assertEquals(RefundStatus.SUCCEEDED, order.getRefundStatus());
+        assertEquals(PaymentStatus.REFUNDED, order.getPaymentStatus());
+        verify(orderRepo).save(order);
+    }
+
+    @Test
+    void process_olderPaymentIntentEvent_shouldNotBeStale_afterANewerChargeEvent() {
+        Order order = order();
+        when(orderRepo.findByStripePaymentIntentIdForUpdate("pi_1")).thenReturn(Optional.of(order));
+        when(orderRepo.findByIdForUpdate(order.getId())).thenReturn(Optional.of(order));
+
+        // Partial refund (t1) is applied before payment_intent.succeeded (t0 < t1) arrives.
+        service.process(new StripeWebhookPayload("evt_refund", "charge.refunded", 2_000, "ch_1", null, "pi_1",
+                List.of(new StripeWebhookPayload.Refund("re_1", "succeeded", 200, 1_990))));
+        service.process(piEvent("payment_intent.succeeded", 1_000, order.getId()));
+
+        assertEquals(PaymentStatus.PAID, order.getPaymentStatus());
+        assertEquals(new BigDecimal("2.00"), order.getRefundedAmount());
+        assertEquals(1_000L, order.getLastPaymentIntentEventCreated());
+        assertEquals(2_000L, order.getLastChargeEventCreated());
+    }
+
+    private static StripeWebhookPayload piEvent(String type, long created, UUID orderId) {
+        return new StripeWebhookPayload("evt_" + created, type, created, "pi_1", orderId.toString(), null, List.of());
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setTotalPrice(new BigDecimal("7.80"));
+        order.setStripePaymentIntentId("pi_1");
+        return order;
+    }
+}
@@ -0,0 +1,196 @@
+package de.thfamily18.restaurant_backend.payment.emulator;
+
+import tools.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers emulator events to the webhook endpoint the way Stripe does: asynchronously, at least once,
+ * and not necessarily in order. Each delivery is signed (Stripe-Signature: t=...,v1=HMAC-SHA256).
+ *
+ * Options (seeded, so a run is reproducible):
+ * - latency: uniform in [minLatency, maxLatency] per delivery,
+ * - duplicateRate: probability that an event is delivered a second time,
+ * - reorderRate: probability that an event is held back by an extra maxLatency, so later events overtake it.
+ * Non-2xx responses and connection errors are retried (up to maxRetries, growing delay).
+ */
+public class EmulatorWebhookSender implements AutoCloseable {
+
+    public record Options(
+            Duration minLatency,
+            Duration maxLatency,
+            double duplicateRate,
+            double reorderRate,
+            int maxRetries,
+            long seed
+    ) {
+        public static Options immediate() {
+            return new Options(Duration.ZERO, Duration.ZERO, 0, 0, 3, 42);
+        }
+
+        public static Options realistic() {
+            return new Options(Duration.ofMillis(20), Duration.ofMillis(300), 0.05, 0.05, 5, 42);
+        }
+    }
+
+    public record Delivery(String eventId, String type, int attempt, int status) {}
+
+    private final String secret;
+    private final Options options;
+    private final ObjectMapper json;
+    private final Random random;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(2, Thread.ofVirtual().name("stripe-emu-webhook-", 0).factory());
+
+    private volatile URI endpoint;
+    private final AtomicLong eventSeq = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<Delivery> deliveries = new CopyOnWriteArrayList<>();
+
+    EmulatorWebhookSender(String secret, Options options, ObjectMapper json) {
+        this.secret = secret;
+        this.options = options;
+        this.json = json;
+        this.random = new Random(options.seed());
+    }
+
+    void setEndpoint(URI endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Build the event envelope and schedule its delivery (plus a duplicate, depending on the options).
+     */
+    void send(String type, Map<String, Object> object) {
+        URI target = endpoint;
+        if (target == null) return;
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", "evt_emu_" + eventSeq.incrementAndGet());
+        event.put("object", "event");
+        event.put("api_version", "2024-06-20");
+        event.put("created", Instant.now().getEpochSecond());
+        event.put("livemode", false);
+        event.put("pending_webhooks", 1);
+        event.put("type", type);
+        event.put("data", Map.of("object", object));
+        String body = json.writeValueAsString(event);
+        String eventId = (String) event.get("id");
+
+        schedule(target, eventId, type, body, 1, nextDelay());
+        if (chance(options.duplicateRate())) {
+            schedule(target, eventId, type, body, 1, nextDelay());
+        }
+    }
+
+    public List<Delivery> deliveries() {
+        return List.copyOf(deliveries);
+    }
+
+    /**
+     * Number of deliveries scheduled or in flight.
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * Wait until every scheduled delivery (including retries) has finished.
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    // ===== internals =====
+
+    private void schedule(URI target, String eventId, String type, String body, int attempt, long delayMillis) {
+        pending.incrementAndGet();
+        scheduler.schedule(() -> {
+            try {
+                deliver(target, eventId, type, body, attempt);
+            } finally {
+                pending.decrementAndGet();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver(URI target, String eventId, String type, String body, int attempt) {
+        int status;
+        try {
+            HttpRequest req = HttpRequest.newBuilder(target)
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json; charset=utf-8")
+                    .header("User-Agent", "Stripe/1.0 (+https://stripe.com/docs/webhooks)")
+                    .header("Stripe-Signature", signature(body))
+                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                    .build();
+            status = http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            status = -1;
+        }
+        deliveries.add(new Delivery(eventId, type, attempt, status));
+
+        if ((status < 200 || status >= 300) && attempt <= options.maxRetries()) {
+            schedule(target, eventId, type, body, attempt + 1, 50L * attempt * attempt);
+        }
+    }
+
+    private synchronized long nextDelay() {
+        long min = options.minLatency().toMillis();
+        long max = options.maxLatency().toMillis();
+        long delay = max > min ? min + (long) (random.nextDouble() * (max - min)) : min;
+        if (random.nextDouble() < options.reorderRate()) {
+            delay += Math.max(max, 1);
+        }
+        return delay;
+    }
+
+    private synchronized boolean chance(double p) {
+        return p > 0 && random.nextDouble() < p;
+    }
+
+    private String signature(String body) throws GeneralSecurityException {
+        long ts = Instant.now().getEpochSecond();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] sig = mac.doFinal((ts + "." + body).getBytes(StandardCharsets.UTF_8));
+        return "t=" + ts + ",v1=" + HexFormat.of().formatHex(sig);
+    }
+}
@@ -0,0 +1,407 @@
+package de.thfamily18.restaurant_backend.payment.emulator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline Stripe API emulator for tests and load runs (no network, no Stripe account).
+ *
+ * Point the app at it with stripe.apiBase={@link #baseUrl()} and any sk_test_ key. Implemented endpoints
+ * (the ones StripeGateway uses, plus what a checkout client needs to finish a payment):
+ *
+ *   POST /v1/payment_intents              create (amount, currency, metadata[...])
+ *   GET  /v1/payment_intents/{id}
+ *   POST /v1/payment_intents/{id}/confirm  -> succeeded, or payment_failed with payment_method=pm_card_chargeDeclined
+ *   POST /v1/payment_intents/{id}/cancel
+ *   POST /v1/refunds                      create (payment_intent, amount?, metadata[...]); succeeds immediately
+ *   GET  /v1/refunds/{id}
+ *   GET  /v1/payment_intents, /v1/refunds  list (created[...], limit, starting_after; refunds also payment_intent)
+ *
+ * POSTs honor Idempotency-Key like Stripe: a replay returns the stored response, a replay with
+ * different parameters is rejected with an idempotency_error. State changes emit signed webhook
+ * events through {@link EmulatorWebhookSender} (latency, duplication and reordering configurable).
+ */
+public class StripeEmulator implements AutoCloseable {
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final EmulatorWebhookSender webhooks;
+
+    private final Map<String, Map<String, Object>> paymentIntents = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> refunds = new ConcurrentHashMap<>();
+    private final Map<String, StoredResponse> idempotency = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private record StoredResponse(String fingerprint, int status, String body) {}
+
+    private record Result(int status, Object body) {
+        static Result ok(Object body) {
+            return new Result(200, body);
+        }
+    }
+
+    /**
+     * @param webhookSecret whsec_... the app verifies Stripe-Signature with (stripe.webhookSecret)
+     */
+    public StripeEmulator(String webhookSecret, EmulatorWebhookSender.Options options) throws IOException {
+        this.webhooks = new EmulatorWebhookSender(webhookSecret, options, json);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/v1/", this::handle);
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Where webhooks are delivered, e.g. http://localhost:{port}/api/payments/stripe/webhook.
+     * Events raised before this is set are dropped, like an endpoint that is not registered yet.
+     */
+    public void deliverWebhooksTo(URI endpoint) {
+        webhooks.setEndpoint(endpoint);
+    }
+
+    public EmulatorWebhookSender webhooks() {
+        return webhooks;
+    }
+
+    public long requestCount() {
+        return requestCount.get();
+    }
+
+    public Map<String, Object> paymentIntent(String id) {
+        return paymentIntents.get(id);
+    }
+
+    /**
+     * Complete a payment the way the browser (Stripe.js) would.
+     */
+    public void confirm(String paymentIntentId) {
+        confirm(paymentIntentId, Map.of());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        webhooks.close();
+        executor.shutdownNow();
+    }
+
+    // ===== HTTP =====
+
+    private void handle(HttpExchange ex) throws IOException {
+        requestCount.incrementAndGet();
+        try (ex) {
+            String method = ex.getRequestMethod();
+            String path = ex.getRequestURI().getPath();
+            Map<String, String> params = "POST".equals(method)
+                    ? parseForm(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))
+                    : parseForm(ex.getRequestURI().getRawQuery());
+
+            String auth = ex.getRequestHeaders().getFirst("Authorization");
+            if (auth == null || !auth.startsWith("Bearer sk_")) {
+                write(ex, 401, error("invalid_request_error", "Invalid API Key provided"));
+                return;
+            }
+
+            String idemKey = ex.getRequestHeaders().getFirst("Idempotency-Key");
+            if ("POST".equals(method) && idemKey != null) {
+                String fingerprint = path + "?" + new TreeMap<>(params);
+                StoredResponse stored = idempotency.compute(auth + "|" + idemKey, (k, prev) -> {
+                    if (prev != null) return prev;
+                    Result r = route(method, path, params);
+                    return new StoredResponse(fingerprint, r.status(), toJson(r.body()));
+                });
+                if (!stored.fingerprint().equals(fingerprint)) {
+                    write(ex, 400, toJson(error("idempotency_error",
+                            "Keys for idempotent requests can only be used with the same parameters they were first used with.")),
+                            null);
+                    return;
+                }
+                write(ex, stored.status(), stored.body(), idemKey);
+                return;
+            }
+
+            Result r = route(method, path, params);
+            write(ex, r.status(), toJson(r.body()), null);
+        } catch (IllegalArgumentException e) {
+            write(ex, 400, error("invalid_request_error", e.getMessage()));
+        } catch (RuntimeException e) {
+            write(ex, 500, error("api_error", "Emulator error: " + e.getMessage()));
+        }
+    }
+
+    private Result route(String method, String path, Map<String, String> params) {
+        String[] parts = path.substring("/v1/".length()).split("/");
+        String resource = parts[0];
+        String id = parts.length > 1 ? parts[1] : null;
+        String action = parts.length > 2 ? parts[2] : null;
+
+        if ("payment_intents".equals(resource)) {
+            if ("POST".equals(method) && id == null) return Result.ok(createPaymentIntent(params));
+            if ("GET".equals(method) && id == null) return list("/v1/payment_intents", paymentIntents.values(), params);
+            Map<String, Object> pi = id == null ? null : paymentIntents.get(id);
+            if (pi == null) return notFound("payment_intent", id);
+            if ("GET".equals(method) && action == null) return Result.ok(pi);
+            if ("POST".equals(method) && "confirm".equals(action)) return confirm(id, params);
+            if ("POST".equals(method) && "cancel".equals(action)) return cancel(id);
+        }
+        if ("refunds".equals(resource)) {
+            if ("POST".equals(method) && id == null) return createRefund(params);
+            if ("GET".equals(method) && id == null) {
+                String pi = params.get("payment_intent");
+                return list("/v1/refunds", pi == null ? refunds.values() : refundsOf(pi), params);
+            }
+            Map<String, Object> re = id == null ? null : refunds.get(id);
+            if (re == null) return notFound("refund", id);
+            if ("GET".equals(method)) return Result.ok(re);
+        }
+        return new Result(404, error("invalid_request_error", "Unrecognized request URL (" + method + ": " + path + ")"));
+    }
+
+    // ===== PaymentIntents =====
+
+    private Map<String, Object> createPaymentIntent(Map<String, String> params) {
+        long amount = Long.parseLong(require(params, "amount"));
+        String id = "pi_emu_" + shortId();
+
+        Map<String, Object> pi = new LinkedHashMap<>();
+        pi.put("id", id);
+        pi.put("object", "payment_intent");
+        pi.put("amount", amount);
+        pi.put("amount_received", 0);
+        pi.put("currency", params.getOrDefault("currency", "eur"));
+        pi.put("status", "requires_payment_method");
+        pi.put("client_secret", id + "_secret_" + shortId());
+        pi.put("description", params.get("description"));
+        pi.put("metadata", metadata(params));
+        pi.put("created", now());
+        pi.put("livemode", false);
+        paymentIntents.put(id, pi);
+        return pi;
+    }
+
+    private synchronized Result confirm(String id, Map<String, String> params) {
+        Map<String, Object> pi = paymentIntents.get(id);
+        if (pi == null) return notFound("payment_intent", id);
+        if (!"requires_payment_method".equals(pi.get("status")) && !"requires_confirmation".equals(pi.get("status"))) {
+            return new Result(400, error("invalid_request_error",
+                    "This PaymentIntent's status is " + pi.get("status") + " and cannot be confirmed."));
+        }
+
+        if ("pm_card_chargeDeclined".equals(params.get("payment_method"))) {
+            pi.put("status", "requires_payment_method");
+            webhooks.send("payment_intent.payment_failed", new LinkedHashMap<>(pi));
+            return Result.ok(pi);
+        }
+
+        pi.put("status", "succeeded");
+        pi.put("amount_received", pi.get("amount"));
+        pi.put("latest_charge", "ch_emu_" + shortId());
+        webhooks.send("payment_intent.succeeded", new LinkedHashMap<>(pi));
+        return Result.ok(pi);
+    }
+
+    private synchronized Result cancel(String id) {
+        Map<String, Object> pi = paymentIntents.get(id);
+        if ("succeeded".equals(pi.get("status")) || "canceled".equals(pi.get("status"))) {
+            return new Result(400, error("invalid_request_error",
+                    "You cannot cancel this PaymentIntent because it has a status of " + pi.get("status") + "."));
+        }
+        pi.put("status", "canceled");
+        pi.put("canceled_at", now());
+        webhooks.send("payment_intent.canceled", new LinkedHashMap<>(pi));
+        return Result.ok(pi);
+    }
+
+    // ===== Refunds =====
+
+    private synchronized Result createRefund(Map<String, String> params) {
+        String piId = require(params, "payment_intent");
+        Map<String, Object> pi = paymentIntents.get(piId);
+        if (pi == null) return notFound("payment_intent", piId);
+        if (!"succeeded".equals(pi.get("status"))) {
+            return new Result(400, error("invalid_request_error",
+                    "This PaymentIntent does not have a successful charge to refund."));
+        }
+
+        long captured = ((Number) pi.get("amount")).longValue();
+        List<Map<String, Object>> existing = refundsOf(piId);
+        long alreadyRefunded = existing.stream().mapToLong(r -> ((Number) r.get("amount")).longValue()).sum();
+        long amount = params.containsKey("amount") ? Long.parseLong(params.get("amount")) : captured - alreadyRefunded;
+        if (amount <= 0 || alreadyRefunded + amount > captured) {
+            return new Result(400, error("invalid_request_error",
+                    "Refund amount (" + amount + ") is greater than unrefunded amount on charge (" + (captured - alreadyRefunded) + ")"));
+        }
+
+        String id = "re_emu_" + shortId();
+        Map<String, Object> refund = new LinkedHashMap<>();
+        refund.put("id", id);
+        refund.put("object", "refund");
+        refund.put("amount", amount);
+        refund.put("currency", pi.get("currency"));
+        refund.put("charge", pi.get("latest_charge"));
+        refund.put("payment_intent", piId);
+        refund.put("status", "succeeded");
+        refund.put("metadata", metadata(params));
+        refund.put("created", now());
+        refunds.put(id, refund);
+
+        // charge.refunded carries the charge with its complete refund list (newest first).
+        List<Map<String, Object>> all = new ArrayList<>(refundsOf(piId));
+        all.sort((a, b) -> Long.compare(((Number) b.get("created")).longValue(), ((Number) a.get("created")).longValue()));
+        long refunded = alreadyRefunded + amount;
+
+        Map<String, Object> charge = new LinkedHashMap<>();
+        charge.put("id", pi.get("latest_charge"));
+        charge.put("object", "charge");
+        charge.put("amount", captured);
+        charge.put("amount_refunded", refunded);
+        charge.put("refunded", refunded >= captured);
+        charge.put("payment_intent", piId);
+        charge.put("metadata", pi.get("metadata"));
+        charge.put("refunds", Map.of("object", "list", "data", all, "has_more", false));
+        webhooks.send("charge.refunded", charge);
+
+        return Result.ok(refund);
+    }
+
+    private List<Map<String, Object>> refundsOf(String piId) {
+        return refunds.values().stream().filter(r -> piId.equals(r.get("payment_intent"))).toList();
+    }
+
+    // ===== Lists =====
+
+    // Newest first like Stripe; created[gte|gt|lte|lt], limit and starting_after are supported.
+    private static Result list(String url, Collection<Map<String, Object>> objects, Map<String, String> params) {
+        int limit = Integer.parseInt(params.getOrDefault("limit", "10"));
+        List<Map<String, Object>> sorted = objects.stream()
+                .filter(o -> matchesCreated(((Number) o.get("created")).longValue(), params))
+                .sorted(Comparator.<Map<String, Object>>comparingLong(o -> ((Number) o.get("created")).longValue())
+                        .thenComparing(o -> (String) o.get("id"))
+                        .reversed())
+                .toList();
+
+        int from = 0;
+        String after = params.get("starting_after");
+        if (after != null) {
+            for (int i = 0; i < sorted.size(); i++) {
+                if (after.equals(sorted.get(i).get("id"))) {
+                    from = i + 1;
+                    break;
+                }
+            }
+        }
+        List<Map<String, Object>> page = sorted.subList(Math.min(from, sorted.size()), Math.min(from + limit, sorted.size()));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("object", "list");
+        body.put("url", url);
+        body.put("has_more", from + limit < sorted.size());
+        body.put("data", page);
+        return Result.ok(body);
+    }
+
+    private static boolean matchesCreated(long created, Map<String, String> params) {
+        String v;
+        if ((v = params.get("created[gte]")) != null && created < Long.parseLong(v)) return false;
+        if ((v = params.get("created[gt]")) != null && created <= Long.parseLong(v)) return false;
+        if ((v = params.get("created[lte]")) != null && created > Long.parseLong(v)) return false;
+        if ((v = params.get("created[lt]")) != null && created >= Long.parseLong(v)) return false;
+        return true;
+    }
+
+    // ===== helpers =====
+
+    private static Result notFound(String type, String id) {
+        return new Result(404, error("invalid_request_error", "No such " + type + ": '" + id + "'"));
+    }
+
+    private static Map<String, Object> error(String type, String message) {
+        Map<String, Object> err = new HashMap<>();
+        err.put("type", type);
+        err.put("message", message);
+        return Map.of("error", err);
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String v = params.get(name);
+        if (v == null || v.isBlank()) throw new IllegalArgumentException("Missing required param: " + name);
+        return v;
+    }
+
+    private static Map<String, String> metadata(Map<String, String> params) {
+        Map<String, String> md = new LinkedHashMap<>();
+        params.forEach((k, v) -> {
+            if (k.startsWith("metadata[") && k.endsWith("]")) {
+                md.put(k.substring("metadata[".length(), k.length() - 1), v);
+            }
+        });
+        return md;
+    }
+
+    // Stripe form encoding: nested keys stay flat, e.g. metadata[orderId]=...
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> out = new LinkedHashMap<>();
+        if (body == null || body.isBlank()) return out;
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String v = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            out.put(k, v);
+        }
+        return out;
+    }
+
+    private static long now() {
+        return Instant.now().getEpochSecond();
+    }
+
+    private static String shortId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+    }
+
+    private String toJson(Object body) {
+        return json.writeValueAsString(body);
+    }
+
+    private void write(HttpExchange ex, int status, Object body) throws IOException {
+        write(ex, status, toJson(body), null);
+    }
+
+    private static void write(HttpExchange ex, int status, String body, String idemKey) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.getResponseHeaders().add("Request-Id", "req_emu_" + shortId());
+        if (idemKey != null) ex.getResponseHeaders().add("Idempotency-Key", idemKey);
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
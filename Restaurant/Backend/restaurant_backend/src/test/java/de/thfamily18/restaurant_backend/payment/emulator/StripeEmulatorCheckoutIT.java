@@ -0,0 +1,131 @@
+package de.thfamily18.restaurant_backend.payment.emulator;
+
+import de.thfamily18.restaurant_backend.AbstractIntegrationTest;
+import de.thfamily18.restaurant_backend.dto.payment.CreateStripeIntentResponse;
+import de.thfamily18.restaurant_backend.entity.Order;
+import de.thfamily18.restaurant_backend.entity.PaymentMethod;
+import de.thfamily18.restaurant_backend.entity.PaymentStatus;
+import de.thfamily18.restaurant_backend.repository.OrderRepository;
+import de.thfamily18.restaurant_backend.service.StripePaymentService;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookInboxProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end checkout against the Stripe emulator: the app calls the emulator over HTTP and the
+ * emulator posts signed webhooks to the running server (with duplicates and reordering).
+ * Raise ORDERS to use it as a load run; throughput is logged.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StripeEmulatorCheckoutIT extends AbstractIntegrationTest {
+
+    static final String WEBHOOK_SECRET = "whsec_emulator_it";
+    static final int ORDERS = 50;
+
+    static final StripeEmulator emulator = start();
+
+    @Autowired StripePaymentService paymentService;
+    @Autowired StripeWebhookInboxProcessor inboxProcessor;
+    @Autowired OrderRepository orderRepo;
+
+    @LocalServerPort int port;
+
+    private static StripeEmulator start() {
+        try {
+            return new StripeEmulator(WEBHOOK_SECRET, EmulatorWebhookSender.Options.realistic());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void stripeProps(DynamicPropertyRegistry r) {
+        r.add("stripe.apiBase", emulator::baseUrl);
+        r.add("stripe.secretKey", () -> "sk_test_emulator");
+        r.add("stripe.webhookSecret", () -> WEBHOOK_SECRET);
+    }
+
+    @BeforeAll
+    void deliverWebhooks() {
+        emulator.deliverWebhooksTo(URI.create("http://localhost:" + port + "/api/payments/stripe/webhook"));
+    }
+
+    @AfterAll
+    void stop() {
+        emulator.close();
+    }
+
+    @Test
+    void checkoutAndRefund_shouldConvergeThroughWebhooks() throws Exception {
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orderIds.add(orderRepo.save(Order.builder()
+                    .paymentStatus(PaymentStatus.PENDING)
+                    .paymentMethod(PaymentMethod.STRIPE)
+                    .totalPrice(new BigDecimal("12.50"))
+                    .createdAt(LocalDateTime.now())
+                    .build()).getId());
+        }
+
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> checkouts = new ArrayList<>();
+            for (UUID id : orderIds) {
+                checkouts.add(pool.submit(() -> {
+                    CreateStripeIntentResponse intent = paymentService.createPaymentIntent(id);
+                    // a retried checkout reuses the same PaymentIntent
+                    assertEquals(intent.paymentIntentId(), paymentService.createPaymentIntent(id).paymentIntentId());
+                    emulator.confirm(intent.paymentIntentId());
+                    return null;
+                }));
+            }
+            for (Future<?> f : checkouts) f.get();
+        }
+        awaitAll(orderIds, PaymentStatus.PAID);
+        long paidMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        log.info("Emulator checkout: {} orders paid in {} ms ({} Stripe requests)",
+                ORDERS, paidMillis, emulator.requestCount());
+
+        UUID refunded = orderIds.getFirst();
+        paymentService.refund(refunded);
+        awaitAll(List.of(refunded), PaymentStatus.REFUNDED);
+
+        Order order = orderRepo.findById(refunded).orElseThrow();
+        assertNotNull(order.getStripeRefundId());
+        assertTrue(emulator.webhooks().awaitIdle(Duration.ofSeconds(10)));
+    }
+
+    private void awaitAll(List<UUID> orderIds, PaymentStatus expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        List<UUID> open = new ArrayList<>(orderIds);
+        while (!open.isEmpty() && System.currentTimeMillis() < deadline) {
+            inboxProcessor.processDue();
+            open.removeIf(id -> orderRepo.findById(id).orElseThrow().getPaymentStatus() == expected);
+            if (!open.isEmpty()) Thread.sleep(50);
+        }
+        assertTrue(open.isEmpty(), open.size() + " orders did not reach " + expected);
+    }
+}
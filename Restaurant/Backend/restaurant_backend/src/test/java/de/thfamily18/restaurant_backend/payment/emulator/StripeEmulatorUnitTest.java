@@ -0,0 +1,173 @@
+package de.thfamily18.restaurant_backend.payment.emulator;
+
+import com.stripe.exception.IdempotencyException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import com.sun.net.httpserver.HttpServer;
+import de.thfamily18.restaurant_backend.config.StripeConfig;
+import de.thfamily18.restaurant_backend.service.payment.StripeGateway;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayload;
+import de.thfamily18.restaurant_backend.webhook.StripeWebhookPayloadParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StripeGateway against the emulator; webhooks are received by a local endpoint and verified
+ * with the production parser (same secret), so signatures and payload shape are covered too.
+ */
+class StripeEmulatorUnitTest {
+
+    static final String WEBHOOK_SECRET = "whsec_emulator";
+
+    StripeEmulator emulator;
+    HttpServer receiver;
+    final List<StripeWebhookPayload> received = new CopyOnWriteArrayList<>();
+    final List<String> rejected = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if (emulator != null) emulator.close();
+        if (receiver != null) receiver.stop(0);
+    }
+
+    private StripeGateway start(EmulatorWebhookSender.Options options) throws IOException {
+        emulator = new StripeEmulator(WEBHOOK_SECRET, options);
+
+        StripeWebhookPayloadParser parser = new StripeWebhookPayloadParser(new ObjectMapper(), Clock.systemUTC());
+        ReflectionTestUtils.setField(parser, "webhookSecret", WEBHOOK_SECRET);
+
+        receiver = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        receiver.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        receiver.createContext("/api/payments/stripe/webhook", ex -> {
+            try (ex) {
+                byte[] body = ex.getRequestBody().readAllBytes();
+                int status = 200;
+                try {
+                    received.add(parser.verifyAndParse(body, ex.getRequestHeaders().getFirst("Stripe-Signature")));
+                } catch (IllegalArgumentException e) {
+                    rejected.add(e.getMessage());
+                    status = 400;
+                }
+                ex.sendResponseHeaders(status, -1);
+            }
+        });
+        receiver.start();
+        emulator.deliverWebhooksTo(URI.create(
+                "http://127.0.0.1:" + receiver.getAddress().getPort() + "/api/payments/stripe/webhook"));
+
+        var client = new StripeConfig().stripeClient("sk_test_emulator", emulator.baseUrl(), 500, 2000, 0);
+        StripeGateway gateway = new StripeGateway(client, Clock.systemUTC(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(gateway, "maxConcurrent", 8);
+        ReflectionTestUtils.setField(gateway, "maxWaitMillis", 250L);
+        ReflectionTestUtils.setField(gateway, "failureThreshold", 5);
+        ReflectionTestUtils.setField(gateway, "openSeconds", 30L);
+        ReflectionTestUtils.setField(gateway, "retrieveTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(gateway, "createPaymentIntentTimeoutMillis", 2000);
+        ReflectionTestUtils.setField(gateway, "createRefundTimeoutMillis", 2000);
+        ReflectionTestUtils.invokeMethod(gateway, "init");
+        return gateway;
+    }
+
+    private static PaymentIntentCreateParams params(long amount, String orderId) {
+        return PaymentIntentCreateParams.builder()
+                .setAmount(amount)
+                .setCurrency("eur")
+                .putMetadata("orderId", orderId)
+                .build();
+    }
+
+    private static RequestOptions idem(String key) {
+        return RequestOptions.builder().setIdempotencyKey(key).build();
+    }
+
+    @Test
+    void createPaymentIntent_shouldHonorIdempotencyKey() throws Exception {
+        StripeGateway gateway = start(EmulatorWebhookSender.Options.immediate());
+
+        PaymentIntent first = gateway.createPaymentIntent(params(780, "o-1"), idem("order-o-1"));
+        PaymentIntent replay = gateway.createPaymentIntent(params(780, "o-1"), idem("order-o-1"));
+
+        assertEquals(first.getId(), replay.getId());
+        assertEquals(first.getClientSecret(), replay.getClientSecret());
+        assertEquals("o-1", first.getMetadata().get("orderId"));
+        assertThrows(IdempotencyException.class,
+                () -> gateway.createPaymentIntent(params(999, "o-1"), idem("order-o-1")));
+        assertNotEquals(first.getId(), gateway.createPaymentIntent(params(780, "o-1")).getId());
+        assertEquals(first.getId(), gateway.retrievePaymentIntent(first.getId()).getId());
+    }
+
+    @Test
+    void confirmAndRefund_shouldDeliverSignedWebhooks() throws Exception {
+        StripeGateway gateway = start(EmulatorWebhookSender.Options.immediate());
+        PaymentIntent pi = gateway.createPaymentIntent(params(1_000, "o-2"), idem("order-o-2"));
+
+        emulator.confirm(pi.getId());
+        Refund partial = gateway.createRefund(RefundCreateParams.builder()
+                .setPaymentIntent(pi.getId()).setAmount(400L).build(), idem("refund-1"));
+        assertThrows(InvalidRequestException.class, () -> gateway.createRefund(RefundCreateParams.builder()
+                .setPaymentIntent(pi.getId()).setAmount(700L).build(), null));
+        assertTrue(emulator.webhooks().awaitIdle(Duration.ofSeconds(5)));
+
+        assertEquals("succeeded", gateway.retrieveRefund(partial.getId()).getStatus());
+        assertTrue(rejected.isEmpty(), rejected.toString());
+        assertEquals(2, received.size());
+
+        StripeWebhookPayload paid = received.stream()
+                .filter(p -> "payment_intent.succeeded".equals(p.type())).findFirst().orElseThrow();
+        assertEquals(pi.getId(), paid.objectId());
+        assertEquals("o-2", paid.orderId());
+
+        StripeWebhookPayload refunded = received.stream()
+                .filter(p -> "charge.refunded".equals(p.type())).findFirst().orElseThrow();
+        assertEquals(pi.getId(), refunded.paymentIntentId());
+        assertEquals(1, refunded.refunds().size());
+        assertEquals(partial.getId(), refunded.refunds().getFirst().id());
+        assertEquals(400L, refunded.refunds().getFirst().amount());
+    }
+
+    @Test
+    void duplicateRate_shouldDeliverEveryEventTwice() throws Exception {
+        StripeGateway gateway = start(new EmulatorWebhookSender.Options(
+                Duration.ZERO, Duration.ofMillis(20), 1.0, 0.5, 3, 7));
+
+        for (int i = 0; i < 5; i++) {
+            PaymentIntent pi = gateway.createPaymentIntent(params(100 + i, "o-" + i));
+            emulator.confirm(pi.getId());
+        }
+        assertTrue(emulator.webhooks().awaitIdle(Duration.ofSeconds(5)));
+
+        assertEquals(10, received.size());
+        assertEquals(5, received.stream().map(StripeWebhookPayload::eventId).distinct().count());
+    }
+
+    @Test
+    void failedDeliveries_shouldBeRetried() throws Exception {
+        StripeGateway gateway = start(EmulatorWebhookSender.Options.immediate());
+        emulator.deliverWebhooksTo(URI.create("http://127.0.0.1:" + receiver.getAddress().getPort() + "/missing"));
+
+        emulator.confirm(gateway.createPaymentIntent(params(100, "o-x")).getId());
+        assertTrue(emulator.webhooks().awaitIdle(Duration.ofSeconds(5)));
+
+        List<EmulatorWebhookSender.Delivery> deliveries = emulator.webhooks().deliveries();
+        assertEquals(4, deliveries.size(), "first attempt + maxRetries");
+        assertTrue(deliveries.stream().allMatch(d -> d.status() == 404));
+    }
+}
@@ -0,0 +1,95 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StripeEventDedupUnitTest {
+
+    StripeProcessedEventRepository repo = mock(StripeProcessedEventRepository.class);
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T12:00:00Z"), ZoneOffset.UTC);
+    LocalDateTime now = LocalDateTime.now(clock);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    StripeEventDedup dedup;
+
+    @BeforeEach
+    void setup() {
+        TransactionTemplate tx = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        dedup = new StripeEventDedup(repo, tx, clock, registry);
+        ReflectionTestUtils.setField(dedup, "ttlDays", 7L);
+        ReflectionTestUtils.setField(dedup, "expectedEvents", 1000L);
+        ReflectionTestUtils.setField(dedup, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.invokeMethod(dedup, "init");
+    }
+
+    @Test
+    void isProcessed_shouldSkipQueryForUnknownIds_andConfirmKnownOnesAtTheDatabase() {
+        when(repo.insertIfAbsent(eq("evt_1"), anyString(), eq(now))).thenReturn(1);
+        when(repo.existsById("evt_1")).thenReturn(true);
+
+        assertFalse(dedup.isProcessed("evt_1"));
+        verify(repo, never()).existsById(any());
+
+        assertTrue(dedup.markProcessed("evt_1", "payment_intent.succeeded"));
+        assertTrue(dedup.isProcessed("evt_1"));
+
+        assertEquals(1, lookups("miss"));
+        assertEquals(1, lookups("hit"));
+    }
+
+    @Test
+    void markProcessed_shouldReportDuplicate_whenRowAlreadyExists() {
+        when(repo.insertIfAbsent(anyString(), anyString(), any())).thenReturn(0);
+
+        assertFalse(dedup.markProcessed("evt_2", "charge.refunded"));
+        assertEquals(1, lookups("hit"));
+    }
+
+    @Test
+    void purgeExpired_shouldRebuildFilterFromIdsWithinTtl() {
+        when(repo.insertIfAbsent(anyString(), anyString(), any())).thenReturn(1);
+        dedup.markProcessed("evt_old", "charge.refunded");
+        when(repo.findEventIdsProcessedSince(now.minusDays(7))).thenReturn(List.of("evt_recent"));
+        when(repo.existsById("evt_recent")).thenReturn(true);
+
+        dedup.purgeExpired();
+
+        verify(repo).purgeBefore(now.minusDays(7));
+        assertTrue(dedup.isProcessed("evt_recent"));
+        // Purged id is out of the filter again: no query.
+        assertFalse(dedup.isProcessed("evt_old"));
+        verify(repo, never()).existsById("evt_old");
+    }
+
+    @Test
+    void bloomFilter_shouldHaveNoFalseNegatives_andStayNearTargetFalsePositiveRate() {
+        EventIdBloomFilter f = new EventIdBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) f.put("evt_in_" + i);
+
+        for (int i = 0; i < 10_000; i++) assertTrue(f.mightContain("evt_in_" + i));
+
+        int fp = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (f.mightContain("evt_out_" + i)) fp++;
+        }
+        assertTrue(fp < 2_000, "false positives: " + fp);
+    }
+
+    private double lookups(String result) {
+        return registry.get("stripe.webhook.dedup.lookups").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,106 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import de.thfamily18.restaurant_backend.exception.ResourceNotFoundException;
+import de.thfamily18.restaurant_backend.service.StripeWebhookService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StripeWebhookInboxProcessorUnitTest {
+
+    StripeWebhookEventRepository repo = mock(StripeWebhookEventRepository.class);
+    StripeWebhookService webhookService = mock(StripeWebhookService.class);
+    StripeEventDedup dedup = mock(StripeEventDedup.class);
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T12:00:00Z"), ZoneOffset.UTC);
+    LocalDateTime now = LocalDateTime.now(clock);
+
+    StripeWebhookInboxProcessor processor;
+
+    @BeforeEach
+    void setup() {
+        TransactionTemplate tx = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        processor = new StripeWebhookInboxProcessor(repo, webhookService, dedup, tx, clock, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(processor, "batchSize", 10);
+        ReflectionTestUtils.setField(processor, "workers", 2);
+        ReflectionTestUtils.setField(processor, "maxAttempts", 3);
+        ReflectionTestUtils.setField(processor, "processingTimeoutMinutes", 5L);
+        ReflectionTestUtils.invokeMethod(processor, "init");
+
+        when(dedup.markProcessed(anyString(), anyString())).thenReturn(true);
+    }
+
+    @Test
+    void processDue_shouldApplyEventAndMarkDone() {
+        StripeWebhookEvent e = event(0);
+        when(repo.lockNextReady(eq(now), eq(now.minusMinutes(5)), eq(10))).thenReturn(List.of(e));
+
+        processor.processDue();
+
+        assertEquals(WebhookEventStatus.PROCESSING, e.getStatus());
+        verify(webhookService).process(e.getPayload());
+        verify(repo).markDone(e.getId(), now);
+    }
+
+    @Test
+    void processDue_shouldSkipAlreadyAppliedEvent_butStillMarkDone() {
+        StripeWebhookEvent e = event(0);
+        when(repo.lockNextReady(any(), any(), anyInt())).thenReturn(List.of(e));
+        when(dedup.markProcessed(e.getEventId(), e.getEventType())).thenReturn(false);
+
+        processor.processDue();
+
+        verify(webhookService, never()).process(anyString());
+        verify(repo).markDone(e.getId(), now);
+    }
+
+    @Test
+    void processDue_shouldRetryWithBackoff_thenDeadLetter() {
+        StripeWebhookEvent e = event(0);
+        when(repo.lockNextReady(any(), any(), anyInt())).thenReturn(List.of(e));
+        when(repo.findById(e.getId())).thenReturn(Optional.of(e));
+        doThrow(new ResourceNotFoundException("Order not found"))
+                .when(webhookService).process(anyString());
+
+        processor.processDue();
+
+        assertEquals(WebhookEventStatus.FAILED, e.getStatus());
+        assertEquals(1, e.getAttempts());
+        assertEquals(now.plusSeconds(10), e.getNextAttemptAt());
+        assertEquals("Order not found", e.getLastError());
+        verify(repo, never()).markDone(any(), any());
+
+        e.setAttempts(2);
+        processor.processDue();
+
+        assertEquals(WebhookEventStatus.DEAD, e.getStatus());
+        assertEquals(3, e.getAttempts());
+    }
+
+    private StripeWebhookEvent event(int attempts) {
+        return StripeWebhookEvent.builder()
+                .id(UUID.randomUUID())
+                .eventId("evt_" + UUID.randomUUID())
+                .eventType("payment_intent.succeeded")
+                .orderingKey("pi_1")
+                .payload("{}")
+                .attempts(attempts)
+                .nextAttemptAt(now)
+                .receivedAt(now.minusSeconds(1))
+                .build();
+    }
+}
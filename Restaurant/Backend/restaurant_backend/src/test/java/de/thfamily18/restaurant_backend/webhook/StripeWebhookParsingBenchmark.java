@@ -0,0 +1,100 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import com.stripe.model.Event;
+import com.stripe.net.Webhook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Old webhook path (Webhook.constructEvent + ObjectMapper.readTree) vs. StripeWebhookPayloadParser,
+ * for a charge.refunded event with a long refund list.
+ *
+ * Not a unit test. Run manually:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *        de.thfamily18.restaurant_backend.webhook.StripeWebhookParsingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripeWebhookParsingBenchmark {
+
+    static final String SECRET = StripeWebhookPayloadParserUnitTest.SECRET;
+
+    @Param({"1", "50"})
+    int refunds;
+
+    String payload;
+    byte[] payloadBytes;
+    String sigHeader;
+
+    ObjectMapper objectMapper;
+    StripeWebhookPayloadParser parser;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"id\":\"evt_bench\",\"object\":\"event\",\"api_version\":\"2024-06-20\",\"created\":1767268800,")
+                .append("\"livemode\":false,\"pending_webhooks\":1,\"type\":\"charge.refunded\",")
+                .append("\"request\":{\"id\":\"req_1\",\"idempotency_key\":\"refund:x\"},")
+                .append("\"data\":{\"object\":{\"id\":\"ch_bench\",\"object\":\"charge\",\"amount\":99900,")
+                .append("\"payment_intent\":\"pi_bench\",\"billing_details\":{\"address\":{\"city\":\"Berlin\",")
+                .append("\"country\":\"DE\"},\"email\":\"a@b.de\"},\"metadata\":{\"orderId\":\"x\"},")
+                .append("\"refunds\":{\"object\":\"list\",\"has_more\":false,\"data\":[");
+        for (int i = 0; i < refunds; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":\"re_").append(i).append("\",\"object\":\"refund\",\"amount\":100,")
+                    .append("\"charge\":\"ch_bench\",\"created\":").append(1767268000 + i)
+                    .append(",\"currency\":\"eur\",\"metadata\":{\"reason\":\"customer\"},")
+                    .append("\"payment_intent\":\"pi_bench\",\"status\":\"succeeded\"}");
+        }
+        sb.append("]}}}}");
+        payload = sb.toString();
+        payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+
+        objectMapper = new ObjectMapper();
+        parser = new StripeWebhookPayloadParser(objectMapper, Clock.systemUTC());
+        ReflectionTestUtils.setField(parser, "webhookSecret", SECRET);
+
+        long ts = System.currentTimeMillis() / 1000;
+        sigHeader = StripeWebhookPayloadParserUnitTest.header(ts, payloadBytes);
+    }
+
+    @Benchmark
+    public long constructEventPlusReadTree() throws Exception {
+        Event event = Webhook.constructEvent(payload, sigHeader, SECRET);
+        JsonNode obj = objectMapper.readTree(payload).path("data").path("object");
+        long total = 0;
+        for (JsonNode r : obj.path("refunds").path("data")) {
+            total += r.path("amount").asLong(0);
+        }
+        return total + event.getId().length() + obj.path("payment_intent").asText("").length();
+    }
+
+    @Benchmark
+    public long streamingExtractor() {
+        StripeWebhookPayload p = parser.verifyAndParse(payloadBytes, sigHeader);
+        long total = 0;
+        for (StripeWebhookPayload.Refund r : p.refunds()) {
+            total += r.amount();
+        }
+        return total + p.eventId().length() + p.paymentIntentId().length();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(StripeWebhookParsingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package de.thfamily18.restaurant_backend.webhook;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripeWebhookPayloadParserUnitTest {
+
+    static final String SECRET = "whsec_test_secret";
+    static final long NOW = 1_767_268_800L; // 2026-01-01T12:00:00Z
+
+    StripeWebhookPayloadParser parser;
+
+    @BeforeEach
+    void setup() {
+        parser = new StripeWebhookPayloadParser(new ObjectMapper(),
+                Clock.fixed(Instant.ofEpochSecond(NOW), ZoneOffset.UTC));
+        ReflectionTestUtils.setField(parser, "webhookSecret", SECRET);
+    }
+
+    @Test
+    void verifyAndParse_shouldExtractPaymentIntentFields_andSkipEverythingElse() throws Exception {
+        byte[] body = """
+            {"id":"evt_1","object":"event","api_version":"2024-06-20","created":1767268790,
+             "data":{"object":{"id":"pi_1","object":"payment_intent","amount":780,
+               "charges":{"data":[{"id":"ch_1","metadata":{"orderId":"nested-should-be-ignored"}}]},
+               "metadata":{"note":"x","orderId":"3f0c5d7e-0000-4000-8000-000000000001"}},
+               "previous_attributes":{"status":"processing"}},
+             "type":"payment_intent.succeeded"}
+            """.getBytes(StandardCharsets.UTF_8);
+
+        StripeWebhookPayload p = parser.verifyAndParse(body, header(NOW, body));
+
+        assertEquals("evt_1", p.eventId());
+        assertEquals("payment_intent.succeeded", p.type());
+        assertEquals(1767268790L, p.created());
+        assertEquals("pi_1", p.objectId());
+        assertEquals("3f0c5d7e-0000-4000-8000-000000000001", p.orderId());
+        assertEquals("pi_1", p.orderingKey());
+        assertTrue(p.refunds().isEmpty());
+    }
+
+    @Test
+    void parse_shouldReadRefundList_ofChargeEvents() {
+        byte[] body = """
+            {"id":"evt_2","type":"charge.refunded","data":{"object":{
+               "id":"ch_1","payment_intent":"pi_9",
+               "refunds":{"object":"list","data":[
+                  {"id":"re_1","status":"succeeded","amount":300,"created":10,"metadata":{}},
+                  "re_not_expanded",
+                  {"id":"re_2","status":"pending","amount":480,"created":20}
+               ],"has_more":false}}}}
+            """.getBytes(StandardCharsets.UTF_8);
+
+        StripeWebhookPayload p = parser.parse(body);
+
+        assertEquals("ch_1", p.objectId());
+        assertEquals("pi_9", p.orderingKey());
+        assertEquals(2, p.refunds().size());
+        assertEquals(new StripeWebhookPayload.Refund("re_2", "pending", 480, 20), p.refunds().get(1));
+    }
+
+    @Test
+    void verifySignature_shouldRejectTamperedBody_staleTimestamp_andGarbage() throws Exception {
+        byte[] body = "{\"id\":\"evt_3\",\"type\":\"payment_intent.canceled\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] tampered = "{\"id\":\"evt_3\",\"type\":\"payment_intent.succeeded\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> parser.verifyAndParse(tampered, header(NOW, body)));
+        assertThrows(IllegalArgumentException.class, () -> parser.verifyAndParse(body, header(NOW - 301, body)));
+        assertThrows(IllegalArgumentException.class, () -> parser.verifyAndParse(body, "t=1700000000,v1=deadbeef"));
+        assertThrows(IllegalArgumentException.class, () -> parser.verifyAndParse(body, "garbage"));
+
+        // Several v1 entries (secret rotation): one match is enough.
+        String rotated = header(NOW, body) + ",v1=" + "00".repeat(32);
+        assertEquals("evt_3", parser.verifyAndParse(body, rotated).eventId());
+
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("[1,2]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("{\"id\":".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String header(long ts, byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        mac.update((ts + ".").getBytes(StandardCharsets.UTF_8));
+        return "t=" + ts + ",v1=" + HexFormat.of().formatHex(mac.doFinal(body));
+    }
+}